@@ -1,9 +1,10 @@
 import io
 import os
+import struct
 import numpy as np
 import soundfile as sf
 import librosa
-from fastapi import FastAPI, UploadFile, File, HTTPException
+from fastapi import FastAPI, UploadFile, File, HTTPException, Request
 from fastapi.responses import JSONResponse
 import sherpa_onnx as so
 import tempfile
@@ -137,44 +138,105 @@ def init_recognizer():
 def on_startup():
     init_recognizer()
 
+def _decode_audio(raw: bytes, suffix: str):
+    if not raw or len(raw) == 0:
+        raise ValueError("空文件")
+    # 先将上传内容写入临时文件，再用 librosa.load 解码，确保兼容 mp3/m4a/aac 等
+    with tempfile.NamedTemporaryFile(suffix=suffix or ".wav", delete=False) as tmp:
+        tmp.write(raw)
+        tmp_path = tmp.name
+    try:
+        # librosa 会自动解码为 float32/float64，sr 强制重采样到 16k，mono=True 转单声道
+        audio, sr = librosa.load(tmp_path, sr=16000, mono=True)
+        if audio is None or audio.size == 0:
+            raise ValueError("无法解码音频")
+        if audio.dtype != np.float32:
+            audio = audio.astype(np.float32, copy=False)
+        return audio
+    finally:
+        try:
+            os.unlink(tmp_path)
+        except Exception:
+            pass
+
+def _stream_text(stream) -> str:
+    # 兼容不同版本API：优先从 stream.result 取文本，否则使用 get_result
+    text = getattr(getattr(stream, 'result', None), 'text', None)
+    if not text:
+        result = recognizer.get_result(stream)
+        text = getattr(result, 'text', '')
+    return text or ""
+
+def _recognize(audio) -> str:
+    stream = recognizer.create_stream()
+    stream.accept_waveform(16000, audio)
+    recognizer.decode_streams([stream])
+    return _stream_text(stream)
+
+_CONTENT_TYPE_SUFFIX = {
+    "audio/wav": ".wav", "audio/x-wav": ".wav", "audio/wave": ".wav",
+    "audio/mpeg": ".mp3", "audio/mp4": ".m4a", "audio/aac": ".aac",
+    "audio/ogg": ".ogg", "audio/webm": ".webm",
+}
+
 @app.post("/v1/asr-transcribe")
 async def transcribe(file: UploadFile = File(...)):
     if recognizer is None:
         raise HTTPException(status_code=500, detail="Recognizer 未初始化")
     try:
         raw = await file.read()
-        if not raw or len(raw) == 0:
-            raise ValueError("空文件")
-
-        # 先将上传内容写入临时文件，再用 librosa.load 解码，确保兼容 mp3/m4a/aac 等
-        suffix = os.path.splitext(file.filename or "")[1] or ".wav"
-        with tempfile.NamedTemporaryFile(suffix=suffix, delete=False) as tmp:
-            tmp.write(raw)
-            tmp_path = tmp.name
-
-        try:
-            # librosa 会自动解码为 float32/float64，sr 强制重采样到 16k，mono=True 转单声道
-            audio, sr = librosa.load(tmp_path, sr=16000, mono=True)
-            if audio is None or audio.size == 0:
-                raise ValueError("无法解码音频")
-            if audio.dtype != np.float32:
-                audio = audio.astype(np.float32, copy=False)
-        finally:
-            try:
-                os.unlink(tmp_path)
-            except Exception:
-                pass
-
-        stream = recognizer.create_stream()
-        stream.accept_waveform(16000, audio)
-        recognizer.decode_streams([stream])
-        # 兼容不同版本API：优先从 stream.result 取文本，否则使用 get_result
-        text = getattr(getattr(stream, 'result', None), 'text', None)
-        if not text:
-            result = recognizer.get_result(stream)
-            text = getattr(result, 'text', '')
-        return JSONResponse({"text": text or ""})
+        audio = _decode_audio(raw, os.path.splitext(file.filename or "")[1])
+        return JSONResponse({"text": _recognize(audio)})
     except Exception as e:
         raise HTTPException(status_code=400, detail=f"转写失败: {e}")
 
+@app.post("/v1/asr-transcribe-raw")
+async def transcribe_raw(request: Request):
+    """请求体即音频本身（Content-Type 如 audio/wav），省去 multipart 编解码。"""
+    if recognizer is None:
+        raise HTTPException(status_code=500, detail="Recognizer 未初始化")
+    try:
+        raw = await request.body()
+        content_type = (request.headers.get("content-type") or "audio/wav").split(";")[0].strip().lower()
+        audio = _decode_audio(raw, _CONTENT_TYPE_SUFFIX.get(content_type, ".wav"))
+        return JSONResponse({"text": _recognize(audio)})
+    except Exception as e:
+        raise HTTPException(status_code=400, detail=f"转写失败: {e}")
 
+@app.post("/v1/asr-transcribe-batch")
+async def transcribe_batch(request: Request):
+    """
+    批量转写：请求体为 [条数 uint32][各条长度 uint32...][各条音频依次拼接]（大端）。
+    所有可解码的音频在一次 decode_streams 中并行解码；返回与请求顺序一致的 results，
+    单条失败记为 {"error": ...}，不影响其他条目。
+    """
+    if recognizer is None:
+        raise HTTPException(status_code=500, detail="Recognizer 未初始化")
+    raw = await request.body()
+    try:
+        (count,) = struct.unpack_from(">I", raw, 0)
+        lengths = struct.unpack_from(f">{count}I", raw, 4)
+        if 4 + 4 * count + sum(lengths) != len(raw):
+            raise ValueError("长度与请求体不符")
+    except Exception as e:
+        raise HTTPException(status_code=400, detail=f"批量请求格式错误: {e}")
+
+    results = [None] * count
+    streams, indexes = [], []
+    offset = 4 + 4 * count
+    for i, n in enumerate(lengths):
+        chunk = raw[offset:offset + n]
+        offset += n
+        try:
+            audio = _decode_audio(chunk, ".wav")
+            stream = recognizer.create_stream()
+            stream.accept_waveform(16000, audio)
+            streams.append(stream)
+            indexes.append(i)
+        except Exception as e:
+            results[i] = {"error": f"转写失败: {e}"}
+    if streams:
+        recognizer.decode_streams(streams)
+        for i, stream in zip(indexes, streams):
+            results[i] = {"text": _stream_text(stream)}
+    return JSONResponse({"results": results})
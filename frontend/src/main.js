@@ -25,6 +25,7 @@ let selectedRoleAvatar = null;
 let selectedRoleName = null;
 const rolesById = {};
 let lastUserEchoed = null; // 记录已展示过的本轮用户文本，避免跨角色重复显示
+let sessionToken = null;   // 服务端发放的会话令牌，重连时用于恢复上下文
 
 function setStatus(t){ statusEl.textContent = t; }
 
@@ -149,7 +150,11 @@ async function startRecordingLoop() {
 
 function connectWS() {
   const wsProtocol = location.protocol === 'https:' ? 'wss' : 'ws';
-  const qs = selectedRoleId ? `?roleId=${encodeURIComponent(selectedRoleId)}` : '';
+  const params = [];
+  if (selectedRoleId) params.push(`roleId=${encodeURIComponent(selectedRoleId)}`);
+  // 断线重连时带上会话令牌，服务端据此恢复对话上下文
+  if (sessionToken) params.push(`session=${encodeURIComponent(sessionToken)}`);
+  const qs = params.length ? `?${params.join('&')}` : '';
   const wsUrl = `${wsProtocol}://localhost:8080/ws/voice${qs}`;
   ws = new WebSocket(wsUrl);
   ws.binaryType = 'arraybuffer';
@@ -163,7 +168,9 @@ function connectWS() {
       // 文本控制消息，优先解析 JSON
       try {
         const data = JSON.parse(evt.data);
-        if (data && data.type === 'text') {
+        if (data && data.type === 'session') {
+          sessionToken = data.token;
+        } else if (data && data.type === 'text') {
           if (data.user && data.user !== lastUserEchoed) {
             appendBubble(data.user, 'me', null);
             lastUserEchoed = data.user;
@@ -276,6 +283,7 @@ async function loadRoles() {
 
       card.onclick = () => {
         selectedRoleId = r.id;
+        sessionToken = null; // 换角色即开始新会话
         selectedRoleAvatar = resolveAvatar(r.avatar) || null;
         selectedRoleName = r.name || '';
         chatTitle.textContent = `聊天 - ${r.name}`;
@@ -0,0 +1,84 @@
+package com.maverick.maverickchatbot.ai.rag;
+
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.data.segment.TextSegment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 检索与提示词组装的纯 CPU 部分：查询归一化、检索片段拼接、回答用户块组装与调试日志格式化。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PromptAssemblyBenchmark {
+
+    @Param({"3", "5"})
+    public int segments;
+
+    private String query;
+    private List<TextSegment> segs;
+    private String ctx;
+    private String memory;
+    private SystemMessage system;
+    private List<ChatMessage> messages;
+
+    @Setup
+    public void setup() {
+        query = "那他后来，为什么要“六出祁山”？！还有（北伐）的结果呢？";
+        segs = new ArrayList<>();
+        for (int i = 0; i < segments; i++) {
+            segs.add(TextSegment.from(("建兴五年，诸葛亮率诸军北驻汉中，临发，上疏曰：先帝创业未半而中道崩殂。第" + i + "段。").repeat(8)));
+        }
+        ctx = ConversationOrchestrator.buildContext(segs);
+        memory = "用户关注诸葛亮北伐；偏好简短回答；上一轮谈到出师表";
+        system = new SystemMessage("I want you to act like 诸葛亮 from 三国演义.\n".repeat(6) + "<few_shot_examples>\n" +
+                "用户: 你是谁\n诸葛亮: 亮乃南阳布衣。\n\n".repeat(5) + "</few_shot_examples>\n");
+        messages = assemble();
+    }
+
+    @Benchmark
+    public String normalize() {
+        return RagSearchService.normalize(query);
+    }
+
+    @Benchmark
+    public String buildContext() {
+        return ConversationOrchestrator.buildContext(segs);
+    }
+
+    @Benchmark
+    public List<ChatMessage> assembleAnswerMessages() {
+        return assemble();
+    }
+
+    @Benchmark
+    public String formatForLog() {
+        return ConversationOrchestrator.formatForLog(messages, -1);
+    }
+
+    private List<ChatMessage> assemble() {
+        List<ChatMessage> out = new ArrayList<>(2);
+        out.add(system);
+        out.add(new UserMessage(ConversationOrchestrator.buildAnswerUserBlock(ctx, "问题：" + query, memory)));
+        return out;
+    }
+}
@@ -0,0 +1,63 @@
+package com.maverick.maverickchatbot.ai.tts.impl;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 火山 TTS 二进制帧解析（每个音频帧执行一次）。音频交给 Blackhole，不计入缓冲写入与连接关闭。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TtsFrameParseBenchmark {
+
+    @Param({"1024", "16384"})
+    public int payloadSize;
+
+    private ByteBuffer frame;
+    private BlackholeClient client;
+
+    @Setup
+    public void setup(Blackhole bh) {
+        // header: v1 / 4 字节头；audio-only(0xB) + 带序号(0x1)；无序列化、无压缩
+        frame = ByteBuffer.allocate(4 + 8 + payloadSize);
+        frame.put(new byte[]{0x11, (byte) 0xB1, 0x00, 0x00}).putInt(1).putInt(payloadSize).put(new byte[payloadSize]);
+        client = new BlackholeClient(bh);
+    }
+
+    @Benchmark
+    public void onMessage() {
+        frame.rewind();
+        client.onMessage(frame);
+    }
+
+    static class BlackholeClient extends VolcTtsDemo.TtsWebsocketClient {
+        private final Blackhole bh;
+
+        BlackholeClient(Blackhole bh) {
+            super("token", "Bearer; ");
+            this.bh = bh;
+        }
+
+        @Override
+        protected void onAudio(ByteBuffer payload, boolean last) {
+            bh.consume(payload);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.maverick.maverickchatbot.ai.tts.impl;
+
+import com.alibaba.fastjson.JSON;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TTS 帧编解码：codec 视图解码对比旧版 BigInteger + 复制负载的写法；请求编码对比 toJSONString + allocate。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VolcTtsCodecBenchmark {
+
+    @Param({"1024", "16384"})
+    public int payloadSize;
+
+    private final VolcTtsCodec codec = new VolcTtsCodec(4);
+    private final VolcTtsCodec.Frame frame = new VolcTtsCodec.Frame();
+    private ByteBuffer audioFrame;
+    private ByteBuffer gzipFrame;
+    private VolcTtsDemo.TtsRequest request;
+
+    @Setup
+    public void setup() {
+        audioFrame = ByteBuffer.allocate(12 + payloadSize);
+        audioFrame.put(new byte[]{0x11, (byte) 0xB1, 0x00, 0x00}).putInt(3).putInt(payloadSize).put(new byte[payloadSize]).flip();
+        byte[] gz = VolcTtsCodec.gzip(new byte[payloadSize]);
+        gzipFrame = ByteBuffer.allocate(12 + gz.length);
+        gzipFrame.put(new byte[]{0x11, (byte) 0xB1, 0x01, 0x00}).putInt(3).putInt(gz.length).put(gz).flip();
+        request = VolcTtsDemo.TtsRequest.builder()
+                .app(VolcTtsDemo.TtsRequest.App.builder().appid("9838143164").cluster("volcano_tts").build())
+                .user(VolcTtsDemo.TtsRequest.User.builder().uid("uid").build())
+                .audio(VolcTtsDemo.TtsRequest.Audio.builder().encoding("mp3").voiceType("ICL_zh_male_ruyacaijun_tob").build())
+                .request(VolcTtsDemo.TtsRequest.Request.builder().reqID("5f0e3a1c-8f7b-4c1e-9a57-0d7c2b1e4a90")
+                        .operation("query").text("依我之见，此事当从大局出发，先稳根本，再图进取。").build())
+                .build();
+    }
+
+    @Benchmark
+    public ByteBuffer decodeView() {
+        return VolcTtsCodec.decode(audioFrame, frame).getPayload();
+    }
+
+    @Benchmark
+    public ByteBuffer decodeGzip() {
+        return VolcTtsCodec.decode(gzipFrame, frame).getPayload();
+    }
+
+    @Benchmark
+    public void decodeLegacy(Blackhole bh) {
+        // 旧版 onMessage 的读取方式：每个 int 一个 BigInteger，负载复制到新数组
+        ByteBuffer bytes = audioFrame.duplicate();
+        bytes.position((bytes.get(0) & 0x0f) * 4);
+        byte[] fourByte = new byte[4];
+        bytes.get(fourByte, 0, 4);
+        int sequence = new BigInteger(fourByte).intValue();
+        bytes.get(fourByte, 0, 4);
+        int size = new BigInteger(fourByte).intValue();
+        byte[] payload = new byte[size];
+        bytes.get(payload, 0, size);
+        bh.consume(sequence);
+        bh.consume(payload);
+    }
+
+    @Benchmark
+    public int encodePooled() {
+        ByteBuffer buf = codec.encodeRequest(JSON.toJSONBytes(request), false);
+        int n = buf.remaining();
+        codec.release(buf);
+        return n;
+    }
+
+    @Benchmark
+    public byte[] encodeLegacy() {
+        byte[] jsonBytes = JSON.toJSONString(request).getBytes(StandardCharsets.UTF_8);
+        ByteBuffer requestByte = ByteBuffer.allocate(8 + jsonBytes.length);
+        requestByte.put(new byte[]{0x11, 0x10, 0x10, 0x00}).putInt(jsonBytes.length).put(jsonBytes);
+        return requestByte.array();
+    }
+}
@@ -0,0 +1,50 @@
+package com.maverick.maverickchatbot.web;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 每轮都会执行的 WebSocket 侧文本处理：JSON 字符串转义、ASR 噪声判定。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WebHotPathBenchmark {
+
+    @Param({"short", "answer", "escaped"})
+    public String text;
+
+    private String input;
+
+    @org.openjdk.jmh.annotations.Setup
+    public void setup() {
+        input = switch (text) {
+            case "short" -> "你好";
+            case "answer" -> "亮本布衣，躬耕于南阳，苟全性命于乱世，不求闻达于诸侯。先帝不以臣卑鄙，猥自枉屈，三顾臣于草庐之中，咨臣以当世之事。";
+            default -> "他说：\"我不清楚。\"\n然后\t又问了一句\\路径\\在哪里？";
+        };
+    }
+
+    @Benchmark
+    public String toJsonString() {
+        return JsonUtil.toJsonString(input);
+    }
+
+    @Benchmark
+    public boolean isNoisyText() {
+        return VoiceWebSocketHandler.isNoisyText(input);
+    }
+}
@@ -0,0 +1,171 @@
+package com.maverick.maverickchatbot.admission;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * 节点级准入控制：语音轮次先过整轮限流器，轮内对外部依赖的调用再过各自的熔断器与隔离舱（限流器）。
+ * 限流器为自适应上限 + 有界排队，过载时快速拒绝（{@link AdmissionRejectedException}），
+ * 由入口层回复 busy 让客户端降级/稍后重试，而不是让所有请求一起等到下游超时。
+ * 依赖熔断时同样快速拒绝（reason=circuit_open）；可降级的依赖由调用方先查 {@link #isOpen}/{@link #isDegraded} 绕开。
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AdmissionController {
+
+    public static final String TURN = "turn";
+    public static final String ASR = "asr";
+    public static final String LLM = "llm";
+    public static final String EMBEDDING = "embedding";
+    public static final String VECTOR_STORE = "vector_store";
+    public static final String TTS = "tts";
+
+    private final AdmissionProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    private ConcurrencyLimiter turn;
+    private final Map<String, ConcurrencyLimiter> dependencies = new LinkedHashMap<>();
+    private final Map<String, CircuitBreaker> breakers = new LinkedHashMap<>();
+
+    @PostConstruct
+    void init() {
+        if (!properties.isEnabled()) {
+            log.info("Admission control disabled");
+            return;
+        }
+        turn = new ConcurrencyLimiter(TURN, properties.getTurn(), meterRegistry);
+        properties.getDependencies().forEach((name, cfg) -> dependencies.put(name, new ConcurrencyLimiter(name, cfg, meterRegistry)));
+        properties.getBreakers().forEach((name, cfg) -> breakers.put(name, new CircuitBreaker(name, cfg, meterRegistry)));
+        log.info("Admission control: turn initialLimit={} maxQueue={}, dependencies={}, breakers={}",
+                properties.getTurn().getInitialLimit(), properties.getTurn().getMaxQueue(), dependencies.keySet(), breakers.keySet());
+    }
+
+    /**
+     * 申请一轮对话的准入；关闭准入控制时返回 null（try-with-resources 可直接使用）。
+     * @throws AdmissionRejectedException 过载
+     */
+    public ConcurrencyLimiter.Permit admitTurn() {
+        return turn == null ? null : turn.acquire();
+    }
+
+    /**
+     * 申请对某依赖的一次调用（先过熔断器，再过隔离舱）；该依赖两者均未配置时返回 null。
+     * @throws AdmissionRejectedException 熔断中或过载
+     */
+    public Call enter(String dependency) {
+        return begin(dependency, true);
+    }
+
+    /**
+     * 同 {@link #enter}，但只过熔断器、不占隔离舱许可；用于自带并发上限的异步调用方（如 LLM 流式调用）。
+     */
+    public Call enterBreaker(String dependency) {
+        return begin(dependency, false);
+    }
+
+    /**
+     * 在依赖的熔断器与隔离舱内执行 body；body 抛异常时按失败反馈。
+     */
+    public <T> T call(String dependency, Supplier<T> body) {
+        return run(begin(dependency, true), body);
+    }
+
+    /**
+     * 依赖是否处于熔断拒绝期内；调用方据此直接走降级路径，不再发起调用。
+     */
+    public boolean isOpen(String dependency) {
+        CircuitBreaker breaker = breakers.get(dependency);
+        return breaker != null && breaker.isOpen();
+    }
+
+    /**
+     * 依赖是否变慢或熔断；调用方据此跳过非必要调用。
+     */
+    public boolean isDegraded(String dependency) {
+        CircuitBreaker breaker = breakers.get(dependency);
+        return breaker != null && breaker.isDegraded();
+    }
+
+    private Call begin(String dependency, boolean bulkhead) {
+        CircuitBreaker breaker = breakers.get(dependency);
+        ConcurrencyLimiter limiter = bulkhead ? dependencies.get(dependency) : null;
+        if (breaker == null && limiter == null) return null;
+        long ticket = breaker == null ? 0 : breaker.acquire();
+        try {
+            return new Call(breaker, ticket, limiter == null ? null : limiter.acquire());
+        } catch (AdmissionRejectedException e) {
+            if (breaker != null) breaker.abandon(ticket);
+            throw e;
+        }
+    }
+
+    private static <T> T run(Call call, Supplier<T> body) {
+        try {
+            return body.get();
+        } catch (RuntimeException e) {
+            if (call != null) call.fail();
+            throw e;
+        } finally {
+            if (call != null) call.close();
+        }
+    }
+
+    /**
+     * 建议客户端的重试间隔：整轮平均耗时，至少 1s。
+     */
+    public long retryAfterMs() {
+        return turn == null ? 1000 : Math.max(1000, turn.getAvgLatencyMs());
+    }
+
+    /**
+     * 一次依赖调用；close 时把耗时与成败反馈给熔断器和隔离舱。调用失败（含下游超时）前先 {@link #fail()}；
+     * 放行后没有真正到达下游（如本地排队取不到许可就到期）时改用 {@link #abandon()}，不计入熔断统计。
+     */
+    public static final class Call implements AutoCloseable {
+        private final CircuitBreaker breaker;
+        private final long ticket;
+        private final ConcurrencyLimiter.Permit permit;
+        private final long startNs = System.nanoTime();
+        private boolean failed;
+        private boolean closed;
+
+        private Call(CircuitBreaker breaker, long ticket, ConcurrencyLimiter.Permit permit) {
+            this.breaker = breaker;
+            this.ticket = ticket;
+            this.permit = permit;
+        }
+
+        // 流式调用可能在回调线程上结束，fail/close 允许跨线程、重复调用；close 之后的 fail 忽略
+        public synchronized void fail() {
+            if (closed || failed) return;
+            failed = true;
+            if (permit != null) permit.fail();
+        }
+
+        /**
+         * 结束且不反馈成败：只归还熔断器名额（半开试探名额），本节点自身的排队不应让依赖熔断。
+         */
+        public synchronized void abandon() {
+            if (closed) return;
+            closed = true;
+            if (breaker != null) breaker.abandon(ticket);
+            if (permit != null) permit.close();
+        }
+
+        @Override
+        public synchronized void close() {
+            if (closed) return;
+            closed = true;
+            if (breaker != null) breaker.record(ticket, System.nanoTime() - startNs, !failed);
+            if (permit != null) permit.close();
+        }
+    }
+}
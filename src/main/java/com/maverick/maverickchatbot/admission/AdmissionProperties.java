@@ -0,0 +1,58 @@
+package com.maverick.maverickchatbot.admission;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 准入控制配置（admission.*）：整轮对话一个节点级限流器，外部依赖各一个隔离舱（限流器）与熔断器；
+ * 未配置的依赖不限流/不熔断。
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "admission")
+public class AdmissionProperties {
+
+    private boolean enabled = true;
+
+    private Limit turn = new Limit();
+
+    // 依赖名（embedding / vector_store ...）-> 限流配置；LLM 由 llm.routing 档位许可限流，不在此配置
+    private Map<String, Limit> dependencies = new LinkedHashMap<>();
+
+    // 依赖名（asr / llm / embedding / vector_store / tts）-> 熔断配置
+    private Map<String, Breaker> breakers = new LinkedHashMap<>();
+
+    @Data
+    public static class Limit {
+        // 自适应并发上限的初值与上下界
+        private int initialLimit = 16;
+        private int minLimit = 2;
+        private int maxLimit = 128;
+        // 单次耗时超过目标即视为过载信号，上限乘以 backoff；否则每次成功约增加 1/limit
+        private long targetLatencyMs = 2000;
+        private double backoff = 0.9;
+        // 排队上限与最长排队时间；预计等待超过排队时间的请求直接拒绝
+        private int maxQueue = 64;
+        private long queueTimeoutMs = 1000;
+    }
+
+    @Data
+    public static class Breaker {
+        // 按次数的滑动窗口；样本不足 minCalls 时不评估
+        private int windowSize = 20;
+        private int minCalls = 10;
+        // 失败率或慢调用率达到阈值即熔断
+        private double failureRateThreshold = 0.5;
+        private long slowCallMs = 5000;
+        private double slowCallRateThreshold = 0.8;
+        // 慢调用率达到该值视为“变慢”（未熔断），调用方可跳过非必要调用
+        private double degradeSlowCallRate = 0.3;
+        // 熔断持续时间，到期后放行 halfOpenCalls 个试探调用
+        private long openMs = 10000;
+        private int halfOpenCalls = 3;
+    }
+}
@@ -0,0 +1,18 @@
+package com.maverick.maverickchatbot.admission;
+
+import lombok.Getter;
+
+/**
+ * 准入被拒绝；reason：queue_full（队列已满）、deadline（预计等待超过可排队时间）、timeout（排队超时）、interrupted。
+ */
+@Getter
+public class AdmissionRejectedException extends RuntimeException {
+    private final String limiter;
+    private final String reason;
+
+    public AdmissionRejectedException(String limiter, String reason) {
+        super("Admission rejected by '" + limiter + "': " + reason);
+        this.limiter = limiter;
+        this.reason = reason;
+    }
+}
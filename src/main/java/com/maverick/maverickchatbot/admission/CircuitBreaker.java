@@ -0,0 +1,183 @@
+package com.maverick.maverickchatbot.admission;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单个外部依赖的熔断器（按次数的滑动窗口）。
+ * CLOSED：记录最近 windowSize 次调用，样本不少于 minCalls 且失败率或慢调用率达到阈值即 OPEN；
+ * OPEN：openMs 内直接拒绝，之后转 HALF_OPEN；
+ * HALF_OPEN：最多放行 halfOpenCalls 个试探调用，全部成功且不慢则 CLOSED，任一失败或慢调用立即回到 OPEN。
+ * 每次状态切换递增代次，切换前放行的调用结果按代次丢弃，不会污染新状态的统计。
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED(0), HALF_OPEN(1), OPEN(2);
+
+        private final int code;
+
+        State(int code) {
+            this.code = code;
+        }
+
+        public int code() {
+            return code;
+        }
+    }
+
+    private static final byte FAILED = 1;
+    private static final byte SLOW = 2;
+
+    private final String name;
+    private final AdmissionProperties.Breaker cfg;
+    private final long slowCallNs;
+    private final long openNs;
+    private final MeterRegistry meterRegistry;
+
+    // 环形窗口，每格为 FAILED/SLOW 位组合
+    private final byte[] window;
+    private int size;
+    private int next;
+    private int failures;
+    private int slows;
+
+    private State state = State.CLOSED;
+    private long generation;
+    private long openedAtNs;
+    private int trialsInFlight;
+    private int trialSuccesses;
+
+    public CircuitBreaker(String name, AdmissionProperties.Breaker cfg, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.cfg = cfg;
+        this.slowCallNs = TimeUnit.MILLISECONDS.toNanos(cfg.getSlowCallMs());
+        this.openNs = TimeUnit.MILLISECONDS.toNanos(cfg.getOpenMs());
+        this.window = new byte[Math.max(1, cfg.getWindowSize())];
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("admission.breaker.state", this, b -> b.getState().code())
+                .tag("dependency", name)
+                .description("0=closed, 1=half_open, 2=open")
+                .register(meterRegistry);
+        Gauge.builder("admission.breaker.failure.rate", this, CircuitBreaker::getFailureRate).tag("dependency", name).register(meterRegistry);
+        Gauge.builder("admission.breaker.slow.rate", this, CircuitBreaker::getSlowCallRate).tag("dependency", name).register(meterRegistry);
+    }
+
+    /**
+     * 申请放行一次调用，返回代次凭据，调用结束后交回 {@link #record} 或 {@link #abandon}。
+     * @throws AdmissionRejectedException 熔断中（reason=circuit_open）
+     */
+    public synchronized long acquire() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAtNs < openNs) throw reject();
+            transition(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialsInFlight >= Math.max(1, cfg.getHalfOpenCalls())) throw reject();
+            trialsInFlight++;
+        }
+        return generation;
+    }
+
+    /**
+     * 反馈一次调用结果。
+     */
+    public synchronized void record(long ticket, long latencyNs, boolean success) {
+        if (ticket != generation) return;
+        boolean slow = latencyNs >= slowCallNs;
+        if (state == State.HALF_OPEN) {
+            trialsInFlight--;
+            if (!success || slow) {
+                transition(State.OPEN);
+            } else if (++trialSuccesses >= Math.max(1, cfg.getHalfOpenCalls())) {
+                transition(State.CLOSED);
+            }
+            return;
+        }
+        if (state != State.CLOSED) return;
+        byte outcome = (byte) ((success ? 0 : FAILED) | (slow ? SLOW : 0));
+        if (size == window.length) {
+            byte evicted = window[next];
+            if ((evicted & FAILED) != 0) failures--;
+            if ((evicted & SLOW) != 0) slows--;
+        } else {
+            size++;
+        }
+        window[next] = outcome;
+        next = (next + 1) % window.length;
+        if (!success) failures++;
+        if (slow) slows++;
+        if (size >= cfg.getMinCalls()
+                && (failures >= cfg.getFailureRateThreshold() * size || slows >= cfg.getSlowCallRateThreshold() * size)) {
+            transition(State.OPEN);
+        }
+    }
+
+    /**
+     * 放行后未真正发起调用（如被隔离舱拒绝）：只归还试探名额，不计入统计。
+     */
+    public synchronized void abandon(long ticket) {
+        if (ticket == generation && state == State.HALF_OPEN) trialsInFlight--;
+    }
+
+    private void transition(State to) {
+        log.warn("Circuit breaker '{}' {} -> {} (failureRate={}, slowRate={})", name, state, to,
+                String.format("%.2f", getFailureRate()), String.format("%.2f", getSlowCallRate()));
+        state = to;
+        generation++;
+        trialsInFlight = 0;
+        trialSuccesses = 0;
+        if (to == State.OPEN) openedAtNs = System.nanoTime();
+        if (to == State.CLOSED) {
+            size = 0;
+            next = 0;
+            failures = 0;
+            slows = 0;
+        }
+        Counter.builder("admission.breaker.transitions").tag("dependency", name).tag("to", to.name().toLowerCase())
+                .register(meterRegistry).increment();
+    }
+
+    private AdmissionRejectedException reject() {
+        Counter.builder("admission.rejected").tag("limiter", name).tag("reason", "circuit_open").register(meterRegistry).increment();
+        return new AdmissionRejectedException(name, "circuit_open");
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 当前状态；OPEN 已到期但尚无调用触发切换时仍报告 OPEN。
+     */
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * 是否处于熔断拒绝期内（到期后允许试探调用，返回 false）。
+     */
+    public synchronized boolean isOpen() {
+        return state == State.OPEN && System.nanoTime() - openedAtNs < openNs;
+    }
+
+    /**
+     * 是否变慢：非 CLOSED，或窗口内慢调用占比达到 degradeSlowCallRate。调用方据此跳过非必要调用。
+     */
+    public synchronized boolean isDegraded() {
+        return state != State.CLOSED || (size >= cfg.getMinCalls() && slows >= cfg.getDegradeSlowCallRate() * size);
+    }
+
+    public synchronized double getFailureRate() {
+        return size == 0 ? 0 : (double) failures / size;
+    }
+
+    public synchronized double getSlowCallRate() {
+        return size == 0 ? 0 : (double) slows / size;
+    }
+}
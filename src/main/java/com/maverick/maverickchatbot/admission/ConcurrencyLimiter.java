@@ -0,0 +1,178 @@
+package com.maverick.maverickchatbot.admission;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 自适应并发限流（AIMD）加有界等待队列。
+ * 并发上限随观测耗时调整：耗时在目标内且接近满载时加性增长（每次成功 +1/limit），
+ * 超过目标或失败时乘性回退（每个目标耗时窗口内最多回退一次，避免同一波慢请求把上限压到底）。
+ * 超出上限的请求排队；队列满、或按平均耗时估算的等待时间超过可排队时间时立即拒绝，不让请求空等到超时。
+ */
+public class ConcurrencyLimiter {
+
+    private static final double EWMA_ALPHA = 0.1;
+
+    private final String name;
+    private final AdmissionProperties.Limit cfg;
+    private final long targetNs;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private final MeterRegistry meterRegistry;
+
+    private double limit;
+    private int inflight;
+    private int queued;
+    private double avgLatencyNs;
+    private long lastDecreaseNs;
+
+    public ConcurrencyLimiter(String name, AdmissionProperties.Limit cfg, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.cfg = cfg;
+        this.targetNs = TimeUnit.MILLISECONDS.toNanos(cfg.getTargetLatencyMs());
+        this.limit = Math.max(cfg.getMinLimit(), Math.min(cfg.getMaxLimit(), cfg.getInitialLimit()));
+        this.lastDecreaseNs = System.nanoTime() - targetNs;
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("admission.limit", this, ConcurrencyLimiter::getLimit).tag("limiter", name).register(meterRegistry);
+        Gauge.builder("admission.inflight", this, ConcurrencyLimiter::getInflight).tag("limiter", name).register(meterRegistry);
+        Gauge.builder("admission.queued", this, ConcurrencyLimiter::getQueued).tag("limiter", name).register(meterRegistry);
+    }
+
+    public Permit acquire() {
+        return acquire(cfg.getQueueTimeoutMs());
+    }
+
+    /**
+     * 获取许可，最多排队 maxWaitMs；拿不到时抛出 {@link AdmissionRejectedException}。
+     */
+    public Permit acquire(long maxWaitMs) {
+        long maxWaitNs = TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxWaitMs));
+        long deadline = System.nanoTime() + maxWaitNs;
+        lock.lock();
+        try {
+            if (inflight < (int) limit) {
+                inflight++;
+                return new Permit();
+            }
+            if (queued >= cfg.getMaxQueue()) throw reject("queue_full");
+            // 预计等待 = 排在前面的请求数 / 并发上限 × 平均耗时
+            if (avgLatencyNs > 0 && (queued + 1) * avgLatencyNs / limit > maxWaitNs) throw reject("deadline");
+            queued++;
+            try {
+                while (inflight >= (int) limit) {
+                    long left = deadline - System.nanoTime();
+                    if (left <= 0) throw reject("timeout");
+                    released.awaitNanos(left);
+                }
+                inflight++;
+                return new Permit();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw reject("interrupted");
+            } finally {
+                queued--;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(long latencyNs, boolean success) {
+        lock.lock();
+        try {
+            inflight--;
+            if (success) {
+                avgLatencyNs = avgLatencyNs == 0 ? latencyNs : avgLatencyNs + EWMA_ALPHA * (latencyNs - avgLatencyNs);
+            }
+            long now = System.nanoTime();
+            if (!success || latencyNs > targetNs) {
+                if (now - lastDecreaseNs >= targetNs) {
+                    limit = Math.max(cfg.getMinLimit(), limit * cfg.getBackoff());
+                    lastDecreaseNs = now;
+                }
+            } else if (inflight + 1 >= limit / 2) {
+                // 只在有一定负载时增长，空闲时上限不漂移
+                limit = Math.min(cfg.getMaxLimit(), limit + 1 / limit);
+            }
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private AdmissionRejectedException reject(String reason) {
+        Counter.builder("admission.rejected").tag("limiter", name).tag("reason", reason).register(meterRegistry).increment();
+        return new AdmissionRejectedException(name, reason);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInflight() {
+        lock.lock();
+        try {
+            return inflight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getQueued() {
+        lock.lock();
+        try {
+            return queued;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 平均耗时（毫秒），用于给被拒绝的客户端建议重试间隔。
+     */
+    public long getAvgLatencyMs() {
+        lock.lock();
+        try {
+            return (long) (avgLatencyNs / 1_000_000);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 一次许可；close 时按耗时反馈给限流器。调用失败（含下游超时）前先 {@link #fail()}。
+     */
+    public final class Permit implements AutoCloseable {
+        private final long startNs = System.nanoTime();
+        private boolean failed;
+        private boolean closed;
+
+        private Permit() {
+        }
+
+        public void fail() {
+            failed = true;
+        }
+
+        @Override
+        public void close() {
+            if (closed) return;
+            closed = true;
+            release(System.nanoTime() - startNs, !failed);
+        }
+    }
+}
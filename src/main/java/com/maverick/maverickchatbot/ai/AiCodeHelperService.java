@@ -1,28 +1,35 @@
 package com.maverick.maverickchatbot.ai;
 
+import dev.langchain4j.service.MemoryId;
 import dev.langchain4j.service.SystemMessage;
 import dev.langchain4j.service.UserMessage;
 import dev.langchain4j.service.V;
+import dev.langchain4j.service.memory.ChatMemoryAccess;
 
+/**
+ * 会话记忆按 sessionId 隔离（见 AiCodeHelperServiceFactory），不同调用方互不串话。
+ */
 //@AiService
-public interface AiCodeHelperService {
+public interface AiCodeHelperService extends ChatMemoryAccess {
 
     @SystemMessage(fromResource = "system-prompt.txt")
-    String chat(String userMessage);
+    String chat(@MemoryId String sessionId, @UserMessage String userMessage);
 
     // 通过在用户消息中预置一条“系统前缀”，实现动态 persona 效果
     @SystemMessage(fromResource = "system-prompt.txt")
-    String chatWithPersona(@UserMessage String personaPrefix, @UserMessage String userMessage);
+    String chatWithPersona(@MemoryId String sessionId, @UserMessage String personaPrefix, @UserMessage String userMessage);
 
     // 使用模板化 system prompt，动态注入 {{character}} 与 {{series}}
     @SystemMessage(fromResource = "system-prompt.txt")
-    String chatWithRoleSystem(@V("character") String character,
+    String chatWithRoleSystem(@MemoryId String sessionId,
+                              @V("character") String character,
                               @V("series") String series,
                               @UserMessage String userMessage);
 
     // 加入 few-shot 示例块
     @SystemMessage(fromResource = "system-prompt.txt")
-    String chatWithRoleSystemAndShots(@V("character") String character,
+    String chatWithRoleSystemAndShots(@MemoryId String sessionId,
+                                      @V("character") String character,
                                       @V("series") String series,
                                       @UserMessage String fewShotBlock,
                                       @UserMessage String userMessage);
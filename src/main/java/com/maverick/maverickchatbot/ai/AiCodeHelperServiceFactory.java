@@ -1,10 +1,13 @@
 package com.maverick.maverickchatbot.ai;
 
-import dev.langchain4j.memory.ChatMemory;
+import com.maverick.maverickchatbot.ai.memory.BoundedChatMemoryStore;
+import com.maverick.maverickchatbot.ai.memory.ChatMemoryProperties;
+import dev.langchain4j.memory.chat.ChatMemoryProvider;
 import dev.langchain4j.memory.chat.MessageWindowChatMemory;
 import dev.langchain4j.model.chat.ChatModel;
 import dev.langchain4j.rag.content.retriever.ContentRetriever;
 import dev.langchain4j.service.AiServices;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.annotation.Resource;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -18,15 +21,29 @@ public class AiCodeHelperServiceFactory {
     @Resource
     private ContentRetriever contentRetriever;
 
+    @Resource
+    private ChatMemoryProperties chatMemoryProperties;
+
+    @Bean
+    public BoundedChatMemoryStore chatMemoryStore(MeterRegistry meterRegistry) {
+        return new BoundedChatMemoryStore(chatMemoryProperties, meterRegistry, System::currentTimeMillis);
+    }
+
     @Bean
-    public AiCodeHelperService aiCodeHelperService() {
-        // 会话记忆
-        ChatMemory chatMemory = MessageWindowChatMemory.withMaxMessages(10);
+    public AiCodeHelperService aiCodeHelperService(BoundedChatMemoryStore chatMemoryStore) {
+        // 会话记忆：按 @MemoryId 各自一个消息窗口，消息存放在有界存储中
+        ChatMemoryProvider chatMemoryProvider = memoryId -> MessageWindowChatMemory.builder()
+                .id(memoryId)
+                .maxMessages(chatMemoryProperties.getMaxMessages())
+                .chatMemoryStore(chatMemoryStore)
+                .build();
         // 构造 AI Service
         AiCodeHelperService aiCodeHelperService = AiServices.builder(AiCodeHelperService.class)
                 .chatModel(qwenChatModel)
-                .chatMemory(chatMemory)
+                .chatMemoryProvider(chatMemoryProvider)
                 .build();
+        // 存储淘汰会话时，同时丢弃 AI Service 内按 id 缓存的 ChatMemory 实例，避免其无限增长
+        chatMemoryStore.setEvictionListener(aiCodeHelperService::evictChatMemory);
         return aiCodeHelperService;
     }
 }
@@ -0,0 +1,96 @@
+package com.maverick.maverickchatbot.ai.asr;
+
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+/**
+ * 音频指纹：把 PCM 按 40ms 分帧，帧能量取 log2 量化（约 3dB 一档）得到能量轮廓，再对轮廓取 64 位哈希。
+ * 哈希相同即判为重复；否则逐帧比较轮廓，档位相差不超过 1 的帧占比达到阈值即判为近似重复
+ * （同一段录音重复上传、重新编码或轻微增益变化）。短于 MIN_FUZZY_FRAMES 的片段帧数太少，
+ * 不同的短句（“好的”“对的”）也容易凑满阈值，只做哈希精确匹配。无法解码的音频（透传的 mp3 等）退化为按字节 CRC 的精确匹配。
+ */
+public final class AudioFingerprint {
+
+    static final int FRAME_MS = 40;
+
+    // 帧数差异超过该比例直接判为不同
+    private static final double MAX_LENGTH_DIFF = 0.1;
+
+    // 近似匹配所需的最少帧数（1s）
+    static final int MIN_FUZZY_FRAMES = 25;
+
+    private final long hash;
+    private final byte[] profile;
+
+    private AudioFingerprint(long hash, byte[] profile) {
+        this.hash = hash;
+        this.profile = profile;
+    }
+
+    /**
+     * 对 pcm[from, to) 计算能量轮廓指纹。
+     */
+    public static AudioFingerprint ofPcm(short[] pcm, int from, int to, int sampleRate) {
+        int frame = Math.max(1, sampleRate * FRAME_MS / 1000);
+        int frames = Math.max(0, (to - from + frame - 1) / frame);
+        byte[] profile = new byte[frames];
+        // FNV-1a 64
+        long hash = 0xcbf29ce484222325L;
+        for (int f = 0; f < frames; f++) {
+            int start = from + f * frame;
+            int end = Math.min(to, start + frame);
+            long sum = 0;
+            for (int i = start; i < end; i++) sum += pcm[i] * pcm[i];
+            long meanSquare = sum / (end - start);
+            byte level = (byte) (63 - Long.numberOfLeadingZeros(meanSquare + 1));
+            profile[f] = level;
+            hash = (hash ^ level) * 0x100000001b3L;
+        }
+        return new AudioFingerprint(hash, profile);
+    }
+
+    /**
+     * 对原始字节计算精确指纹（不解码）。
+     */
+    public static AudioFingerprint ofBytes(ByteBuffer data) {
+        CRC32 crc = new CRC32();
+        ByteBuffer view = data.duplicate();
+        int length = view.remaining();
+        crc.update(view);
+        return new AudioFingerprint(((long) length << 32) ^ crc.getValue(), null);
+    }
+
+    /**
+     * 是否为同一段或近似同一段音频。
+     * @param minSimilarity 近似判定所需的相近帧占比，取值 (0, 1]
+     */
+    public boolean matches(AudioFingerprint other, double minSimilarity) {
+        if (other == null) return false;
+        if (hash == other.hash && (profile == null) == (other.profile == null)) return true;
+        if (profile == null || other.profile == null || profile.length == 0 || other.profile.length == 0) return false;
+        int shorter = Math.min(profile.length, other.profile.length);
+        int longer = Math.max(profile.length, other.profile.length);
+        if (shorter < MIN_FUZZY_FRAMES) return false;
+        if (longer - shorter > longer * MAX_LENGTH_DIFF) return false;
+        int close = 0;
+        for (int i = 0; i < shorter; i++) {
+            if (Math.abs(profile[i] - other.profile[i]) <= 1) close++;
+        }
+        return close >= minSimilarity * longer;
+    }
+
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * 估算占用字节数。
+     */
+    public int sizeBytes() {
+        return 32 + (profile == null ? 0 : 16 + profile.length);
+    }
+
+    int frames() {
+        return profile == null ? 0 : profile.length;
+    }
+}
@@ -0,0 +1,243 @@
+package com.maverick.maverickchatbot.ai.asr;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * ASR 前置音频处理：解析 WAV 头，下混为单声道、重采样到 16 kHz，按帧能量裁掉首尾静音，
+ * 重新封装为 16 kHz/16bit/mono WAV。全静音的音频直接判为静音，不再发起 ASR 请求。
+ * 全程只在 short[] 上做整数运算，不按样本分配对象。
+ * 非 WAV（如 mp3/webm）或不支持的编码（仅支持 16bit PCM 与 32bit float）原样透传。
+ */
+@Component
+@Slf4j
+public class AudioPreprocessor {
+
+    static final int TARGET_RATE = 16000;
+
+    private static final int FORMAT_PCM = 1;
+    private static final int FORMAT_FLOAT = 3;
+    private static final int FORMAT_EXTENSIBLE = 0xFFFE;
+
+    private final boolean enabled;
+    private final int frameMs;
+    private final int paddingMs;
+    private final int minSpeechMs;
+    // 帧均方阈值（样本幅度平方）
+    private final long thresholdSquare;
+    private final Counter silentRejected;
+
+    public AudioPreprocessor(@Value("${asr.preprocess.enabled:true}") boolean enabled,
+                             @Value("${asr.preprocess.silence-threshold-dbfs:-45}") double silenceThresholdDbfs,
+                             @Value("${asr.preprocess.frame-ms:20}") int frameMs,
+                             @Value("${asr.preprocess.padding-ms:200}") int paddingMs,
+                             @Value("${asr.preprocess.min-speech-ms:60}") int minSpeechMs,
+                             MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.frameMs = Math.max(5, frameMs);
+        this.paddingMs = Math.max(0, paddingMs);
+        this.minSpeechMs = Math.max(0, minSpeechMs);
+        double amplitude = 32768 * Math.pow(10, silenceThresholdDbfs / 20);
+        this.thresholdSquare = (long) (amplitude * amplitude);
+        this.silentRejected = Counter.builder("asr.preprocess.silent").register(meterRegistry);
+    }
+
+    public Result process(AudioSource audio) {
+        if (!enabled) return Result.passThrough(audio);
+        ByteBuffer buf = audio.data().order(ByteOrder.LITTLE_ENDIAN);
+        WavFormat fmt = WavFormat.parse(buf);
+        if (fmt == null) return Result.passThrough(audio);
+
+        short[] pcm = resample(decodeMono(buf, fmt), fmt.sampleRate, TARGET_RATE);
+        long inputMs = (long) pcm.length * 1000 / TARGET_RATE;
+        int frame = TARGET_RATE * frameMs / 1000;
+        int first = -1;
+        int last = -1;
+        int voiced = 0;
+        for (int f = 0; f * frame < pcm.length; f++) {
+            int from = f * frame;
+            int to = Math.min(pcm.length, from + frame);
+            long sum = 0;
+            for (int i = from; i < to; i++) sum += pcm[i] * pcm[i];
+            if (sum >= thresholdSquare * (to - from)) {
+                if (first < 0) first = f;
+                last = f;
+                voiced++;
+            }
+        }
+        if (first < 0 || voiced * frameMs < minSpeechMs) {
+            silentRejected.increment();
+            return Result.silent(audio.size(), inputMs);
+        }
+        int pad = TARGET_RATE * paddingMs / 1000;
+        int start = Math.max(0, first * frame - pad);
+        int end = Math.min(pcm.length, (last + 1) * frame + pad);
+        byte[] wav = encodeWav(pcm, start, end - start);
+        if (log.isDebugEnabled()) {
+            log.debug("Audio preprocessed: {}Hz/{}ch/{}bit {}B -> 16kHz mono {}B, {}ms -> {}ms",
+                    fmt.sampleRate, fmt.channels, fmt.bitsPerSample, audio.size(), wav.length,
+                    inputMs, (long) (end - start) * 1000 / TARGET_RATE);
+        }
+        // 指纹只取有声区间：补边的静音帧彼此相同，会抬高不同短句之间的相似度
+        AudioFingerprint fingerprint = AudioFingerprint.ofPcm(pcm, first * frame, Math.min(pcm.length, (last + 1) * frame), TARGET_RATE);
+        return Result.processed(AudioSource.wav(wav), fingerprint,
+                audio.size(), inputMs, (long) (end - start) * 1000 / TARGET_RATE);
+    }
+
+    /**
+     * 解码为单声道 16bit：多声道取各声道均值，float 样本截断到 16bit 范围。
+     */
+    static short[] decodeMono(ByteBuffer buf, WavFormat fmt) {
+        int bytesPerSample = fmt.bitsPerSample / 8;
+        int frameBytes = bytesPerSample * fmt.channels;
+        int frames = fmt.dataSize / frameBytes;
+        short[] out = new short[frames];
+        int pos = fmt.dataOffset;
+        for (int i = 0; i < frames; i++, pos += frameBytes) {
+            int sum = 0;
+            for (int c = 0; c < fmt.channels; c++) {
+                int at = pos + c * bytesPerSample;
+                if (fmt.isFloat) {
+                    float v = buf.getFloat(at);
+                    sum += (int) Math.max(-32768, Math.min(32767, v * 32767f));
+                } else {
+                    sum += buf.getShort(at);
+                }
+            }
+            out[i] = (short) (sum / fmt.channels);
+        }
+        return out;
+    }
+
+    /**
+     * 降采样按输出样本覆盖的源区间取均值（简单抗混叠），升采样做线性插值；同采样率原样返回。
+     */
+    static short[] resample(short[] in, int fromRate, int toRate) {
+        if (fromRate == toRate || in.length == 0) return in;
+        int n = (int) ((long) in.length * toRate / fromRate);
+        short[] out = new short[n];
+        if (fromRate > toRate) {
+            for (int i = 0; i < n; i++) {
+                int from = (int) ((long) i * fromRate / toRate);
+                int to = Math.max(from + 1, (int) Math.min(in.length, (long) (i + 1) * fromRate / toRate));
+                long sum = 0;
+                for (int j = from; j < to; j++) sum += in[j];
+                out[i] = (short) (sum / (to - from));
+            }
+        } else {
+            for (int i = 0; i < n; i++) {
+                // 16.16 定点源位置
+                long pos = ((long) i * fromRate << 16) / toRate;
+                int j = (int) (pos >> 16);
+                int frac = (int) (pos & 0xFFFF);
+                int a = in[j];
+                int b = j + 1 < in.length ? in[j + 1] : a;
+                out[i] = (short) (a + (((long) (b - a) * frac) >> 16));
+            }
+        }
+        return out;
+    }
+
+    static byte[] encodeWav(short[] pcm, int offset, int length) {
+        int dataSize = length * 2;
+        ByteBuffer out = ByteBuffer.allocate(44 + dataSize).order(ByteOrder.LITTLE_ENDIAN);
+        out.put(new byte[]{'R', 'I', 'F', 'F'}).putInt(36 + dataSize)
+           .put(new byte[]{'W', 'A', 'V', 'E'})
+           .put(new byte[]{'f', 'm', 't', ' '}).putInt(16)
+           .putShort((short) FORMAT_PCM).putShort((short) 1)
+           .putInt(TARGET_RATE).putInt(TARGET_RATE * 2)
+           .putShort((short) 2).putShort((short) 16)
+           .put(new byte[]{'d', 'a', 't', 'a'}).putInt(dataSize);
+        out.asShortBuffer().put(pcm, offset, length);
+        return out.array();
+    }
+
+    /**
+     * WAV 头中与解码相关的字段；dataOffset 为 data 块在缓冲中的绝对下标。
+     */
+    static final class WavFormat {
+        int channels;
+        int sampleRate;
+        int bitsPerSample;
+        boolean isFloat;
+        int dataOffset;
+        int dataSize;
+
+        /**
+         * 解析 RIFF/WAVE 头；不是 WAV 或编码不受支持时返回 null。要求 buf 为小端序。
+         */
+        static WavFormat parse(ByteBuffer buf) {
+            int base = buf.position();
+            int limit = buf.limit();
+            if (limit - base < 12 || buf.getInt(base) != 0x46464952 /* RIFF */ || buf.getInt(base + 8) != 0x45564157 /* WAVE */) {
+                return null;
+            }
+            WavFormat fmt = null;
+            int pos = base + 12;
+            while (pos + 8 <= limit) {
+                int id = buf.getInt(pos);
+                long size = Integer.toUnsignedLong(buf.getInt(pos + 4));
+                int body = pos + 8;
+                if (id == 0x20746d66 /* "fmt " */ && size >= 16 && body + 16 <= limit) {
+                    int format = buf.getShort(body) & 0xFFFF;
+                    if (format == FORMAT_EXTENSIBLE && size >= 26 && body + 26 <= limit) {
+                        format = buf.getShort(body + 24) & 0xFFFF;
+                    }
+                    fmt = new WavFormat();
+                    fmt.channels = buf.getShort(body + 2) & 0xFFFF;
+                    fmt.sampleRate = buf.getInt(body + 4);
+                    fmt.bitsPerSample = buf.getShort(body + 14) & 0xFFFF;
+                    fmt.isFloat = format == FORMAT_FLOAT;
+                    boolean supported = (format == FORMAT_PCM && fmt.bitsPerSample == 16)
+                            || (format == FORMAT_FLOAT && fmt.bitsPerSample == 32);
+                    if (!supported || fmt.channels < 1 || fmt.sampleRate <= 0) return null;
+                } else if (id == 0x61746164 /* "data" */) {
+                    if (fmt == null) return null;
+                    fmt.dataOffset = body;
+                    // 流式写出的 WAV 可能把长度写成 0 或 0xFFFFFFFF，以实际剩余为准
+                    fmt.dataSize = (int) Math.min(size == 0 ? Long.MAX_VALUE : size, limit - body);
+                    return fmt;
+                }
+                pos = (int) Math.min(limit, body + size + (size & 1));
+            }
+            return null;
+        }
+    }
+
+    /**
+     * 处理结果：silent 为 true 时 audio 与 fingerprint 为 null；passThrough 表示未识别为可处理的 WAV，
+     * audio 为原输入，fingerprint 为按字节的精确指纹。
+     */
+    @Getter
+    @AllArgsConstructor(access = AccessLevel.PRIVATE)
+    public static class Result {
+        private final AudioSource audio;
+        private final AudioFingerprint fingerprint;
+        private final boolean silent;
+        private final boolean passThrough;
+        private final int inputBytes;
+        private final long inputMs;
+        private final long outputMs;
+
+        static Result passThrough(AudioSource audio) {
+            return new Result(audio, AudioFingerprint.ofBytes(audio.data()), false, true, audio.size(), -1, -1);
+        }
+
+        static Result silent(int inputBytes, long inputMs) {
+            return new Result(null, null, true, false, inputBytes, inputMs, 0);
+        }
+
+        static Result processed(AudioSource audio, AudioFingerprint fingerprint, int inputBytes, long inputMs, long outputMs) {
+            return new Result(audio, fingerprint, false, false, inputBytes, inputMs, outputMs);
+        }
+    }
+}
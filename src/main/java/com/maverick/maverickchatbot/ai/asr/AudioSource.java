@@ -0,0 +1,94 @@
+package com.maverick.maverickchatbot.ai.asr;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+
+/**
+ * 一段待转写的音频：包装调用方的 ByteBuffer（如 WebSocket 二进制帧负载），不复制内容。
+ * 视图只在调用方持有原缓冲期间有效，转写需在此期间同步完成。
+ */
+public final class AudioSource {
+
+    private final ByteBuffer data;
+    private final String filename;
+    private final String contentType;
+
+    private AudioSource(ByteBuffer data, String filename, String contentType) {
+        this.data = data.asReadOnlyBuffer();
+        this.filename = filename;
+        this.contentType = contentType;
+    }
+
+    public static AudioSource of(ByteBuffer data, String filename, String contentType) {
+        return new AudioSource(data, filename, contentType);
+    }
+
+    public static AudioSource wav(ByteBuffer data) {
+        return of(data, "client.wav", "audio/wav");
+    }
+
+    public static AudioSource wav(byte[] data) {
+        return wav(ByteBuffer.wrap(data));
+    }
+
+    /**
+     * 只读视图，position/limit 独立，读取不影响本对象。
+     */
+    public ByteBuffer data() {
+        return data.duplicate();
+    }
+
+    public int size() {
+        return data.remaining();
+    }
+
+    public String getFilename() {
+        return filename;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public InputStream openStream() {
+        return Channels.newInputStream(new ByteBufferChannel(data()));
+    }
+
+    /**
+     * 把音频写入输出流；只读堆缓冲也按块写出，不整体复制。
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        Channels.newChannel(out).write(data());
+    }
+
+    private static final class ByteBufferChannel implements java.nio.channels.ReadableByteChannel {
+        private final ByteBuffer buf;
+        private boolean open = true;
+
+        ByteBufferChannel(ByteBuffer buf) {
+            this.buf = buf;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) {
+            if (!buf.hasRemaining()) return -1;
+            int n = Math.min(dst.remaining(), buf.remaining());
+            dst.put(buf.slice(buf.position(), n));
+            buf.position(buf.position() + n);
+            return n;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void close() {
+            open = false;
+        }
+    }
+}
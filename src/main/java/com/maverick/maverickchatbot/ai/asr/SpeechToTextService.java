@@ -1,18 +1,14 @@
 package com.maverick.maverickchatbot.ai.asr;
 
-import org.springframework.web.multipart.MultipartFile;
-
 /**
  * 语音转文字服务接口。
  */
 public interface SpeechToTextService {
 
     /**
-     * 将上传的音频进行转写，返回文本。
-     * @param audio 音频文件（常见类型：wav/mp3/m4a等）
+     * 将音频进行转写，返回文本。实现需在返回前读完音频，不得持有 {@link AudioSource} 的缓冲。
+     * @param audio 音频（常见类型：wav/mp3/m4a等）
      * @return 转写文本
      */
-    String transcribe(MultipartFile audio);
+    String transcribe(AudioSource audio);
 }
-
-
@@ -0,0 +1,133 @@
+package com.maverick.maverickchatbot.ai.asr.impl;
+
+import com.maverick.maverickchatbot.ai.asr.AudioSource;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+
+/**
+ * 跨会话的 ASR 微批调度：第一条待转写音频到达后最多再等 window，或攒满 maxItems 条，
+ * 即合并为一次批量请求发出，结果按下标分发回各自的等待方。
+ * 每批的额外时延不超过 window；批量请求在 sendExecutor 上发出（含等待连接许可），
+ * 收集线程只负责攒批，不会因下游连接池占满而停止收集。
+ */
+@Slf4j
+final class AsrBatchDispatcher implements AutoCloseable {
+
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final Function<List<AudioSource>, CompletableFuture<List<String>>> sender;
+    private final Executor sendExecutor;
+    private final long windowNanos;
+    private final int maxItems;
+    private final IntConsumer batchSizeRecorder;
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    /**
+     * @param sender 发送一批音频，返回与输入等长的文本列表；某条失败时对应位置为 null。可能阻塞
+     * @param sendExecutor 调用 sender 的执行器
+     */
+    AsrBatchDispatcher(Function<List<AudioSource>, CompletableFuture<List<String>>> sender, Executor sendExecutor,
+                       long windowMs, int maxItems, IntConsumer batchSizeRecorder) {
+        this.sender = sender;
+        this.sendExecutor = sendExecutor;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, windowMs));
+        this.maxItems = Math.max(1, maxItems);
+        this.batchSizeRecorder = batchSizeRecorder;
+        this.worker = new Thread(this::loop, "asr-batch");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * 排队等待下一批发出。future 结束前调用方需保持音频缓冲有效。
+     */
+    CompletableFuture<String> submit(AudioSource audio) {
+        Pending p = new Pending(audio);
+        if (!running) {
+            p.future.completeExceptionally(new IllegalStateException("ASR batch dispatcher stopped"));
+            return p.future;
+        }
+        queue.add(p);
+        return p.future;
+    }
+
+    private void loop() {
+        List<Pending> batch = new ArrayList<>(maxItems);
+        while (running) {
+            try {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + windowNanos;
+                while (batch.size() < maxItems) {
+                    long left = deadline - System.nanoTime();
+                    Pending next = left > 0 ? queue.poll(left, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) break;
+                    batch.add(next);
+                }
+                dispatch(List.copyOf(batch));
+            } catch (InterruptedException e) {
+                fail(batch, new IllegalStateException("ASR batch dispatcher stopped"));
+                break;
+            } catch (RuntimeException e) {
+                // 如执行器拒绝：已取出的条目不会再有人完成，必须在这里结束
+                log.warn("ASR batch dispatch failed: {}", e.toString());
+                fail(batch, e);
+            } finally {
+                batch.clear();
+            }
+        }
+        Pending left;
+        while ((left = queue.poll()) != null) {
+            left.future.completeExceptionally(new IllegalStateException("ASR batch dispatcher stopped"));
+        }
+    }
+
+    private void dispatch(List<Pending> batch) {
+        batchSizeRecorder.accept(batch.size());
+        List<AudioSource> audios = new ArrayList<>(batch.size());
+        for (Pending p : batch) audios.add(p.audio);
+        CompletableFuture.supplyAsync(() -> sender.apply(audios), sendExecutor)
+                .thenCompose(Function.identity())
+                .whenComplete((texts, error) -> {
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                    for (int i = 0; i < batch.size(); i++) {
+                        CompletableFuture<String> f = batch.get(i).future;
+                        if (cause != null) {
+                            f.completeExceptionally(cause);
+                        } else if (texts == null || i >= texts.size() || texts.get(i) == null) {
+                            f.completeExceptionally(new IllegalStateException("ASR batch returned no result for item " + i + "/" + batch.size()));
+                        } else {
+                            f.complete(texts.get(i));
+                        }
+                    }
+                });
+    }
+
+    private static void fail(List<Pending> batch, Throwable error) {
+        for (Pending p : batch) p.future.completeExceptionally(error);
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        worker.interrupt();
+    }
+
+    private static final class Pending {
+        final AudioSource audio;
+        final CompletableFuture<String> future = new CompletableFuture<>();
+
+        Pending(AudioSource audio) {
+            this.audio = audio;
+        }
+    }
+}
@@ -1,28 +1,45 @@
 package com.maverick.maverickchatbot.ai.asr.impl;
 
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.maverick.maverickchatbot.ai.asr.AudioSource;
 import com.maverick.maverickchatbot.ai.asr.SpeechToTextService;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpMethod;
-import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
-import org.springframework.util.LinkedMultiValueMap;
-import org.springframework.util.MultiValueMap;
-import org.springframework.web.client.RestTemplate;
-import org.springframework.web.multipart.MultipartFile;
 
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class SherpaOnnxSpeechToTextService implements SpeechToTextService {
 
-    private final RestTemplate restTemplate;
+    private final HttpClient asrHttpClient;
+    private final MeterRegistry meterRegistry;
+    private final ExecutorService conversationExecutor;
 
     @Value("${asr.vendor:sherpa-onnx}")
     private String vendor;
@@ -30,46 +47,164 @@ public class SherpaOnnxSpeechToTextService implements SpeechToTextService {
     @Value("${asr.sherpa.base-url:http://localhost:8081}")
     private String sherpaBaseUrl;
 
-    @Value("${asr.sherpa.endpoint:/v1/asr-transcribe}")
+    @Value("${asr.sherpa.endpoint:/v1/asr-transcribe-raw}")
     private String sherpaEndpoint;
 
+    @Value("${asr.http.read-timeout-ms:10000}")
+    private long readTimeoutMs;
+
+    // HTTP/1.1 下每个在途请求独占一条连接，限制在途数即限制连接池规模
+    @Value("${asr.http.max-connections:32}")
+    private int maxConnections;
+
+    @Value("${asr.batch.enabled:true}")
+    private boolean batchEnabled;
+
+    @Value("${asr.batch.endpoint:/v1/asr-transcribe-batch}")
+    private String batchEndpoint;
+
+    @Value("${asr.batch.window-ms:30}")
+    private long batchWindowMs;
+
+    @Value("${asr.batch.max-items:16}")
+    private int batchMaxItems;
+
+    private URI uri;
+    private URI batchUri;
+    private AsrBatchDispatcher batcher;
+    private Semaphore permits;
+    private Timer requestTimer;
+    private Timer permitWaitTimer;
+
+    @PostConstruct
+    void init() {
+        this.uri = URI.create(sherpaBaseUrl + sherpaEndpoint);
+        this.permits = new Semaphore(Math.max(1, maxConnections), true);
+        this.requestTimer = Timer.builder("asr.http.request").publishPercentiles(0.5, 0.95, 0.99).register(meterRegistry);
+        this.permitWaitTimer = Timer.builder("asr.http.pool.wait").register(meterRegistry);
+        // 连接池利用率 = in-use / max
+        Gauge.builder("asr.http.pool.max", () -> maxConnections).register(meterRegistry);
+        Gauge.builder("asr.http.pool.in-use", permits, p -> maxConnections - p.availablePermits()).register(meterRegistry);
+        Gauge.builder("asr.http.pool.pending", permits, Semaphore::getQueueLength).register(meterRegistry);
+        if (batchEnabled) {
+            this.batchUri = URI.create(sherpaBaseUrl + batchEndpoint);
+            DistributionSummary batchSize = DistributionSummary.builder("asr.batch.size").register(meterRegistry);
+            this.batcher = new AsrBatchDispatcher(this::transcribeBatchAsync, conversationExecutor, batchWindowMs, batchMaxItems, batchSize::record);
+            log.info("ASR micro-batching enabled: windowMs={}, maxItems={}, endpoint={}", batchWindowMs, batchMaxItems, batchUri);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (batcher != null) batcher.close();
+    }
+
     @Override
-    public String transcribe(MultipartFile audio) {
+    public String transcribe(AudioSource audio) {
         if (!"sherpa-onnx".equalsIgnoreCase(vendor)) {
             throw new IllegalStateException("ASR vendor 非 sherpa-onnx，当前: " + vendor);
         }
         try {
-            String url = sherpaBaseUrl + sherpaEndpoint;
-
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.MULTIPART_FORM_DATA);
-
-            MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
-            body.add("file", new org.springframework.core.io.ByteArrayResource(audio.getBytes()) {
-                @Override
-                public String getFilename() {
-                    return audio.getOriginalFilename() != null ? audio.getOriginalFilename() : "audio";
-                }
-            });
-
-            HttpEntity<MultiValueMap<String, Object>> requestEntity = new HttpEntity<>(body, headers);
-            ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.POST, requestEntity, String.class);
-
-            if (!response.getStatusCode().is2xxSuccessful() || response.getBody() == null) {
-                throw new IllegalStateException("sherpa-onnx 转写失败，HTTP:" + response.getStatusCode());
-            }
+            return (batcher != null ? batcher.submit(audio) : transcribeAsync(audio)).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            log.error("调用 sherpa-onnx 失败: {}", cause.toString());
+            throw new RuntimeException("调用 sherpa-onnx 失败: " + cause.getMessage(), cause);
+        }
+    }
 
-            String responseBody = response.getBody();
+    /**
+     * 异步发送原始音频（请求体即音频，Content-Type 取自 AudioSource）。
+     * 返回的 future 结束前调用方需保持音频缓冲有效。
+     */
+    private CompletableFuture<String> transcribeAsync(AudioSource audio) {
+        String contentType = audio.getContentType() != null ? audio.getContentType() : "application/octet-stream";
+        return post(uri, contentType, body(audio)).thenApply(responseBody -> {
             // 期望 JSON: {"text":"..."}
             String text = parseTextFromJson(responseBody);
             if (text == null || text.isEmpty()) {
                 throw new IllegalStateException("sherpa-onnx 返回内容无法解析: " + responseBody);
             }
             return text;
-        } catch (Exception e) {
-            log.error("调用 sherpa-onnx 失败", e);
-            throw new RuntimeException("调用 sherpa-onnx 失败: " + e.getMessage(), e);
+        });
+    }
+
+    /**
+     * 批量转写。请求体：[条数 int32][各条长度 int32...][各条音频依次拼接]，大端；
+     * 响应：{"results":[{"text":"..."}|{"error":"..."}...]}，与请求顺序一致。失败条目返回 null。
+     */
+    private CompletableFuture<List<String>> transcribeBatchAsync(List<AudioSource> audios) {
+        ByteBuffer header = ByteBuffer.allocate(4 + 4 * audios.size()).putInt(audios.size());
+        List<HttpRequest.BodyPublisher> parts = new ArrayList<>(audios.size() + 1);
+        parts.add(null);
+        for (AudioSource audio : audios) {
+            header.putInt(audio.size());
+            parts.add(body(audio));
         }
+        parts.set(0, HttpRequest.BodyPublishers.ofByteArray(header.array()));
+        HttpRequest.BodyPublisher body = HttpRequest.BodyPublishers.concat(parts.toArray(new HttpRequest.BodyPublisher[0]));
+        return post(batchUri, "application/x-asr-batch", body).thenApply(responseBody -> {
+            JSONArray results = JSON.parseObject(responseBody).getJSONArray("results");
+            if (results == null || results.size() != audios.size()) {
+                throw new IllegalStateException("sherpa-onnx 批量返回条数不符: " + responseBody);
+            }
+            List<String> texts = new ArrayList<>(results.size());
+            for (int i = 0; i < results.size(); i++) {
+                JSONObject r = results.getJSONObject(i);
+                String text = r == null ? null : r.getString("text");
+                if (text == null || text.isEmpty()) {
+                    log.warn("sherpa-onnx 批量转写第 {} 条失败: {}", i, r == null ? null : r.getString("error"));
+                    text = null;
+                }
+                texts.add(text);
+            }
+            return texts;
+        });
+    }
+
+    // 带长度的流式请求体：直接从缓冲视图读取，不整体复制
+    private static HttpRequest.BodyPublisher body(AudioSource audio) {
+        return HttpRequest.BodyPublishers.fromPublisher(HttpRequest.BodyPublishers.ofInputStream(audio::openStream), audio.size());
+    }
+
+    /**
+     * 发出 POST 并返回 2xx 响应体；读超时到期以 {@link HttpTimeoutException} 结束。拿不到连接许可时在读超时内等待。
+     */
+    private CompletableFuture<String> post(URI target, String contentType, HttpRequest.BodyPublisher body) {
+        long waitStart = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(readTimeoutMs, TimeUnit.MILLISECONDS)) {
+                return CompletableFuture.failedFuture(new HttpTimeoutException("ASR connection pool exhausted (" + maxConnections + ")"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(e);
+        }
+        permitWaitTimer.record(System.nanoTime() - waitStart, TimeUnit.NANOSECONDS);
+
+        HttpRequest request = HttpRequest.newBuilder(target)
+                .timeout(Duration.ofMillis(readTimeoutMs))
+                .header("Content-Type", contentType)
+                .POST(body)
+                .build();
+        Timer.Sample sample = Timer.start(meterRegistry);
+        CompletableFuture<HttpResponse<String>> sent;
+        try {
+            sent = asrHttpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        } catch (RuntimeException e) {
+            permits.release();
+            return CompletableFuture.failedFuture(e);
+        }
+        return sent.whenComplete((r, t) -> {
+                    permits.release();
+                    sample.stop(requestTimer);
+                })
+                .thenApply(response -> {
+                    if (response.statusCode() / 100 != 2 || response.body() == null) {
+                        throw new IllegalStateException("sherpa-onnx 转写失败，HTTP:" + response.statusCode());
+                    }
+                    return response.body();
+                });
     }
 
     private String parseTextFromJson(String json) {
@@ -90,5 +225,3 @@ public class SherpaOnnxSpeechToTextService implements SpeechToTextService {
         }
     }
 }
-
-
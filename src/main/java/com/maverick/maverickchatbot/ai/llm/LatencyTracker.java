@@ -0,0 +1,42 @@
+package com.maverick.maverickchatbot.ai.llm;
+
+import java.util.Arrays;
+
+/**
+ * 最近 N 次调用耗时的滑动窗口，用于估算延迟分位数（对冲请求的触发阈值）。
+ */
+class LatencyTracker {
+
+    private final long[] samples;
+    private int next;
+    private int size;
+
+    LatencyTracker(int capacity) {
+        this.samples = new long[capacity];
+    }
+
+    synchronized void record(long nanos) {
+        samples[next] = nanos;
+        next = (next + 1) % samples.length;
+        if (size < samples.length) size++;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @param p 分位（0~1）
+     * @return 对应分位耗时（纳秒）；无样本返回 -1
+     */
+    long percentile(double p) {
+        long[] copy;
+        synchronized (this) {
+            if (size == 0) return -1;
+            copy = Arrays.copyOf(samples, size);
+        }
+        Arrays.sort(copy);
+        int idx = (int) Math.ceil(p * copy.length) - 1;
+        return copy[Math.min(Math.max(idx, 0), copy.length - 1)];
+    }
+}
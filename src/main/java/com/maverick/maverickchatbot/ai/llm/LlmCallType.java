@@ -0,0 +1,25 @@
+package com.maverick.maverickchatbot.ai.llm;
+
+/**
+ * 编排器中的 LLM 调用类型，每种类型在配置中映射到一个模型档位。
+ */
+public enum LlmCallType {
+    /** 查询改写 */
+    REWRITE("rewrite"),
+    /** 跨角色过渡话 */
+    TRANSFER("transfer"),
+    /** 最终回答 */
+    ANSWER("answer"),
+    /** 会话记忆摘要 */
+    SUMMARY("summary");
+
+    private final String key;
+
+    LlmCallType(String key) {
+        this.key = key;
+    }
+
+    public String key() {
+        return key;
+    }
+}
@@ -0,0 +1,38 @@
+package com.maverick.maverickchatbot.ai.llm;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * LLM 调用截止时间与对冲请求配置（llm.resilience.*）。
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "llm.resilience")
+public class LlmResilienceProperties {
+
+    // 调用类型 -> 截止时间（ms），与档位 timeout-ms 取较小者；未配置则只受档位超时约束
+    private Map<String, Long> deadlinesMs = new LinkedHashMap<>();
+
+    private Hedge hedge = new Hedge();
+
+    @Data
+    public static class Hedge {
+        private boolean enabled = true;
+        // 单次耗时超过该分位时发出对冲请求
+        private double percentile = 0.95;
+        // 对冲触发延迟下限，避免冷启动或极快时段频繁对冲
+        private long minDelayMs = 300;
+        // 样本不足时不对冲
+        private int minSamples = 20;
+        private int window = 256;
+        // 允许对冲的调用类型；为空表示全部
+        private List<String> calls = new ArrayList<>();
+    }
+}
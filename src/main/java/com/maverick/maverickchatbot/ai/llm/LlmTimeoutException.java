@@ -0,0 +1,16 @@
+package com.maverick.maverickchatbot.ai.llm;
+
+import lombok.Getter;
+
+/**
+ * LLM 调用超时（含排队等待并发许可超时）。
+ */
+@Getter
+public class LlmTimeoutException extends RuntimeException {
+    private final LlmCallType callType;
+
+    public LlmTimeoutException(LlmCallType callType, String message) {
+        super(message);
+        this.callType = callType;
+    }
+}
@@ -0,0 +1,363 @@
+package com.maverick.maverickchatbot.ai.llm;
+
+import com.maverick.maverickchatbot.admission.AdmissionController;
+import dev.langchain4j.community.model.dashscope.QwenChatModel;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * LLM 分档路由：按调用类型选择模型档位（如改写/摘要/过渡话走小模型，回答走大模型），
+ * 每个档位有独立的超时与并发上限；在此之上按调用类型施加截止时间与对冲请求。
+ * 所有调用（含流式）计入 llm 熔断器（档位信号量即隔离舱，不再叠加依赖限流器）；
+ * 只有真正发往厂商的调用反馈成败，等不到档位许可的调用放弃熔断名额，不会因本节点排队而熔断。
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ModelRouter {
+
+    public static final String DEFAULT_TIER = "default";
+
+    private final ChatModel qwenChatModel;
+    private final ModelRoutingProperties properties;
+    private final ExecutorService conversationExecutor;
+    private final LlmResilienceProperties resilience;
+    private final MeterRegistry meterRegistry;
+    private final AdmissionController admissionController;
+    private final ObjectProvider<StreamingChatModel> streamingChatModelProvider;
+
+    @Value("${langchain4j.community.dashscope.chat-model.api-key:}")
+    private String defaultApiKey;
+
+    @Value("${langchain4j.community.dashscope.chat-model.base-url:}")
+    private String defaultBaseUrl;
+
+    private final Map<String, Tier> tiers = new LinkedHashMap<>();
+    private final Map<LlmCallType, Tier> routes = new EnumMap<>(LlmCallType.class);
+    private final Map<LlmCallType, CallMetrics> callMetrics = new EnumMap<>(LlmCallType.class);
+
+    @PostConstruct
+    void init() {
+        properties.getTiers().forEach((name, cfg) -> tiers.put(name, buildTier(name, cfg)));
+        tiers.computeIfAbsent(DEFAULT_TIER, name -> buildTier(name, new ModelRoutingProperties.Tier()));
+        for (LlmCallType type : LlmCallType.values()) {
+            String tierName = properties.getCalls().getOrDefault(type.key(), DEFAULT_TIER);
+            Tier tier = tiers.get(tierName);
+            if (tier == null) {
+                log.warn("LLM routing: unknown tier '{}' for call '{}', fallback to default", tierName, type.key());
+                tier = tiers.get(DEFAULT_TIER);
+            }
+            routes.put(type, tier);
+            callMetrics.put(type, new CallMetrics(type, tier.name));
+        }
+        routes.forEach((type, tier) -> log.info("LLM routing: {} -> tier={} model={} timeoutMs={} maxConcurrency={}",
+                type.key(), tier.name, tier.modelName, tier.timeoutMs, tier.maxConcurrency));
+    }
+
+    /**
+     * 按调用类型路由到对应档位并同步调用。
+     * 截止时间取调用类型 deadline 与档位 timeout 的较小者；单次耗时超过历史分位阈值时
+     * 额外发出一个对冲请求，取先返回者。到期抛出 {@link LlmTimeoutException}，由调用方降级；
+     * llm 熔断时抛出 {@link com.maverick.maverickchatbot.admission.AdmissionRejectedException}。
+     */
+    public ChatResponse chat(LlmCallType type, List<ChatMessage> messages) {
+        return chat(type, messages, Long.MAX_VALUE);
+    }
+
+    /**
+     * 同 {@link #chat(LlmCallType, List)}，截止时间再受 budgetMs 约束；供调用方在已耗去部分预算后重试（如流式失败回退阻塞）。
+     */
+    public ChatResponse chat(LlmCallType type, List<ChatMessage> messages, long budgetMs) {
+        AdmissionController.Call call = admissionController.enterBreaker(AdmissionController.LLM);
+        AtomicBoolean reached = new AtomicBoolean();
+        boolean ok = false;
+        try {
+            ChatResponse response = route(type, messages, budgetMs, reached);
+            ok = true;
+            return response;
+        } finally {
+            if (call != null) {
+                if (!reached.get()) {
+                    call.abandon();
+                } else {
+                    if (!ok) call.fail();
+                    call.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * 流式调用：与阻塞调用共用档位并发许可、llm 熔断器与 llm.* 计数，不对冲。
+     * 许可在截止时间前取得，流结束（完成/出错）时归还；未配置流式模型时返回 null。
+     * @param deadlineNs 取许可的截止时刻（System.nanoTime 基准）
+     * @param onToken 增量文本回调，在模型回调线程上调用
+     * @throws LlmTimeoutException 截止时间前档位无空闲许可
+     * @throws com.maverick.maverickchatbot.admission.AdmissionRejectedException llm 熔断
+     */
+    public Stream stream(LlmCallType type, List<ChatMessage> messages, long deadlineNs, Consumer<String> onToken) {
+        StreamingChatModel model = streamingChatModelProvider.getIfAvailable();
+        if (model == null) return null;
+        Tier tier = routes.get(type);
+        CallMetrics metrics = callMetrics.get(type);
+        AdmissionController.Call call = admissionController.enterBreaker(AdmissionController.LLM);
+        boolean acquired = false;
+        try {
+            acquired = tier.permits.tryAcquire(Math.max(deadlineNs - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!acquired) {
+            metrics.deadlineExceeded.increment();
+            if (call != null) call.abandon();
+            throw new LlmTimeoutException(type, "LLM tier '" + tier.name + "' busy, no permit for stream before deadline");
+        }
+        metrics.calls.increment();
+        Stream stream = new Stream(tier, metrics, call);
+        try {
+            model.chat(messages, new StreamingChatResponseHandler() {
+                @Override
+                public void onPartialResponse(String token) {
+                    if (token == null || token.isEmpty() || stream.result.isDone()) return;
+                    onToken.accept(token);
+                }
+
+                @Override
+                public void onCompleteResponse(ChatResponse response) {
+                    stream.finish(true);
+                    stream.result.complete(response);
+                }
+
+                @Override
+                public void onError(Throwable error) {
+                    stream.finish(false);
+                    stream.result.completeExceptionally(error);
+                }
+            });
+        } catch (RuntimeException e) {
+            stream.finish(false);
+            throw e;
+        }
+        return stream;
+    }
+
+    /**
+     * @param reached 任一尝试取得档位许可、即将调用厂商时置位
+     */
+    private ChatResponse route(LlmCallType type, List<ChatMessage> messages, long maxBudgetMs, AtomicBoolean reached) {
+        Tier tier = routes.get(type);
+        CallMetrics metrics = callMetrics.get(type);
+        long budgetMs = Math.min(Math.min(tier.timeoutMs, maxBudgetMs), resilience.getDeadlinesMs().getOrDefault(type.key(), Long.MAX_VALUE));
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budgetMs);
+        metrics.calls.increment();
+
+        CompletableFuture<ChatResponse> result = new CompletableFuture<>();
+        AtomicInteger pending = new AtomicInteger(1);
+        Future<?> primary = conversationExecutor.submit(() -> attempt(type, tier, messages, deadline, false, result, pending, metrics, reached));
+        Future<?> hedge = null;
+        try {
+            long hedgeDelayNs = hedgeDelayNs(type, metrics);
+            if (hedgeDelayNs >= 0 && System.nanoTime() + hedgeDelayNs < deadline) {
+                try {
+                    return result.get(hedgeDelayNs, TimeUnit.NANOSECONDS);
+                } catch (TimeoutException slow) {
+                    // 对冲请求不排队：拿不到许可说明档位已满载，不再加压
+                    if (tier.permits.tryAcquire()) {
+                        pending.incrementAndGet();
+                        metrics.hedgeSent.increment();
+                        hedge = conversationExecutor.submit(() -> attempt(type, tier, messages, deadline, true, result, pending, metrics, reached));
+                    }
+                }
+            }
+            return result.get(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            metrics.deadlineExceeded.increment();
+            throw new LlmTimeoutException(type, "LLM call '" + type.key() + "' exceeded deadline " + budgetMs + "ms (tier=" + tier.name + ")");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException re) throw re;
+            throw new IllegalStateException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("LLM call interrupted", e);
+        } finally {
+            primary.cancel(true);
+            if (hedge != null) hedge.cancel(true);
+        }
+    }
+
+    /**
+     * 单次尝试：主请求在截止时间内等待许可，对冲请求由调用方预先取得许可。
+     * 首个成功结果完成 result；全部失败时以最后一个异常结束。
+     */
+    private void attempt(LlmCallType type, Tier tier, List<ChatMessage> messages, long deadline, boolean hedged,
+                         CompletableFuture<ChatResponse> result, AtomicInteger pending, CallMetrics metrics, AtomicBoolean reached) {
+        boolean acquired = hedged;
+        boolean called = false;
+        long start = 0;
+        try {
+            if (!acquired) {
+                acquired = tier.permits.tryAcquire(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+                if (!acquired) {
+                    throw new LlmTimeoutException(type, "LLM tier '" + tier.name + "' busy, no permit before deadline");
+                }
+            }
+            reached.set(true);
+            called = true;
+            start = System.nanoTime();
+            ChatResponse response = tier.model.chat(messages);
+            metrics.latency.record(System.nanoTime() - start);
+            if (result.complete(response) && hedged) {
+                metrics.hedgeWon.increment();
+            }
+        } catch (Throwable t) {
+            // 删失样本：截止时间已到、或主请求已被对冲抢先完成时被取消，此时耗时只是真实延迟的下界，仍计入窗口；
+            // 只记成功调用会在整体变慢时低估分位数、推迟对冲。对冲请求落败时耗时偏短，不计入
+            if (called && (System.nanoTime() >= deadline || (!hedged && result.isDone()))) {
+                metrics.latency.record(System.nanoTime() - start);
+            }
+            if (pending.decrementAndGet() == 0) {
+                result.completeExceptionally(t instanceof InterruptedException ? new IllegalStateException(t) : t);
+            }
+        } finally {
+            if (acquired) tier.permits.release();
+        }
+    }
+
+    private long hedgeDelayNs(LlmCallType type, CallMetrics metrics) {
+        LlmResilienceProperties.Hedge cfg = resilience.getHedge();
+        if (!cfg.isEnabled()) return -1;
+        if (!cfg.getCalls().isEmpty() && !cfg.getCalls().contains(type.key())) return -1;
+        if (metrics.latency.size() < cfg.getMinSamples()) return -1;
+        long p = metrics.latency.percentile(cfg.getPercentile());
+        return Math.max(p, TimeUnit.MILLISECONDS.toNanos(cfg.getMinDelayMs()));
+    }
+
+    public String tierOf(LlmCallType type) {
+        return routes.get(type).name;
+    }
+
+    private Tier buildTier(String name, ModelRoutingProperties.Tier cfg) {
+        ChatModel model;
+        String modelName = cfg.getModelName();
+        if (modelName == null || modelName.isEmpty()) {
+            model = qwenChatModel;
+            modelName = "<auto-configured>";
+        } else {
+            String apiKey = cfg.getApiKey() != null && !cfg.getApiKey().isEmpty() ? cfg.getApiKey() : defaultApiKey;
+            String baseUrl = cfg.getBaseUrl() != null && !cfg.getBaseUrl().isEmpty() ? cfg.getBaseUrl() : defaultBaseUrl;
+            QwenChatModel.QwenChatModelBuilder builder = QwenChatModel.builder()
+                    .apiKey(apiKey)
+                    .modelName(modelName)
+                    .maxTokens(cfg.getMaxTokens())
+                    .temperature(cfg.getTemperature());
+            if (baseUrl != null && !baseUrl.isEmpty()) builder.baseUrl(baseUrl);
+            model = builder.build();
+        }
+        return new Tier(name, modelName, model, cfg.getTimeoutMs(), cfg.getMaxConcurrency());
+    }
+
+    /**
+     * 一次流式调用。result 在流完成或出错时结束；调用方放弃等待时 {@link #abandon()}：
+     * 记为超时失败，此后到达的 token 不再回调，档位许可仍待流真正结束时归还（厂商侧仍在占用并发）。
+     */
+    public static final class Stream {
+        private final Tier tier;
+        private final CallMetrics metrics;
+        private final AdmissionController.Call call;
+        private final CompletableFuture<ChatResponse> result = new CompletableFuture<>();
+        private final AtomicBoolean finished = new AtomicBoolean();
+
+        private Stream(Tier tier, CallMetrics metrics, AdmissionController.Call call) {
+            this.tier = tier;
+            this.metrics = metrics;
+            this.call = call;
+        }
+
+        public CompletableFuture<ChatResponse> result() {
+            return result;
+        }
+
+        public void abandon() {
+            if (!result.complete(null)) return;
+            metrics.deadlineExceeded.increment();
+            if (call != null) call.fail();
+        }
+
+        private void finish(boolean success) {
+            if (!finished.compareAndSet(false, true)) return;
+            tier.permits.release();
+            if (call != null) {
+                if (!success) call.fail();
+                call.close();
+            }
+        }
+    }
+
+    /**
+     * 单个调用类型的计数器与延迟窗口。对冲率 = hedge.sent / calls，对冲胜率 = hedge.won / hedge.sent。
+     */
+    private final class CallMetrics {
+        final Counter calls;
+        final Counter hedgeSent;
+        final Counter hedgeWon;
+        final Counter deadlineExceeded;
+        final LatencyTracker latency;
+
+        CallMetrics(LlmCallType type, String tierName) {
+            this.calls = counter("llm.calls", type, tierName);
+            this.hedgeSent = counter("llm.hedge.sent", type, tierName);
+            this.hedgeWon = counter("llm.hedge.won", type, tierName);
+            this.deadlineExceeded = counter("llm.deadline.exceeded", type, tierName);
+            this.latency = new LatencyTracker(Math.max(1, resilience.getHedge().getWindow()));
+        }
+
+        private Counter counter(String name, LlmCallType type, String tierName) {
+            return Counter.builder(name).tag("call", type.key()).tag("tier", tierName).register(meterRegistry);
+        }
+    }
+
+    private static final class Tier {
+        final String name;
+        final String modelName;
+        final ChatModel model;
+        final long timeoutMs;
+        final int maxConcurrency;
+        final Semaphore permits;
+
+        Tier(String name, String modelName, ChatModel model, long timeoutMs, int maxConcurrency) {
+            this.name = name;
+            this.modelName = modelName;
+            this.model = model;
+            this.timeoutMs = timeoutMs;
+            this.maxConcurrency = maxConcurrency;
+            this.permits = new Semaphore(Math.max(1, maxConcurrency), true);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.maverick.maverickchatbot.ai.llm;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 模型分档路由配置（llm.routing.*）。
+ * tiers: 档位名 -> 模型与限流参数；名为 default 且未配置 model-name 的档位使用自动配置的 qwenChatModel。
+ * calls: 调用类型（rewrite/transfer/answer/summary）-> 档位名，未配置的类型走 default。
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "llm.routing")
+public class ModelRoutingProperties {
+
+    private Map<String, Tier> tiers = new LinkedHashMap<>();
+
+    private Map<String, String> calls = new LinkedHashMap<>();
+
+    @Data
+    public static class Tier {
+        // 为空表示复用自动配置的 qwenChatModel
+        private String modelName;
+        // 为空时沿用 langchain4j.community.dashscope.chat-model 的配置
+        private String apiKey;
+        private String baseUrl;
+        private Integer maxTokens;
+        private Float temperature;
+        private long timeoutMs = 30_000;
+        private int maxConcurrency = 32;
+    }
+}
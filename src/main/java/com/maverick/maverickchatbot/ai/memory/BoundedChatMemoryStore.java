@@ -0,0 +1,167 @@
+package com.maverick.maverickchatbot.ai.memory;
+
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.ChatMessageDeserializer;
+import dev.langchain4j.data.message.ChatMessageSerializer;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * 按 memoryId 隔离的有界会话记忆存储，供 ChatMemoryProvider 为每个会话构造 MessageWindowChatMemory。
+ * 按访问顺序维护（LRU）：会话数超限时淘汰最久未访问的会话；空闲超过 ttl 的会话在访问时清理，
+ * 并按 sweepIntervalMs 从最久未访问端批量清理，不再被访问的会话也会及时释放。
+ * 锁只保护索引，序列化与淘汰回调都在锁外进行。
+ */
+@Slf4j
+public class BoundedChatMemoryStore implements ChatMemoryStore {
+
+    private final ChatMemoryProperties properties;
+    private final LongSupplier clock;
+    private final MeterRegistry meterRegistry;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<Object, Entry> sessions = new LinkedHashMap<>(256, 0.75f, true);
+    private volatile Consumer<Object> evictionListener = id -> { };
+    private long lastSweepAt;
+
+    public BoundedChatMemoryStore(ChatMemoryProperties properties, MeterRegistry meterRegistry, LongSupplier clock) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.clock = clock;
+        this.lastSweepAt = clock.getAsLong();
+        Gauge.builder("chat.memory.sessions", this, BoundedChatMemoryStore::size).register(meterRegistry);
+    }
+
+    /**
+     * 会话被淘汰后回调（如让 AI Service 丢弃其缓存的 ChatMemory 实例）。
+     */
+    public void setEvictionListener(Consumer<Object> evictionListener) {
+        this.evictionListener = evictionListener;
+    }
+
+    @Override
+    public List<ChatMessage> getMessages(Object memoryId) {
+        long now = clock.getAsLong();
+        Entry entry;
+        List<Object> evicted = new ArrayList<>();
+        lock.lock();
+        try {
+            sweepIfDue(now, evicted);
+            entry = sessions.get(memoryId);
+            if (entry != null && now - entry.lastAccessAt > properties.getTtlMs()) {
+                sessions.remove(memoryId);
+                evicted.add(memoryId);
+                entry = null;
+            } else if (entry != null) {
+                sessions.put(memoryId, entry.touch(now));
+            }
+        } finally {
+            lock.unlock();
+        }
+        notifyEvicted(evicted, "ttl");
+        return entry == null ? new ArrayList<>() : entry.messages();
+    }
+
+    @Override
+    public void updateMessages(Object memoryId, List<ChatMessage> messages) {
+        long now = clock.getAsLong();
+        Entry entry = Entry.of(messages, properties.isCompact(), now);
+        List<Object> expired = new ArrayList<>();
+        List<Object> evicted = new ArrayList<>();
+        lock.lock();
+        try {
+            sweepIfDue(now, expired);
+            sessions.put(memoryId, entry);
+            Iterator<Object> it = sessions.keySet().iterator();
+            while (sessions.size() > properties.getMaxSessions() && it.hasNext()) {
+                Object eldest = it.next();
+                if (eldest.equals(memoryId)) continue;
+                it.remove();
+                evicted.add(eldest);
+            }
+        } finally {
+            lock.unlock();
+        }
+        notifyEvicted(expired, "ttl");
+        notifyEvicted(evicted, "size");
+    }
+
+    @Override
+    public void deleteMessages(Object memoryId) {
+        lock.lock();
+        try {
+            sessions.remove(memoryId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return sessions.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // 持有锁调用。访问顺序即空闲时长顺序：从最久未访问开始，遇到未过期的即停止
+    private void sweepIfDue(long now, List<Object> evicted) {
+        if (now - lastSweepAt < properties.getSweepIntervalMs()) return;
+        lastSweepAt = now;
+        Iterator<Map.Entry<Object, Entry>> it = sessions.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Object, Entry> eldest = it.next();
+            if (now - eldest.getValue().lastAccessAt <= properties.getTtlMs()) break;
+            it.remove();
+            evicted.add(eldest.getKey());
+        }
+    }
+
+    private void notifyEvicted(List<Object> ids, String reason) {
+        if (ids.isEmpty()) return;
+        Counter.builder("chat.memory.evicted").tag("reason", reason).register(meterRegistry).increment(ids.size());
+        for (Object id : ids) {
+            try {
+                evictionListener.accept(id);
+            } catch (Exception e) {
+                log.debug("Chat memory eviction listener failed for {}: {}", id, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 单个会话的消息：compact 时为 JSON 字节，否则为不可变列表。
+     */
+    private record Entry(List<ChatMessage> list, byte[] json, long lastAccessAt) {
+
+        static Entry of(List<ChatMessage> messages, boolean compact, long now) {
+            if (compact) {
+                return new Entry(null, ChatMessageSerializer.messagesToJson(messages).getBytes(StandardCharsets.UTF_8), now);
+            }
+            return new Entry(List.copyOf(messages), null, now);
+        }
+
+        Entry touch(long now) {
+            return new Entry(list, json, now);
+        }
+
+        // MessageWindowChatMemory 会就地修改返回的列表，每次返回新副本
+        List<ChatMessage> messages() {
+            if (json != null) return new ArrayList<>(ChatMessageDeserializer.messagesFromJson(new String(json, StandardCharsets.UTF_8)));
+            return new ArrayList<>(list);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.maverick.maverickchatbot.ai.memory;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * AiCodeHelperService 会话记忆配置（chat-memory.*）。
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "chat-memory")
+public class ChatMemoryProperties {
+
+    // 每个会话保留的最近消息数
+    private int maxMessages = 10;
+
+    // 会话数上限，超出时淘汰最久未访问的会话
+    private int maxSessions = 10000;
+
+    // 空闲超过 ttl 的会话记忆被清除
+    private long ttlMs = 30 * 60 * 1000L;
+
+    // 过期清理的最小间隔（在访问时顺带进行，不另起线程）
+    private long sweepIntervalMs = 60 * 1000L;
+
+    // 以 JSON 字节保存消息而非对象图，长会话多时更省堆；读写多一次序列化
+    private boolean compact = false;
+}
@@ -1,36 +1,58 @@
 package com.maverick.maverickchatbot.ai.rag;
 
+import com.maverick.maverickchatbot.admission.AdmissionController;
+import com.maverick.maverickchatbot.ai.llm.LlmCallType;
+import com.maverick.maverickchatbot.ai.llm.LlmTimeoutException;
+import com.maverick.maverickchatbot.ai.llm.ModelRouter;
 import com.maverick.maverickchatbot.ai.roles.RoleConfig;
 import com.maverick.maverickchatbot.ai.roles.RoleService;
+import com.maverick.maverickchatbot.metrics.TurnTrace;
+import com.maverick.maverickchatbot.session.ConversationState;
 import dev.langchain4j.data.message.SystemMessage;
 import dev.langchain4j.data.message.UserMessage;
 import dev.langchain4j.data.segment.TextSegment;
-import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.AllArgsConstructor;
+import lombok.Builder;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.jetbrains.annotations.NotNull;
 import org.springframework.stereotype.Service;
 
-import jakarta.annotation.PostConstruct;
-import org.springframework.core.io.ClassPathResource;
-import java.io.InputStream;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class ConversationOrchestrator {
 
-    private final ChatModel qwenChatModel;
+    private final ModelRouter modelRouter;
     private final RagSearchService ragSearchService;
     private final RoleService roleService;
-    private String systemPromptTemplate;
-    private String transferSystemPromptTemplate;
+    private final RolePromptCache rolePromptCache;
+    private final TransferPhraseBank transferPhraseBank;
+    private final ExecutorService conversationExecutor;
+    private final RewriteNeedClassifier rewriteNeedClassifier;
+    private final MeterRegistry meterRegistry;
+    private final AdmissionController admissionController;
+
+    // off：总是改写；shadow：总是改写并记录判定器结论；enforce：判定可跳过时不改写
+    @Value("${rag.rewrite.gate.mode:shadow}")
+    private String rewriteGateMode;
+
+    @Value("${llm.resilience.answer-fallback:嗯……让我想一想，你可以换个说法再问我一次吗？}")
+    private String answerFallback;
+
+    @Value("${llm.resilience.deadlines-ms.answer:20000}")
+    private long answerDeadlineMs;
 
     @Value("${llm.debug.prompt:true}")
     private boolean debugPrompt;
@@ -38,82 +60,242 @@ public class ConversationOrchestrator {
     @Value("${llm.debug.max-log-len:-1}")
     private int debugMaxLogLen;
 
-    @PostConstruct
-    void loadSystemPromptTemplate() {
-        this.systemPromptTemplate = readResource("system-prompt.txt");
-        this.transferSystemPromptTemplate = readResource("transfer-system-prompt.txt");
+    public Result handleTurn(String asrText, RoleConfig role, String lastQuery, String topicSummary, String memorySummary, String lastEscalatedRoleId) {
+        return handleTurn(asrText, role, lastQuery, topicSummary, memorySummary, lastEscalatedRoleId, TurnListener.NONE);
     }
 
-    public Result handleTurn(String asrText, RoleConfig role, String lastQuery, String topicSummary, String memorySummary, String lastEscalatedRoleId) {
+    /**
+     * 同 {@link #handleTurn(String, RoleConfig, String, String, String, String)}，
+     * 跨角色转接时过渡话一经确定即回调 listener，目标角色的检索与生成同时在后台进行。
+     */
+    public Result handleTurn(String asrText, RoleConfig role, String lastQuery, String topicSummary, String memorySummary, String lastEscalatedRoleId,
+                             TurnListener listener) {
+        return runTurn(asrText, role, lastQuery, topicSummary, memorySummary, lastEscalatedRoleId, listener, false);
+    }
+
+    /**
+     * 流式版本：最终回答经 StreamingChatModel 生成，按 过渡话 → 回答 token → 完整回答 → Result 的顺序回调 listener。
+     * 未配置流式模型时退化为阻塞生成（整段回答作为一个 token 下发）。
+     */
+    public Result handleTurnStreaming(String asrText, RoleConfig role, String lastQuery, String topicSummary, String memorySummary, String lastEscalatedRoleId,
+                                      TurnListener listener) {
+        return runTurn(asrText, role, lastQuery, topicSummary, memorySummary, lastEscalatedRoleId, listener, true);
+    }
+
+    private Result runTurn(String asrText, RoleConfig role, String lastQuery, String topicSummary, String memorySummary, String lastEscalatedRoleId,
+                           TurnListener listener, boolean streaming) {
+        TurnTrace trace = listener.trace();
+        TokenRelay relay = new TokenRelay(listener, streaming, trace);
         String userQuery = asrText != null ? asrText.trim() : "";
-        String ragQuery = buildRagQuery(userQuery, lastQuery, memorySummary);
+        String newTopicSummary = (topicSummary == null || topicSummary.isEmpty()) ? userQuery : topicSummary;
+
+        // 向量化或向量库熔断：不改写、不检索，直接无知识库生成
+        if (admissionController.isOpen(AdmissionController.EMBEDDING) || admissionController.isOpen(AdmissionController.VECTOR_STORE)) {
+            log.warn("RAG dependencies unavailable, answer without knowledge base");
+            trace.degrade(TurnTrace.DEGRADED_NO_RAG);
+            return answerWithoutRag(asrText, role, userQuery, newTopicSummary, memorySummary, listener, relay);
+        }
+
+        String ragQuery = trace.time(TurnTrace.REWRITE, () -> buildRagQuery(userQuery, lastQuery, memorySummary, trace));
         log.info("RAG query built: memory='{}' | last='{}' | user='{}' => rag='{}'",
                 memorySummary, lastQuery, userQuery, ragQuery);
 
         String roleIdForSearch = role.getId();
-        List<TextSegment> segs = ragSearchService.searchByRole(ragQuery, roleIdForSearch, 5, 0.75);
-        log.info("RAG search with role={} query='{}' segs count: {}", roleIdForSearch, ragQuery, (segs == null ? 0 : segs.size()));
+        List<TextSegment> segs = searchOrNull(ragQuery, roleIdForSearch, 5, trace);
+        if (segs == null) {
+            return answerWithoutRag(asrText, role, userQuery, newTopicSummary, memorySummary, listener, relay);
+        }
+        log.info("RAG search with role={} query='{}' segs count: {}", roleIdForSearch, ragQuery, segs.size());
 
-        if (segs == null || segs.isEmpty()) {
+        if (segs.isEmpty()) {
             // 回退改用 ragQuery（已拼接上文），并放宽阈值，提升短问句召回
-            String bestRoleId = ragSearchService.findBestRoleId(ragQuery, 3, 0.75);
+            String bestRoleId = findBestRoleIdOrNull(ragQuery, trace);
             if (bestRoleId == null) {
-                String decidePrompt =
-                        "用户说：" + asrText + "\n" +
-                        "请用当前角色口吻直接给出最终回复（最多2句）：\n" +
-                        "- 若是寒暄/闲聊/不依赖外部知识的问题，请自然简短回应；\n" +
-                        "- 若涉及事实/历史/专业且无可靠资料，请直接说‘我不清楚。’，不要编造，也不要解释理由。";
-                String aiText = generateWithMessages(role, null, decidePrompt, memorySummary);
-                return new Result(null, aiText, null, userQuery,
-                        (topicSummary == null || topicSummary.isEmpty()) ? userQuery : topicSummary,
-                        buildNewMemorySummary(memorySummary, userQuery, aiText),
-                        null);
+                return answerWithoutRag(asrText, role, userQuery, newTopicSummary, memorySummary, listener, relay);
             }
 
-            String bestRoleName = roleService.getById(bestRoleId).getName();
+            RoleConfig bestRole = roleService.getById(bestRoleId);
+            String bestRoleName = bestRole.getName();
             boolean repeated = lastEscalatedRoleId != null && lastEscalatedRoleId.equals(bestRoleId);
-            String transferSystem = getTransferSystemPrompt(role, bestRoleName);
-            String transferPrompt = repeated
-                    ? "生成一句过渡话：“我再去请" + bestRoleName + "确认一下。”要求自然口语、最多20字，可以根据规则润色。"
-                    : "生成一句过渡话：“我不太清楚，请" + bestRoleName + "来回答。”要求自然口语、最多20字，可以根据规则润色。";
-            String transferText = generateWithSystem(role, transferSystem, null, transferPrompt, memorySummary);
-
-            List<TextSegment> segs2 = ragSearchService.searchByRole(ragQuery, bestRoleId, 3, 0.75);
+            trace.path(TurnTrace.PATH_ESCALATED);
+            // 过渡话下发完成前，目标角色的回答 token 先缓存，保证事件顺序
+            relay.hold();
+            // 目标角色的检索 + 生成先行提交，与过渡话的生成/下发并行
+            CompletableFuture<String> answerFuture = CompletableFuture.supplyAsync(() -> {
+                List<TextSegment> segs2 = searchOrNull(ragQuery, bestRoleId, 3, trace);
+                try {
+                    log.info("Fallback role {} segs count: {}", bestRoleId, (segs2 == null ? 0 : segs2.size()));
+                } catch (Exception ignore) {}
+                String ctx = buildContext(segs2);
+                return generateAnswer(bestRole, ctx, "问题：" + ragQuery, memorySummary, relay);
+            }, conversationExecutor);
+
+            // 优先取预生成过渡话（含预合成音频），未就绪再实时生成
+            long transferStart = System.nanoTime();
+            String transferText;
+            byte[] transferAudio = null;
+            TransferPhraseBank.Phrase phrase = transferPhraseBank.next(role, bestRole, repeated);
+            if (phrase != null) {
+                transferText = phrase.getText();
+                transferAudio = phrase.getAudio();
+            } else {
+                String transferSystem = rolePromptCache.getTransferSystemPrompt(role, bestRole);
+                String transferPrompt = "生成一句过渡话：“" + TransferPhraseBank.templatePhrase(bestRoleName, repeated) +
+                        "”要求自然口语、最多20字，可以根据规则润色。";
+                try {
+                    transferText = generateWithSystem(role, transferSystem, null, transferPrompt, memorySummary);
+                } catch (Exception e) {
+                    log.warn("过渡话生成失败，使用模板句: {}", e.getMessage());
+                    transferText = TransferPhraseBank.templatePhrase(bestRoleName, repeated);
+                }
+            }
+            trace.record(TurnTrace.TRANSFER, System.nanoTime() - transferStart);
+            // 过渡话下发（含 TTS）由调用方在本线程完成，时间被目标角色的回答延迟覆盖
             try {
-                log.info("Fallback role {} segs count: {}", bestRoleId, (segs2 == null ? 0 : segs2.size()));
-            } catch (Exception ignore) {}
+                listener.onTransfer(transferText, transferAudio);
+            } catch (Exception e) {
+                log.warn("TurnListener.onTransfer failed: {}", e.getMessage());
+            }
+            relay.release();
 
-            String ctx = buildContext(segs2);
-            var answerRole = roleService.getById(bestRoleId);
-            String finalText = generateWithMessages(answerRole, ctx, "问题：" + ragQuery, memorySummary);
+            String finalText = join(answerFuture);
             // 跨角色回答也写入会话记忆摘要（按用户要求启用）
-            String updatedMemory = buildNewMemorySummary(memorySummary, userQuery, finalText);
-            return new Result(transferText, finalText, bestRoleId, userQuery,
-                    (topicSummary == null || topicSummary.isEmpty()) ? userQuery : topicSummary,
-                    updatedMemory,
-                    bestRoleId);
+            return finishTurn(Result.builder()
+                    .transferText(transferText)
+                    .transferAudio(transferAudio)
+                    .finalText(finalText)
+                    .aiRoleId(bestRoleId)
+                    .newLastQuery(userQuery)
+                    .newTopicSummary(newTopicSummary)
+                    .newEscalatedRoleId(bestRoleId), memorySummary, userQuery, listener, relay);
         }
 
+        trace.path(TurnTrace.PATH_DIRECT);
         String ctx = buildContext(segs);
-        String finalText = generateWithMessages(role, ctx, "问题：" + ragQuery, memorySummary);
-        return new Result(null, finalText, roleIdForSearch, userQuery,
-                (topicSummary == null || topicSummary.isEmpty()) ? userQuery : topicSummary,
-                buildNewMemorySummary(memorySummary, userQuery, finalText),
-                null);
+        String finalText = generateAnswer(role, ctx, "问题：" + ragQuery, memorySummary, relay);
+        return finishTurn(Result.builder()
+                .finalText(finalText)
+                .aiRoleId(roleIdForSearch)
+                .newLastQuery(userQuery)
+                .newTopicSummary(newTopicSummary), memorySummary, userQuery, listener, relay);
+    }
+
+    /**
+     * 知识库未命中或检索依赖不可用：由当前角色直接简短回复。
+     */
+    private Result answerWithoutRag(String asrText, RoleConfig role, String userQuery, String newTopicSummary, String memorySummary,
+                                    TurnListener listener, TokenRelay relay) {
+        relay.trace.path(TurnTrace.PATH_NO_RAG);
+        String decidePrompt =
+                "用户说：" + asrText + "\n" +
+                "请用当前角色口吻直接给出最终回复（最多2句）：\n" +
+                "- 若是寒暄/闲聊/不依赖外部知识的问题，请自然简短回应；\n" +
+                "- 若涉及事实/历史/专业且无可靠资料，请直接说‘我不清楚。’，不要编造，也不要解释理由。";
+        String aiText = generateAnswer(role, null, decidePrompt, memorySummary, relay);
+        return finishTurn(Result.builder()
+                .finalText(aiText)
+                .newLastQuery(userQuery)
+                .newTopicSummary(newTopicSummary), memorySummary, userQuery, listener, relay);
+    }
+
+    /**
+     * 按角色检索；向量化/向量库熔断或调用失败时返回 null 并标记降级，由调用方改走无知识库生成。
+     */
+    private List<TextSegment> searchOrNull(String query, String roleId, int maxResults, TurnTrace trace) {
+        try {
+            return ragSearchService.searchByRole(query, roleId, maxResults, 0.75, trace);
+        } catch (RuntimeException e) {
+            log.warn("RAG search failed for role={}, answer without knowledge base: {}", roleId, e.toString());
+            trace.degrade(TurnTrace.DEGRADED_NO_RAG);
+            return null;
+        }
+    }
+
+    private String findBestRoleIdOrNull(String query, TurnTrace trace) {
+        try {
+            return ragSearchService.findBestRoleId(query, 3, 0.75, trace);
+        } catch (RuntimeException e) {
+            log.warn("RAG best-role search failed, answer without knowledge base: {}", e.toString());
+            trace.degrade(TurnTrace.DEGRADED_NO_RAG);
+            return null;
+        }
+    }
+
+    /**
+     * 回答已确定：记忆摘要在后台生成，同时回调 onAnswer（调用方可立即下发文本/TTS），最后补齐 Result。
+     */
+    private Result finishTurn(Result.ResultBuilder builder, String memorySummary, String userQuery, TurnListener listener, TokenRelay relay) {
+        Result partial = builder.build();
+        String finalText = partial.getFinalText();
+        // 回答超时用了兜底话术：不把这句套话写进记忆，沿用原摘要
+        CompletableFuture<String> summaryFuture;
+        if (relay.isFallback()) {
+            summaryFuture = CompletableFuture.completedFuture(memorySummary);
+        } else {
+            // LLM 变慢时不再追加摘要调用，直接用拼接摘要
+            boolean llmSummary = !admissionController.isDegraded(AdmissionController.LLM);
+            if (!llmSummary) relay.trace.degrade(TurnTrace.DEGRADED_SKIP_SUMMARY);
+            summaryFuture = CompletableFuture.supplyAsync(
+                    () -> relay.trace.time(TurnTrace.SUMMARY, () -> buildNewMemorySummary(memorySummary, userQuery, finalText, llmSummary)),
+                    conversationExecutor);
+        }
+        try {
+            listener.onAnswer(finalText, partial.getAiRoleId());
+        } catch (Exception e) {
+            log.warn("TurnListener.onAnswer failed: {}", e.getMessage());
+        }
+        Result result = builder
+                .newMemorySummary(join(summaryFuture))
+                .firstTokenLatencyMs(relay.firstTokenLatencyMs())
+                .totalLatencyMs(relay.elapsedMs())
+                .build();
+        log.info("Turn latency: firstTokenMs={} totalMs={} streaming={}", result.getFirstTokenLatencyMs(), result.getTotalLatencyMs(), relay.streaming);
+        try {
+            listener.onComplete(result);
+        } catch (Exception e) {
+            log.warn("TurnListener.onComplete failed: {}", e.getMessage());
+        }
+        return result;
     }
 
-    private String buildRagQuery(String userQuery, String lastQuery, String memorySummary) {
+    private String buildRagQuery(String userQuery, String lastQuery, String memorySummary, TurnTrace trace) {
+        // 本地判定是否需要改写：首轮或自包含问句直接用原问，省一次 LLM 调用
+        RewriteNeedClassifier.Decision decision = null;
+        boolean skip = false;
+        if (!"off".equalsIgnoreCase(rewriteGateMode)) {
+            decision = rewriteNeedClassifier.classify(userQuery, lastQuery, memorySummary);
+            skip = rewriteNeedClassifier.canSkip(decision);
+            meterRegistry.counter("rag.rewrite.gate", "mode", rewriteGateMode, "decision", skip ? "skip" : "rewrite").increment();
+            if (skip && "enforce".equalsIgnoreCase(rewriteGateMode)) {
+                log.info("RAG query rewrite skipped by gate: '{}' ({})", userQuery, decision);
+                return userQuery;
+            }
+        }
+
+        // LLM 变慢时跳过改写，直接走拼接策略
+        if (admissionController.isDegraded(AdmissionController.LLM)) {
+            log.info("RAG query rewrite skipped, LLM degraded: '{}'", userQuery);
+            trace.degrade(TurnTrace.DEGRADED_SKIP_REWRITE);
+            return concatQuery(userQuery, lastQuery, memorySummary);
+        }
+
         // 先尝试用 LLM 将本轮话语在上下文下改写为“自包含、明确”的检索问题
         try {
             String rewritten = rewriteQueryWithLlm(userQuery, lastQuery, memorySummary);
             if (rewritten != null && !rewritten.isEmpty()) {
                 try { log.info("RAG query rewritten by LLM: '{}' => '{}'", userQuery, rewritten); } catch (Exception ignore) {}
+                if ("shadow".equalsIgnoreCase(rewriteGateMode) && decision != null) {
+                    logShadowDecision(userQuery, rewritten, decision, skip);
+                }
                 return rewritten;
             }
         } catch (Exception e) {
             try { log.warn("LLM 查询改写失败，回退到拼接策略: {}", e.getMessage()); } catch (Exception ignore) {}
         }
+        return concatQuery(userQuery, lastQuery, memorySummary);
+    }
 
+    private String concatQuery(String userQuery, String lastQuery, String memorySummary) {
         // 回退策略：使用记忆摘要（尾部）或上一问 拼接 当前问
         String mem = memorySummary != null ? memorySummary.trim() : "";
         if (!mem.isEmpty()) {
@@ -126,6 +308,21 @@ public class ConversationOrchestrator {
         return userQuery;
     }
 
+    /**
+     * shadow 模式：记录判定器结论与 LLM 改写结果的对照。
+     * missed = 判定可跳过但 LLM 实际改动了问句（跳过可能损害检索），需重点关注。
+     */
+    private void logShadowDecision(String userQuery, String rewritten, RewriteNeedClassifier.Decision decision, boolean skip) {
+        boolean changed = !normalizeForCompare(userQuery).equals(normalizeForCompare(rewritten));
+        String outcome = skip ? (changed ? "missed" : "saved") : (changed ? "agree" : "unneeded");
+        meterRegistry.counter("rag.rewrite.gate.shadow", "outcome", outcome).increment();
+        log.info("RAG rewrite gate shadow: outcome={} decision={} user='{}' llm='{}'", outcome, decision, userQuery, rewritten);
+    }
+
+    private static String normalizeForCompare(String s) {
+        return s == null ? "" : s.replaceAll("[\\p{P}\\p{S}\\s　]+", "");
+    }
+
     /**
      * 查询改写：结合记忆与上一轮问题，将本轮用户话语改写成自包含、明确的中文检索问题。
      * 约束：
@@ -146,10 +343,10 @@ public class ConversationOrchestrator {
         messages.add(new UserMessage(block.toString()));
 
         if (debugPrompt) {
-            try { log.info("RAG Rewrite Request:\n{}", formatForLog(messages)); } catch (Exception ignore) {}
+            try { log.info("RAG Rewrite Request:\n{}", formatForLog(messages, debugMaxLogLen)); } catch (Exception ignore) {}
         }
 
-        var response = qwenChatModel.chat(messages);
+        var response = modelRouter.chat(LlmCallType.REWRITE, messages);
         String text = response == null || response.aiMessage() == null ? null : response.aiMessage().text();
         if (text == null) return null;
         String out = text.trim();
@@ -160,6 +357,16 @@ public class ConversationOrchestrator {
         return out;
     }
 
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof RuntimeException re) throw re;
+            throw e;
+        }
+    }
+
     private String tail(String s, int n) {
         if (s == null) return null;
         int len = s.length();
@@ -167,7 +374,7 @@ public class ConversationOrchestrator {
         return s.substring(len - n);
     }
 
-    private String buildContext(List<TextSegment> segs) {
+    static String buildContext(List<TextSegment> segs) {
         if (segs == null || segs.isEmpty()) return "";
         StringBuilder sb = new StringBuilder();
         for (int i = 0; i < segs.size(); i++) {
@@ -176,29 +383,112 @@ public class ConversationOrchestrator {
         return sb.toString();
     }
 
-    private String generateWithMessages(RoleConfig role, String ctxOrNull, String userPrompt, String memorySummary) {
-        List<dev.langchain4j.data.message.ChatMessage> messages = new ArrayList<>();
-        String systemPrompt = getSystemPrompt(role);
-        messages.add(new SystemMessage(systemPrompt));
+    /**
+     * 生成最终回答：流式模式且存在 StreamingChatModel 时逐 token 回调，否则阻塞生成后整段回调。
+     */
+    private String generateAnswer(RoleConfig role, String ctxOrNull, String userPrompt, String memorySummary, TokenRelay relay) {
+        return relay.trace.time(TurnTrace.GENERATE, () -> doGenerateAnswer(role, ctxOrNull, userPrompt, memorySummary, relay));
+    }
 
-        // 组合式用户块：few-shot + retrieved_context + user_question
-        StringBuilder block = new StringBuilder();
-        String roleName = role != null ? role.getName() : "AI";
-        // few-shot
-        block.append("<few_shot_examples>\n");
-        if (role != null && role.getExamples() != null && !role.getExamples().isEmpty()) {
-            int k = 0;
-            for (RoleConfig.Example ex : role.getExamples()) {
-                if (ex == null) continue;
-                String u = ex.getUser();
-                String a = ex.getAi();
-                if (u == null || u.isEmpty() || a == null || a.isEmpty()) continue;
-                block.append("用户: ").append(u).append("\n");
-                block.append(roleName).append(": ").append(a).append("\n\n");
-                if (++k >= 5) break;
+    private String doGenerateAnswer(RoleConfig role, String ctxOrNull, String userPrompt, String memorySummary, TokenRelay relay) {
+        List<dev.langchain4j.data.message.ChatMessage> messages = buildAnswerMessages(role, ctxOrNull, userPrompt, memorySummary);
+        // 流式与回退的阻塞调用共用一个截止时间：回退只拿剩余时间，整轮回答不超过 answerDeadlineMs
+        long deadlineNs = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(answerDeadlineMs);
+        try {
+            if (relay.streaming) {
+                String streamed = streamAnswer(messages, deadlineNs, relay);
+                if (streamed != null) return streamed;
+            }
+            String text = callAnswer(messages, deadlineNs);
+            relay.accept(text);
+            return text;
+        } catch (LlmTimeoutException e) {
+            // 回答超过截止时间：返回兜底话术，避免整轮语音卡住
+            log.warn("Answer generation deadline exceeded, use fallback line: {}", e.getMessage());
+            relay.markFallback();
+            relay.accept(answerFallback);
+            return answerFallback;
+        }
+    }
+
+    /**
+     * 流式生成（经 ModelRouter，占用回答档位的并发许可并计入 llm 熔断）；未配置流式模型、或在首个 token 之前失败/超时
+     * 返回 null 以便在剩余时间内回退阻塞调用；已输出部分 token 时返回已生成部分。
+     * 熔断时抛出 {@link com.maverick.maverickchatbot.admission.AdmissionRejectedException}，不回退阻塞调用。
+     */
+    private String streamAnswer(List<dev.langchain4j.data.message.ChatMessage> messages, long deadlineNs, TokenRelay relay) {
+        StringBuilder partial = new StringBuilder();
+        // partial 与 cut 都在 relay 锁内读写：放弃等待后到达的 token 既不转发也不计入已生成部分
+        boolean[] cut = {false};
+        ModelRouter.Stream stream = modelRouter.stream(LlmCallType.ANSWER, messages, deadlineNs, token -> {
+            relay.lock.lock();
+            try {
+                if (cut[0]) return;
+                partial.append(token);
+                relay.accept(token);
+            } finally {
+                relay.lock.unlock();
+            }
+        });
+        if (stream == null) return null;
+        try {
+            ChatResponse response = stream.result().get(Math.max(deadlineNs - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+            String text = response != null && response.aiMessage() != null ? response.aiMessage().text() : null;
+            if (text != null) return text;
+            relay.lock.lock();
+            try {
+                cut[0] = true;
+                return partial.toString();
+            } finally {
+                relay.lock.unlock();
             }
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) Thread.currentThread().interrupt();
+            stream.abandon();
+            relay.lock.lock();
+            try {
+                cut[0] = true;
+                if (!relay.hasTokens()) {
+                    log.warn("Streaming answer failed before first token, fallback to blocking: {}", e.toString());
+                    return null;
+                }
+                log.warn("Streaming answer interrupted after {} chars: {}", partial.length(), e.toString());
+                return partial.toString();
+            } finally {
+                relay.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 阻塞生成，截止时间为剩余预算；预算已耗尽时不再发起调用。
+     * @throws LlmTimeoutException 超过截止时间
+     */
+    private String callAnswer(List<dev.langchain4j.data.message.ChatMessage> messages, long deadlineNs) {
+        long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadlineNs - System.nanoTime());
+        if (remainingMs <= 0) {
+            throw new LlmTimeoutException(LlmCallType.ANSWER, "answer deadline " + answerDeadlineMs + "ms spent before blocking fallback");
+        }
+        return modelRouter.chat(LlmCallType.ANSWER, messages, remainingMs).aiMessage().text();
+    }
+
+    private List<dev.langchain4j.data.message.ChatMessage> buildAnswerMessages(RoleConfig role, String ctxOrNull, String userPrompt, String memorySummary) {
+        List<dev.langchain4j.data.message.ChatMessage> messages = new ArrayList<>();
+        // 静态前缀：预编译的 system（提示词 + few-shot），同角色跨轮次逐字节一致
+        messages.add(rolePromptCache.get(role).getSystemMessage());
+        messages.add(new UserMessage(buildAnswerUserBlock(ctxOrNull, userPrompt, memorySummary)));
+
+        if (debugPrompt) {
+            try { log.info("LLM Request Messages:\n{}", formatForLog(messages, debugMaxLogLen)); } catch (Exception ignore) {}
         }
-        block.append("</few_shot_examples>\n\n");
+        return messages;
+    }
+
+    /**
+     * 易变内容统一放在末尾的用户块：memory + retrieved_context + user_question。
+     */
+    static String buildAnswerUserBlock(String ctxOrNull, String userPrompt, String memorySummary) {
+        StringBuilder block = new StringBuilder();
 
         // injected conversation memory
         if (memorySummary != null && !memorySummary.isEmpty()) {
@@ -218,15 +508,7 @@ public class ConversationOrchestrator {
         block.append("<user_question>\n");
         block.append(userPrompt).append("\n");
         block.append("</user_question>\n");
-
-        messages.add(new UserMessage(block.toString()));
-
-        if (debugPrompt) {
-            try { log.info("LLM Request Messages:\n{}", formatForLog(messages)); } catch (Exception ignore) {}
-        }
-
-        var response = qwenChatModel.chat(messages);
-        return response.aiMessage().text();
+        return block.toString();
     }
 
     private String generateWithSystem(RoleConfig role, String systemText, String ctxOrNull, String userPrompt, String memorySummary) {
@@ -242,54 +524,20 @@ public class ConversationOrchestrator {
         }
         messages.add(new UserMessage(block.toString()));
         if (debugPrompt) {
-            try { log.info("LLM System-Driven Request Messages:\n{}", formatForLog(messages)); } catch (Exception ignore) {}
+            try { log.info("LLM System-Driven Request Messages:\n{}", formatForLog(messages, debugMaxLogLen)); } catch (Exception ignore) {}
         }
-        var response = qwenChatModel.chat(messages);
+        var response = modelRouter.chat(LlmCallType.TRANSFER, messages);
         return response.aiMessage().text();
     }
 
-    @NotNull
-    private String getSystemPrompt(RoleConfig role) {
-        String tpl = (systemPromptTemplate != null && !systemPromptTemplate.isEmpty())
-                ? systemPromptTemplate
-                : "I want you to act like {{character}} from {{series}}.\n" +
-                  "You are now cosplay {{character}}.\n" +
-                  "If others‘ questions are related with the novel, please try to reuse the original lines from the novel.\n" +
-                  "I want you to respond and answer like {{character}} using the tone, manner and vocabulary {{character}} would use.\n" +
-                  "You must know all of the knowledge of {{character}}.\n" +
-                  "Do not output meta statements like ‘明白了/我会按照示例/你想问我什么/让我来/接下来’. Never acknowledge instructions or examples; just respond directly in character with the final answer.";
-        String character = role != null ? role.getName() : "";
-        String series = role != null && role.getSeries() != null ? role.getSeries() : "";
-        String persona = role != null && role.getPersonaPrompt() != null ? role.getPersonaPrompt() : "";
-        return tpl.replace("{{character}}", character)
-                  .replace("{{series}}", series)
-                  .replace("{{persona}}", persona);
-    }
-
-    private String getTransferSystemPrompt(RoleConfig role, String bestRoleName) {
-        return transferSystemPromptTemplate.replace("{{character}}", role.getName())
-                                            .replace("{{series}}", role.getSeries())
-                                            .replace("{{persona}}", role.getPersonaPrompt())
-                                            .replace("{{best_role_name}}", bestRoleName);
-    }
-
-    private String readResource(String path) {
-        try (InputStream in = new ClassPathResource(path).getInputStream()) {
-            byte[] bytes = in.readAllBytes();
-            return new String(bytes, StandardCharsets.UTF_8);
-        } catch (Exception e) {
-            return null;
-        }
-    }
-
-    private String formatForLog(List<dev.langchain4j.data.message.ChatMessage> messages) {
+    static String formatForLog(List<dev.langchain4j.data.message.ChatMessage> messages, int maxLen) {
         StringBuilder sb = new StringBuilder();
         for (int i = 0; i < messages.size(); i++) {
             var m = messages.get(i);
             String role = (m instanceof SystemMessage) ? "system" : (m instanceof UserMessage) ? "user" : m.type().name();
             String text = m.toString();
-            if (debugMaxLogLen > 0 && text != null && text.length() > debugMaxLogLen) {
-                text = text.substring(0, debugMaxLogLen) + "...<truncated>";
+            if (maxLen > 0 && text != null && text.length() > maxLen) {
+                text = text.substring(0, maxLen) + "...<truncated>";
             }
             sb.append("[").append(i).append("] ").append(role).append(":\n").append(text == null ? "" : text).append("\n\n");
         }
@@ -320,10 +568,10 @@ public class ConversationOrchestrator {
             messages.add(new UserMessage(block.toString()));
 
             if (debugPrompt) {
-                try { log.info("Memory Summarize Request:\n{}", formatForLog(messages)); } catch (Exception ignore) {}
+                try { log.info("Memory Summarize Request:\n{}", formatForLog(messages, debugMaxLogLen)); } catch (Exception ignore) {}
             }
 
-            var response = qwenChatModel.chat(messages);
+            var response = modelRouter.chat(LlmCallType.SUMMARY, messages);
             String text = response == null || response.aiMessage() == null ? null : response.aiMessage().text();
             return text == null ? null : text.trim();
         } catch (Exception e) {
@@ -333,20 +581,151 @@ public class ConversationOrchestrator {
     }
 
     @Data
+    @Builder
     @AllArgsConstructor
     public static class Result {
         private String transferText;
+        // 过渡话的预合成音频（来自 TransferPhraseBank），为空时由调用方现场合成
+        private byte[] transferAudio;
         private String finalText;
         private String aiRoleId;
         private String newLastQuery;
         private String newTopicSummary;
         private String newMemorySummary;
         private String newEscalatedRoleId;
+        // 本轮开始到回答首个 token 的耗时（阻塞生成时为整段回答就绪的时间）
+        private Long firstTokenLatencyMs;
+        // 本轮开始到 Result 就绪（含记忆摘要）的耗时
+        private Long totalLatencyMs;
+
+        /**
+         * 把本轮的上下文更新写回会话状态（语音与文本入口共用）。
+         */
+        public void applyTo(ConversationState state) {
+            state.setLastQuery(newLastQuery);
+            // 取消对 topicSummary 的维护
+            if (newMemorySummary != null && !newMemorySummary.isEmpty()) {
+                state.setMemorySummary(newMemorySummary);
+            }
+            if (newEscalatedRoleId != null) {
+                state.setLastEscalatedRoleId(newEscalatedRoleId);
+            }
+        }
+    }
+
+    /**
+     * 回答 token 的转发器：记录首 token 时间；hold 期间缓存 token，release 时按序补发。
+     * 所有转发在同一把锁内进行，保证调用方收到的回调串行且有序。
+     * 回调里会阻塞写 SSE/WebSocket，而回合跑在虚拟线程上，故用 ReentrantLock 而非 synchronized，避免持锁阻塞时钉住载体线程。
+     */
+    private static final class TokenRelay {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final TurnListener listener;
+        private final boolean streaming;
+        private final TurnTrace trace;
+        private final long startNs = System.nanoTime();
+        private long firstTokenNs = -1;
+        private List<String> held;
+        // 本轮回答是兜底话术（生成超时）
+        private boolean fallback;
+
+        TokenRelay(TurnListener listener, boolean streaming, TurnTrace trace) {
+            this.listener = listener;
+            this.streaming = streaming;
+            this.trace = trace;
+        }
+
+        void hold() {
+            lock.lock();
+            try {
+                held = new ArrayList<>();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void release() {
+            lock.lock();
+            try {
+                if (held == null) return;
+                List<String> pending = held;
+                held = null;
+                pending.forEach(this::emit);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void accept(String token) {
+            if (token == null || token.isEmpty()) return;
+            lock.lock();
+            try {
+                if (firstTokenNs < 0) {
+                    firstTokenNs = System.nanoTime();
+                    trace.mark(TurnTrace.FIRST_TOKEN);
+                }
+                if (held != null) {
+                    held.add(token);
+                } else {
+                    emit(token);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void markFallback() {
+            lock.lock();
+            try {
+                fallback = true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        boolean isFallback() {
+            lock.lock();
+            try {
+                return fallback;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        boolean hasTokens() {
+            lock.lock();
+            try {
+                return firstTokenNs >= 0;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        Long firstTokenLatencyMs() {
+            lock.lock();
+            try {
+                return firstTokenNs < 0 ? null : (firstTokenNs - startNs) / 1_000_000;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        long elapsedMs() {
+            return (System.nanoTime() - startNs) / 1_000_000;
+        }
+
+        private void emit(String token) {
+            try {
+                listener.onToken(token);
+            } catch (Exception e) {
+                log.warn("TurnListener.onToken failed: {}", e.getMessage());
+            }
+        }
     }
 
-    private String buildNewMemorySummary(String oldSummary, String userQuery, String aiText) {
+    private String buildNewMemorySummary(String oldSummary, String userQuery, String aiText, boolean useLlm) {
         try {
-            String summary = summarizeMemoryWithLlm(oldSummary, userQuery, aiText);
+            String summary = useLlm ? summarizeMemoryWithLlm(oldSummary, userQuery, aiText) : null;
             if (summary != null && !summary.isEmpty()) {
                 return summary;
             }
@@ -6,8 +6,10 @@ import dev.langchain4j.rag.content.retriever.ContentRetriever;
 import dev.langchain4j.rag.content.retriever.EmbeddingStoreContentRetriever;
 import dev.langchain4j.store.embedding.EmbeddingStore;
 import dev.langchain4j.store.embedding.chroma.ChromaEmbeddingStore;
+import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
 import jakarta.annotation.Resource;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -41,10 +43,20 @@ public class RagConfig {
     }
 
     @Bean
+    @ConditionalOnProperty(name = "rag.store", havingValue = "chroma", matchIfMissing = true)
     public EmbeddingStore<TextSegment> embeddingStore() {
         return ChromaEmbeddingStore.builder()
                 .baseUrl(chromaBaseUrl)
                 .collectionName(chromaCollection)
                 .build();
     }
+
+    /**
+     * 进程内向量库，用于压测/本地联调，不依赖 Chroma；重启即清空，需自行入库。
+     */
+    @Bean("embeddingStore")
+    @ConditionalOnProperty(name = "rag.store", havingValue = "memory")
+    public EmbeddingStore<TextSegment> inMemoryEmbeddingStore() {
+        return new InMemoryEmbeddingStore<>();
+    }
 }
@@ -1,10 +1,13 @@
 package com.maverick.maverickchatbot.ai.rag;
 
+import com.maverick.maverickchatbot.admission.AdmissionController;
+import com.maverick.maverickchatbot.metrics.TurnTrace;
 import dev.langchain4j.data.embedding.Embedding;
 import dev.langchain4j.data.segment.TextSegment;
 import dev.langchain4j.model.embedding.EmbeddingModel;
 import dev.langchain4j.store.embedding.EmbeddingMatch;
 import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
 import dev.langchain4j.store.embedding.EmbeddingStore;
 import jakarta.annotation.Resource;
 import lombok.RequiredArgsConstructor;
@@ -23,14 +26,18 @@ public class RagSearchService {
     @Resource
     private EmbeddingStore<TextSegment> embeddingStore;
 
+    @Resource
+    private AdmissionController admissionController;
+
     public List<TextSegment> searchByRole(String query, String roleId, int maxResults, double minScore) {
-        Embedding q = qwenEmbeddingModel.embed(normalize(query)).content();
-        EmbeddingSearchRequest req = EmbeddingSearchRequest.builder()
-                .queryEmbedding(q)
-                .maxResults(maxResults)
-                .minScore(minScore)
-                .build();
-        var res = embeddingStore.search(req);
+        return searchByRole(query, roleId, maxResults, minScore, TurnTrace.NOOP);
+    }
+
+    /**
+     * 同 {@link #searchByRole(String, String, int, double)}，向量化与向量检索分别计入 trace。
+     */
+    public List<TextSegment> searchByRole(String query, String roleId, int maxResults, double minScore, TurnTrace trace) {
+        var res = search(query, maxResults, minScore, trace);
 
         List<TextSegment> out = new ArrayList<>();
         if (res == null || res.matches() == null) return out;
@@ -49,13 +56,11 @@ public class RagSearchService {
      * 在全库中检索，返回最相关的 role_id（取第一条匹配中携带的 role_id）。
      */
     public String findBestRoleId(String query, int maxResults, double minScore) {
-        Embedding q = qwenEmbeddingModel.embed(normalize(query)).content();
-        EmbeddingSearchRequest req = EmbeddingSearchRequest.builder()
-                .queryEmbedding(q)
-                .maxResults(maxResults)
-                .minScore(minScore)
-                .build();
-        var res = embeddingStore.search(req);
+        return findBestRoleId(query, maxResults, minScore, TurnTrace.NOOP);
+    }
+
+    public String findBestRoleId(String query, int maxResults, double minScore, TurnTrace trace) {
+        var res = search(query, maxResults, minScore, trace);
         if (res == null || res.matches() == null || res.matches().isEmpty()) return null;
         for (EmbeddingMatch<TextSegment> m : res.matches()) {
             TextSegment seg = m.embedded();
@@ -66,7 +71,19 @@ public class RagSearchService {
         return null;
     }
 
-    private String normalize(String s) {
+    private EmbeddingSearchResult<TextSegment> search(String query, int maxResults, double minScore, TurnTrace trace) {
+        Embedding q = trace.time(TurnTrace.EMBED, () -> admissionController.call(AdmissionController.EMBEDDING,
+                () -> qwenEmbeddingModel.embed(normalize(query)).content()));
+        EmbeddingSearchRequest req = EmbeddingSearchRequest.builder()
+                .queryEmbedding(q)
+                .maxResults(maxResults)
+                .minScore(minScore)
+                .build();
+        return trace.time(TurnTrace.VECTOR_SEARCH, () -> admissionController.call(AdmissionController.VECTOR_STORE,
+                () -> embeddingStore.search(req)));
+    }
+
+    static String normalize(String s) {
         if (s == null) return "";
         // 去除常见标点/空白，统一空格，降低噪音（不做小写化，中文无影响）
         String t = s.replaceAll("[\\u3000\\s]+", " ")
@@ -0,0 +1,72 @@
+package com.maverick.maverickchatbot.ai.rag;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 本地判定本轮话语是否需要 LLM 查询改写：
+ * 无上下文（首轮）、或问句较长且没有指代/省略时，改写帮不上忙，可直接跳过一次 LLM 调用。
+ * 只看代词/指示词词表、省略句式、记忆是否为空和问句长度，纯 CPU、无外部依赖。
+ */
+@Component
+public class RewriteNeedClassifier {
+
+    // 指代：人称代词、指示词、回指短语；排除“其他/其实/其中/吉他/他人”等非指代用法
+    private static final Pattern ANAPHOR = Pattern.compile(
+            "(他们|她们|它们|(?<![其吉])他(?!人)|她|它|这个|那个|这些|那些|这里|那里|这儿|那儿|这位|那位|这件|那件|这本|那本|这次|那次|此事|此人|该人|前者|后者|上述|刚才|刚刚|之前|前面说|你说的)");
+
+    // 省略/承接：以承接词开头，或整句只是追问
+    private static final Pattern ELLIPSIS = Pattern.compile(
+            "^(那|那么|还有|然后|所以|而且|另外|再|也|并且|以及)|^(为什么|为啥|怎么样|怎么说|然后呢|后来呢|结果呢|真的吗|是吗|比如|例如|还有吗|详细说说|具体点)[？?！!。，,]*$");
+
+    private static final Pattern PUNCT_OR_SPACE = Pattern.compile("[\\p{P}\\p{S}\\s　]+");
+
+    private final double threshold;
+
+    public RewriteNeedClassifier(@Value("${rag.rewrite.gate.threshold:0.8}") double threshold) {
+        this.threshold = threshold;
+    }
+
+    public Decision classify(String userQuery, String lastQuery, String memorySummary) {
+        String q = userQuery == null ? "" : userQuery.trim();
+        if (q.isEmpty()) return new Decision(false, 1.0, "empty");
+        boolean hasContext = (memorySummary != null && !memorySummary.isBlank()) || (lastQuery != null && !lastQuery.isBlank());
+        if (!hasContext) return new Decision(false, 1.0, "no-context");
+
+        Matcher m = ANAPHOR.matcher(q);
+        if (m.find()) return new Decision(true, 0.9, "anaphor:" + m.group(1));
+        if (ELLIPSIS.matcher(q).find()) return new Decision(true, 0.85, "ellipsis");
+
+        String bare = PUNCT_OR_SPACE.matcher(q).replaceAll("");
+        int len = bare.codePointCount(0, bare.length());
+        if (len <= 4) return new Decision(true, 0.7, "short");
+        if (len <= 8 && (q.endsWith("呢") || q.endsWith("呢？") || q.endsWith("呢?"))) {
+            return new Decision(true, 0.7, "short-question");
+        }
+        // 越长越可能自包含：5 字约 0.64，12 字以上 0.95
+        double confidence = len >= 12 ? 0.95 : 0.6 + (len - 4) * 0.04;
+        return new Decision(false, confidence, "self-contained");
+    }
+
+    /**
+     * 判定为“无需改写”且置信度达到阈值时才允许跳过。
+     */
+    public boolean canSkip(Decision decision) {
+        return !decision.isRewriteNeeded() && decision.getConfidence() >= threshold;
+    }
+
+    @Getter
+    @ToString
+    @AllArgsConstructor
+    public static class Decision {
+        private final boolean rewriteNeeded;
+        private final double confidence;
+        private final String reason;
+    }
+}
@@ -0,0 +1,172 @@
+package com.maverick.maverickchatbot.ai.rag;
+
+import com.maverick.maverickchatbot.ai.roles.RoleConfig;
+import com.maverick.maverickchatbot.ai.roles.RoleService;
+import com.maverick.maverickchatbot.ai.roles.RolesReloadedEvent;
+import dev.langchain4j.data.message.SystemMessage;
+import jakarta.annotation.PostConstruct;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 角色提示词预编译缓存。
+ * 角色加载后即把系统提示词（模板替换 + few-shot 块）渲染成固定字符串，
+ * 保证同一角色每轮请求的前缀逐字节一致，便于服务端前缀缓存命中；
+ * 运行时只做拼接，不再重复 replace 与 few-shot 组装。
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RolePromptCache {
+
+    private static final String DEFAULT_SYSTEM_TEMPLATE =
+            "I want you to act like {{character}} from {{series}}.\n" +
+            "You are now cosplay {{character}}.\n" +
+            "If others‘ questions are related with the novel, please try to reuse the original lines from the novel.\n" +
+            "I want you to respond and answer like {{character}} using the tone, manner and vocabulary {{character}} would use.\n" +
+            "You must know all of the knowledge of {{character}}.\n" +
+            "Do not output meta statements like ‘明白了/我会按照示例/你想问我什么/让我来/接下来’. Never acknowledge instructions or examples; just respond directly in character with the final answer.";
+
+    private static final int MAX_SHOTS = 5;
+
+    private final RoleService roleService;
+
+    private String systemPromptTemplate;
+    private String transferSystemPromptTemplate;
+
+    // roleId -> 预编译结果；记录编译时的 RoleConfig 引用，引用变化即视为失效
+    private final Map<String, RolePrompt> prompts = new ConcurrentHashMap<>();
+    // roleId + "->" + targetRoleId -> 过渡话系统提示词
+    private final Map<String, String> transferPrompts = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        String tpl = readResource("system-prompt.txt");
+        this.systemPromptTemplate = (tpl != null && !tpl.isEmpty()) ? tpl : DEFAULT_SYSTEM_TEMPLATE;
+        this.transferSystemPromptTemplate = readResource("transfer-system-prompt.txt");
+        precompile(roleService.listRoles());
+    }
+
+    /**
+     * 角色热加载后整体失效并按新角色表重新预编译，不保留已删除角色的条目。
+     */
+    @EventListener
+    public void onRolesReloaded(RolesReloadedEvent event) {
+        invalidateAll();
+        precompile(event.roles());
+    }
+
+    /**
+     * 取角色的预编译提示词；role 为空时返回通用模板渲染结果（不缓存）。
+     */
+    public RolePrompt get(RoleConfig role) {
+        if (role == null || role.getId() == null) return compile(role);
+        RolePrompt cached = prompts.get(role.getId());
+        if (cached != null && cached.getRole() == role) return cached;
+        RolePrompt compiled = compile(role);
+        prompts.put(role.getId(), compiled);
+        transferPrompts.keySet().removeIf(k -> k.startsWith(role.getId() + "->") || k.endsWith("->" + role.getId()));
+        return compiled;
+    }
+
+    /**
+     * 过渡话系统提示词：按（当前角色, 目标角色）缓存。
+     */
+    public String getTransferSystemPrompt(RoleConfig role, RoleConfig target) {
+        // 先走 get(role)，保证角色变化时顺带清理过渡话缓存
+        get(role);
+        String key = role.getId() + "->" + target.getId();
+        return transferPrompts.computeIfAbsent(key, k -> render(transferSystemPromptTemplate, role)
+                .replace("{{best_role_name}}", nvl(target.getName())));
+    }
+
+    public void invalidateAll() {
+        prompts.clear();
+        transferPrompts.clear();
+    }
+
+    private void precompile(List<RoleConfig> roles) {
+        try {
+            for (RoleConfig role : roles) {
+                get(role);
+            }
+            log.info("Role prompts precompiled: {}", prompts.keySet());
+        } catch (Exception e) {
+            log.warn("Precompile role prompts failed: {}", e.getMessage());
+        }
+    }
+
+    private RolePrompt compile(RoleConfig role) {
+        String systemPrompt = render(systemPromptTemplate, role);
+        String fewShot = buildFewShotBlock(role);
+        // 静态前缀：系统提示词 + few-shot，整体作为 system 消息，跨轮次保持不变
+        String systemText = systemPrompt + "\n\n" + fewShot;
+        return new RolePrompt(role, new SystemMessage(systemText), fewShot);
+    }
+
+    private String render(String tpl, RoleConfig role) {
+        if (tpl == null) return "";
+        String character = role != null ? nvl(role.getName()) : "";
+        String series = role != null ? nvl(role.getSeries()) : "";
+        String persona = role != null ? nvl(role.getPersonaPrompt()) : "";
+        return tpl.replace("{{character}}", character)
+                  .replace("{{series}}", series)
+                  .replace("{{persona}}", persona);
+    }
+
+    private String buildFewShotBlock(RoleConfig role) {
+        StringBuilder block = new StringBuilder();
+        String roleName = role != null ? role.getName() : "AI";
+        block.append("<few_shot_examples>\n");
+        if (role != null && role.getExamples() != null && !role.getExamples().isEmpty()) {
+            int k = 0;
+            for (RoleConfig.Example ex : role.getExamples()) {
+                if (ex == null) continue;
+                String u = ex.getUser();
+                String a = ex.getAi();
+                if (u == null || u.isEmpty() || a == null || a.isEmpty()) continue;
+                block.append("用户: ").append(u).append("\n");
+                block.append(roleName).append(": ").append(a).append("\n\n");
+                if (++k >= MAX_SHOTS) break;
+            }
+        }
+        block.append("</few_shot_examples>\n");
+        return block.toString();
+    }
+
+    private static String nvl(String s) {
+        return s == null ? "" : s;
+    }
+
+    private String readResource(String path) {
+        try (InputStream in = new ClassPathResource(path).getInputStream()) {
+            byte[] bytes = in.readAllBytes();
+            return new String(bytes, StandardCharsets.UTF_8);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * 单个角色的预编译产物。
+     */
+    @Getter
+    @AllArgsConstructor(access = AccessLevel.PACKAGE)
+    public static class RolePrompt {
+        private final RoleConfig role;
+        private final SystemMessage systemMessage;
+        private final String fewShotBlock;
+    }
+}
@@ -0,0 +1,202 @@
+package com.maverick.maverickchatbot.ai.rag;
+
+import com.maverick.maverickchatbot.ai.llm.LlmCallType;
+import com.maverick.maverickchatbot.ai.llm.ModelRouter;
+import com.maverick.maverickchatbot.ai.roles.RoleConfig;
+import com.maverick.maverickchatbot.ai.roles.RoleService;
+import com.maverick.maverickchatbot.ai.roles.RolesReloadedEvent;
+import com.maverick.maverickchatbot.ai.tts.TtsService;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 跨角色过渡话预生成库。
+ * 启动（或角色重载）后在后台为每个（当前角色, 目标角色, 是否重复转接）组合预先生成若干句过渡话，
+ * 并预合成当前角色音色的音频；运行时轮换取用，省去一次 LLM 往返和一次 TTS。
+ * 库未就绪或组合缺失时返回 null，由调用方回退到实时生成。
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TransferPhraseBank {
+
+    private final ModelRouter modelRouter;
+    private final RoleService roleService;
+    private final RolePromptCache rolePromptCache;
+    private final TtsService ttsService;
+
+    @Value("${transfer.bank.enabled:true}")
+    private boolean enabled;
+
+    @Value("${transfer.bank.variants:3}")
+    private int variants;
+
+    @Value("${transfer.bank.pre-synthesize:true}")
+    private boolean preSynthesize;
+
+    @Value("${transfer.bank.max-len:24}")
+    private int maxLen;
+
+    private volatile Map<String, List<Phrase>> bank = Collections.emptyMap();
+    private final Map<String, AtomicInteger> cursors = new ConcurrentHashMap<>();
+    private final AtomicBoolean building = new AtomicBoolean(false);
+    private final AtomicBoolean pending = new AtomicBoolean(false);
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        rebuildAsync();
+    }
+
+    @EventListener
+    public void onRolesReloaded(RolesReloadedEvent event) {
+        rebuildAsync();
+    }
+
+    /**
+     * 后台重建整库；已有构建在进行时记为待办，当前构建结束后按最新角色表再建一次。
+     * 重建期间旧库照常服务，新库建好后整体替换。
+     */
+    public void rebuildAsync() {
+        if (!enabled) return;
+        pending.set(true);
+        if (!building.compareAndSet(false, true)) return;
+        Thread t = new Thread(() -> {
+            try {
+                while (pending.getAndSet(false)) {
+                    try {
+                        rebuild();
+                    } catch (Exception e) {
+                        log.warn("Transfer phrase bank build failed: {}", e.getMessage());
+                    }
+                }
+            } finally {
+                building.set(false);
+            }
+            // 与 finally 之间到达的请求：抢不到 building 的一方已置 pending，这里补一次
+            if (pending.get()) rebuildAsync();
+        }, "transfer-phrase-bank");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    /**
+     * 轮换取出一句预生成过渡话；未命中返回 null。
+     */
+    public Phrase next(RoleConfig current, RoleConfig target, boolean repeated) {
+        if (!enabled || current == null || target == null) return null;
+        String key = key(current.getId(), target.getId(), repeated);
+        List<Phrase> list = bank.get(key);
+        if (list == null || list.isEmpty()) return null;
+        int i = cursors.computeIfAbsent(key, k -> new AtomicInteger()).getAndIncrement();
+        return list.get(Math.floorMod(i, list.size()));
+    }
+
+    /**
+     * 兜底模板句，与实时生成时给 LLM 的原句一致。
+     */
+    public static String templatePhrase(String targetName, boolean repeated) {
+        return repeated ? "我再去请" + targetName + "确认一下。" : "我不太清楚，请" + targetName + "来回答。";
+    }
+
+    private void rebuild() {
+        long start = System.nanoTime();
+        List<RoleConfig> roles = roleService.listRoles();
+        Map<String, List<Phrase>> next = new HashMap<>();
+        for (RoleConfig current : roles) {
+            String voice = roleService.resolveVoice(current.getId());
+            for (RoleConfig target : roles) {
+                if (current.getId().equals(target.getId())) continue;
+                for (boolean repeated : new boolean[]{false, true}) {
+                    List<Phrase> phrases = new ArrayList<>();
+                    for (String text : generateVariants(current, target, repeated)) {
+                        phrases.add(new Phrase(text, synthesize(text, voice)));
+                    }
+                    next.put(key(current.getId(), target.getId(), repeated), List.copyOf(phrases));
+                }
+            }
+        }
+        this.bank = Map.copyOf(next);
+        log.info("Transfer phrase bank ready: combos={}, timeMs={}", next.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private List<String> generateVariants(RoleConfig current, RoleConfig target, boolean repeated) {
+        String targetName = target.getName();
+        String base = templatePhrase(targetName, repeated);
+        Set<String> out = new LinkedHashSet<>();
+        try {
+            List<ChatMessage> messages = new ArrayList<>();
+            messages.add(new SystemMessage(rolePromptCache.getTransferSystemPrompt(current, target)));
+            messages.add(new UserMessage("<user_request>\n生成" + variants + "句不同说法的过渡话，意思是：“" + base + "”" +
+                    "要求自然口语、每句最多20字，可以根据规则润色；每句单独一行，不要编号，不要引号。\n</user_request>\n"));
+            var response = modelRouter.chat(LlmCallType.TRANSFER, messages);
+            String text = response == null || response.aiMessage() == null ? null : response.aiMessage().text();
+            if (text != null) {
+                for (String line : text.split("\n")) {
+                    String s = cleanLine(line);
+                    if (s.isEmpty() || s.length() > maxLen || !s.contains(targetName)) continue;
+                    out.add(s);
+                    if (out.size() >= variants) break;
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Generate transfer phrases failed: {} -> {} repeated={}: {}", current.getId(), target.getId(), repeated, e.getMessage());
+        }
+        if (out.isEmpty()) out.add(base);
+        return new ArrayList<>(out);
+    }
+
+    private byte[] synthesize(String text, String voice) {
+        if (!preSynthesize) return null;
+        try {
+            byte[] audio = ttsService.synthesize(text, voice);
+            return audio != null && audio.length > 0 ? audio : null;
+        } catch (Exception e) {
+            log.warn("Pre-synthesize transfer phrase failed: '{}': {}", text, e.getMessage());
+            return null;
+        }
+    }
+
+    private static String cleanLine(String line) {
+        String s = line == null ? "" : line.trim();
+        // 去掉可能的编号与列表符号，如 "1." "2、" "-"
+        s = s.replaceFirst("^(\\d+[.、)）]|[-*•])\\s*", "");
+        if ((s.startsWith("\"") && s.endsWith("\"")) || (s.startsWith("“") && s.endsWith("”"))) {
+            s = s.substring(1, s.length() - 1).trim();
+        }
+        return s;
+    }
+
+    private static String key(String currentId, String targetId, boolean repeated) {
+        return currentId + "->" + targetId + (repeated ? "#again" : "");
+    }
+
+    /**
+     * 预生成的过渡话；audio 为当前角色音色的预合成音频，未合成时为 null。
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Phrase {
+        private final String text;
+        private final byte[] audio;
+    }
+}
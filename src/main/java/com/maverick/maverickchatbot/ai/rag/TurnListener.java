@@ -0,0 +1,43 @@
+package com.maverick.maverickchatbot.ai.rag;
+
+import com.maverick.maverickchatbot.metrics.TurnTrace;
+
+/**
+ * 单轮对话过程中的回调，调用方可借此在最终结果返回前增量下发内容。
+ * 回调顺序：onTransfer（仅跨角色）→ onToken* → onAnswer → onComplete，且不会并发调用。
+ * 所有方法默认空实现；回调抛出的异常由编排器吞掉，不影响本轮回答。
+ */
+public interface TurnListener {
+
+    TurnListener NONE = new TurnListener() {};
+
+    /**
+     * 跨角色转接：过渡话已确定（目标角色的检索与生成此时正在并行进行）。
+     * @param transferText 过渡话文本
+     * @param transferAudio 预合成音频，可能为 null
+     */
+    default void onTransfer(String transferText, byte[] transferAudio) {}
+
+    /**
+     * 最终回答的增量文本（流式模式逐 token；阻塞模式为整段回答一次）。
+     */
+    default void onToken(String delta) {}
+
+    /**
+     * 最终回答完整就绪；此时记忆摘要仍在后台生成，调用方可立即下发文本与 TTS。
+     * @param aiRoleId 回答角色，未命中知识库的直接回复为 null
+     */
+    default void onAnswer(String finalText, String aiRoleId) {}
+
+    /**
+     * 本轮结束，result 含记忆更新与首 token / 总耗时。
+     */
+    default void onComplete(ConversationOrchestrator.Result result) {}
+
+    /**
+     * 本轮的分阶段计时；编排器把改写、检索、生成、摘要等阶段耗时记入其中。
+     */
+    default TurnTrace trace() {
+        return TurnTrace.NOOP;
+    }
+}
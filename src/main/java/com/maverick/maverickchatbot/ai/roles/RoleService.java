@@ -2,51 +2,158 @@ package com.maverick.maverickchatbot.ai.roles;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
-import lombok.RequiredArgsConstructor;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.core.io.ClassPathResource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
 
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * 角色注册表。角色以不可变快照发布在 volatile 引用上，查询无锁、无解析；
+ * 启动时立即加载，之后按间隔检查 roles.yaml 的修改时间，变化时整体解析、校验后原子替换快照，
+ * 并发布 {@link RolesReloadedEvent} 供提示词缓存、过渡话库等派生数据重建。
+ * 解析或校验失败时保留旧快照，不会出现半新半旧的角色表。
+ */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class RoleService {
 
-    // 使用 LinkedHashMap 保持插入顺序（即 YAML 中的顺序）
-    private final Map<String, RoleConfig> cache = new LinkedHashMap<>();
+    private final ApplicationEventPublisher eventPublisher;
+    private final Resource resource;
+    private final long reloadIntervalMs;
 
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+    private long loadedModified = -1;
+    private ScheduledExecutorService watcher;
+
+    public RoleService(ApplicationEventPublisher eventPublisher,
+                       @Value("${roles.location:classpath:roles/roles.yaml}") String location,
+                       @Value("${roles.reload-interval-ms:5000}") long reloadIntervalMs) {
+        this.eventPublisher = eventPublisher;
+        this.resource = new DefaultResourceLoader().getResource(location);
+        this.reloadIntervalMs = reloadIntervalMs;
+    }
+
+    @PostConstruct
+    void init() {
+        reloadIfChanged();
+        if (reloadIntervalMs <= 0) return;
+        watcher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "roles-watcher");
+            t.setDaemon(true);
+            return t;
+        });
+        watcher.scheduleWithFixedDelay(this::reloadIfChanged, reloadIntervalMs, reloadIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (watcher != null) watcher.shutdownNow();
+    }
+
+    /**
+     * 按 YAML 顺序返回全部角色（不可修改）。
+     */
     public List<RoleConfig> listRoles() {
-        ensureLoaded();
-        // 按插入顺序返回副本，避免外部修改
-        return new ArrayList<>(cache.values());
+        return snapshot.roles;
     }
 
     public RoleConfig getById(String id) {
-        ensureLoaded();
-        return cache.get(id);
+        return snapshot.byId.get(id);
+    }
+
+    /**
+     * 角色默认音色：取第一个 voiceSample 的 spk_id；未配置返回 null，由 TtsService 回退到全局默认。
+     */
+    public String resolveVoice(String roleId) {
+        return snapshot.voices.get(roleId);
     }
 
-    private synchronized void ensureLoaded() {
-        if (!cache.isEmpty()) return;
+    /**
+     * 文件修改时间变化（或尚未加载成功）时重新加载；返回是否发布了新快照。
+     */
+    synchronized boolean reloadIfChanged() {
+        long modified;
         try {
-            ClassPathResource res = new ClassPathResource("roles/roles.yaml");
-            try (InputStream in = res.getInputStream()) {
-                ObjectMapper mapper = new ObjectMapper(new YAMLFactory());
-                RoleConfig[] arr = mapper.readValue(in, RoleConfig[].class);
-                Arrays.stream(arr).forEach(rc -> cache.put(rc.getId(), rc));
-                log.info("Loaded roles: {}", cache.keySet());
-            }
+            modified = resource.lastModified();
+        } catch (Exception e) {
+            // 取不到修改时间（如 jar 内资源）：只在首次加载
+            modified = 0;
+        }
+        if (modified == loadedModified) return false;
+        try (InputStream in = resource.getInputStream()) {
+            RoleConfig[] arr = new ObjectMapper(new YAMLFactory()).readValue(in, RoleConfig[].class);
+            Snapshot next = Snapshot.of(arr == null ? List.of() : Arrays.asList(arr));
+            boolean reload = loadedModified != -1;
+            snapshot = next;
+            loadedModified = modified;
+            log.info("{} roles: {}", reload ? "Reloaded" : "Loaded", next.byId.keySet());
+            if (reload) eventPublisher.publishEvent(new RolesReloadedEvent(next.roles));
+            return true;
         } catch (Exception e) {
-            log.warn("Load roles failed: {}", e.getMessage());
+            // 记下本次修改时间，避免对同一份坏文件反复解析；文件再次修改时重试
+            loadedModified = modified;
+            log.warn("Load roles from {} failed, keep {} roles: {}", resource, snapshot.roles.size(), e.getMessage());
+            return false;
         }
     }
-}
 
+    /**
+     * 一次加载的不可变结果，附带预计算的派生数据。
+     */
+    private static final class Snapshot {
+
+        static final Snapshot EMPTY = new Snapshot(List.of(), Map.of(), Map.of());
+
+        final List<RoleConfig> roles;
+        // 不用 Map.copyOf：其 get(null) 会抛 NPE，而调用方可能传入空 roleId
+        final Map<String, RoleConfig> byId;
+        final Map<String, String> voices;
 
+        private Snapshot(List<RoleConfig> roles, Map<String, RoleConfig> byId, Map<String, String> voices) {
+            this.roles = roles;
+            this.byId = byId;
+            this.voices = voices;
+        }
+
+        static Snapshot of(List<RoleConfig> loaded) {
+            if (loaded.isEmpty()) throw new IllegalArgumentException("no roles defined");
+            // 使用 LinkedHashMap 保持插入顺序（即 YAML 中的顺序）
+            Map<String, RoleConfig> byId = new LinkedHashMap<>();
+            Map<String, String> voices = new LinkedHashMap<>();
+            for (RoleConfig rc : loaded) {
+                if (rc == null || rc.getId() == null || rc.getId().isEmpty()) {
+                    throw new IllegalArgumentException("role without id");
+                }
+                if (byId.put(rc.getId(), rc) != null) {
+                    throw new IllegalArgumentException("duplicate role id: " + rc.getId());
+                }
+                String voice = firstSpkId(rc);
+                if (voice != null) voices.put(rc.getId(), voice);
+            }
+            return new Snapshot(Collections.unmodifiableList(new ArrayList<>(byId.values())),
+                    Collections.unmodifiableMap(byId), Collections.unmodifiableMap(voices));
+        }
+
+        private static String firstSpkId(RoleConfig rc) {
+            if (rc.getVoiceSamples() == null || rc.getVoiceSamples().isEmpty()) return null;
+            RoleConfig.VoiceSample first = rc.getVoiceSamples().get(0);
+            if (first == null || first.getSpkId() == null || first.getSpkId().isEmpty()) return null;
+            return first.getSpkId();
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.maverick.maverickchatbot.ai.roles;
+
+import java.util.List;
+
+/**
+ * roles.yaml 热加载成功、新角色表已生效后发布；roles 为新快照中的全部角色。
+ */
+public record RolesReloadedEvent(List<RoleConfig> roles) {
+}
@@ -0,0 +1,175 @@
+package com.maverick.maverickchatbot.ai.tts;
+
+import com.maverick.maverickchatbot.admission.AdmissionController;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 句级并行 TTS：回答按句切分后并发合成，按原句顺序逐段下发，前缀就绪即发送。
+ * 全局许可限制对 TTS 厂商的总并发，会话许可限制单个会话可同时占用的并发，
+ * 避免一段长回答独占厂商配额。许可均为公平信号量，靠前的句子优先拿到许可。
+ * 每句合成计入 tts 熔断器；熔断期间剩余句子直接跳过，不再等待厂商超时。
+ */
+@Component
+@Slf4j
+public class SentenceTtsPipeline {
+
+    // 句末标点（可连续，如“！？”），后随的右引号/括号归入本句
+    private static final Pattern SENTENCE_END = Pattern.compile("[。！？!?；;…\\n]+[”’」』）)]*");
+
+    private final TtsService ttsService;
+    private final ExecutorService executor;
+    private final AdmissionController admissionController;
+    private final boolean enabled;
+    private final int perSession;
+    private final int minSentenceChars;
+    private final Semaphore vendorPermits;
+    private final Map<String, Semaphore> sessionPermits = new ConcurrentHashMap<>();
+
+    public SentenceTtsPipeline(TtsService ttsService,
+                               ExecutorService conversationExecutor,
+                               AdmissionController admissionController,
+                               @Value("${tts.pipeline.enabled:true}") boolean enabled,
+                               @Value("${tts.pipeline.max-concurrency:8}") int maxConcurrency,
+                               @Value("${tts.pipeline.per-session:2}") int perSession,
+                               @Value("${tts.pipeline.min-sentence-chars:8}") int minSentenceChars) {
+        this.ttsService = ttsService;
+        this.executor = conversationExecutor;
+        this.admissionController = admissionController;
+        this.enabled = enabled;
+        this.perSession = Math.max(1, perSession);
+        this.minSentenceChars = minSentenceChars;
+        this.vendorPermits = new Semaphore(Math.max(1, maxConcurrency), true);
+    }
+
+    /**
+     * 合成并按顺序把每句音频交给 sink，阻塞至全部下发；返回下发的段数。
+     * 单句合成失败只跳过该句；sink 抛异常（如连接已关闭）时取消剩余句子并向上抛出。
+     */
+    public int synthesize(String sessionId, String text, String voice, AudioSink sink) throws Exception {
+        List<String> sentences = enabled ? splitSentences(text, minSentenceChars) : whole(text);
+        if (sentences.isEmpty()) return 0;
+        Semaphore session = sessionId == null ? new Semaphore(perSession, true)
+                : sessionPermits.computeIfAbsent(sessionId, k -> new Semaphore(perSession, true));
+
+        List<Future<byte[]>> parts = new ArrayList<>(sentences.size());
+        for (String sentence : sentences) {
+            parts.add(executor.submit(() -> synthesizeOne(sentence, voice, session)));
+        }
+        int delivered = 0;
+        try {
+            for (int i = 0; i < parts.size(); i++) {
+                byte[] audio;
+                try {
+                    audio = parts.get(i).get();
+                } catch (ExecutionException e) {
+                    log.warn("TTS sentence {}/{} failed, skipped: '{}': {}", i + 1, parts.size(), sentences.get(i),
+                            e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+                    continue;
+                }
+                if (audio != null && audio.length > 0) {
+                    sink.accept(audio);
+                    delivered++;
+                }
+            }
+        } finally {
+            // 正常结束时均已完成，cancel 无副作用；异常退出时中断仍在排队或合成中的句子
+            for (Future<byte[]> part : parts) part.cancel(true);
+        }
+        log.debug("TTS pipeline delivered {}/{} sentences", delivered, sentences.size());
+        return delivered;
+    }
+
+    /**
+     * 会话结束时释放其许可记录。
+     */
+    public void release(String sessionId) {
+        if (sessionId != null) sessionPermits.remove(sessionId);
+    }
+
+    private byte[] synthesizeOne(String sentence, String voice, Semaphore session) throws Exception {
+        session.acquire();
+        try {
+            vendorPermits.acquire();
+            AdmissionController.Call call = null;
+            try {
+                call = admissionController.enter(AdmissionController.TTS);
+                CompletableFuture<byte[]> future = ttsService.synthesizeAsync(sentence, voice, executor);
+                try {
+                    return future.get();
+                } catch (InterruptedException e) {
+                    // 被取消时一并终止底层请求，及时关闭连接
+                    future.cancel(true);
+                    throw e;
+                } catch (ExecutionException e) {
+                    if (call != null) call.fail();
+                    throw e;
+                }
+            } finally {
+                if (call != null) call.close();
+                vendorPermits.release();
+            }
+        } finally {
+            session.release();
+        }
+    }
+
+    /**
+     * 按句末标点切分，过短的片段并入下一句（末尾残片并入上一句），减少零碎的合成请求。
+     */
+    static List<String> splitSentences(String text, int minChars) {
+        List<String> out = new ArrayList<>();
+        if (text == null || text.isBlank()) return out;
+        StringBuilder pending = new StringBuilder();
+        Matcher m = SENTENCE_END.matcher(text);
+        int start = 0;
+        while (m.find()) {
+            pending.append(text, start, m.end());
+            start = m.end();
+            flushIfLong(pending, out, minChars);
+        }
+        pending.append(text, start, text.length());
+        String rest = pending.toString().strip();
+        if (!rest.isEmpty()) {
+            if (!out.isEmpty() && rest.length() < minChars) {
+                out.set(out.size() - 1, out.get(out.size() - 1) + rest);
+            } else {
+                out.add(rest);
+            }
+        }
+        return out;
+    }
+
+    private static void flushIfLong(StringBuilder pending, List<String> out, int minChars) {
+        String s = pending.toString().strip();
+        if (s.length() >= minChars) {
+            out.add(s);
+            pending.setLength(0);
+        }
+    }
+
+    private static List<String> whole(String text) {
+        return text == null || text.isBlank() ? List.of() : List.of(text);
+    }
+
+    /**
+     * 音频下发回调，按句序调用。
+     */
+    @FunctionalInterface
+    public interface AudioSink {
+        void accept(byte[] audio) throws Exception;
+    }
+}
@@ -1,5 +1,8 @@
 package com.maverick.maverickchatbot.ai.tts;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
 /**
  * 文本转语音服务接口。
  */
@@ -13,6 +16,15 @@ public interface TtsService {
      */
     byte[] synthesize(String text, String voice);
 
+    /**
+     * 异步合成；失败或超时时 future 异常完成（超时为 {@link TtsTimeoutException}）。
+     * 默认实现：在调用方给定的 executor 上调用 {@link #synthesize(String, String)}，
+     * 不占用公共 ForkJoinPool；原生异步的实现类可覆盖并忽略 executor。
+     */
+    default CompletableFuture<byte[]> synthesizeAsync(String text, String voice, Executor executor) {
+        return CompletableFuture.supplyAsync(() -> synthesize(text, voice), executor);
+    }
+
     /**
      * 流式合成：文本一次性送入，服务端分片返回音频。
      * 默认实现：调用 {@link #synthesize(String, String)} 并一次性回传。
@@ -0,0 +1,16 @@
+package com.maverick.maverickchatbot.ai.tts;
+
+import lombok.Getter;
+
+/**
+ * TTS 合成超时；stage 为超时阶段：connect（建连）、first-byte（首包音频）、total（整段合成）。
+ */
+@Getter
+public class TtsTimeoutException extends RuntimeException {
+    private final String stage;
+
+    public TtsTimeoutException(String stage, String message) {
+        super(message);
+        this.stage = stage;
+    }
+}
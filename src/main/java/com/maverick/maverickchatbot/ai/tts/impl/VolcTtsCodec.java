@@ -0,0 +1,230 @@
+package com.maverick.maverickchatbot.ai.tts.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 火山 TTS 二进制帧编解码。
+ * <pre>
+ * byte0: 协议版本(4bit) | 头长度/4(4bit)
+ * byte1: 消息类型(4bit) | 类型标志(4bit)
+ * byte2: 序列化方式(4bit) | 压缩方式(4bit)
+ * byte3: 保留
+ * [扩展头] 之后：audio-only 响应为 [序号 int32][长度 int32][音频]，错误帧为 [错误码 int32][长度 int32][消息]
+ * </pre>
+ * 解码按绝对下标读取 int，负载以 slice 视图交出，不复制；仅 gzip 帧需要解压到新数组。
+ * 编码使用池化缓冲，调用方发送完成后归还（Java-WebSocket 的 send 会同步把负载复制进帧缓冲）。
+ */
+final class VolcTtsCodec {
+
+    static final int PROTOCOL_VERSION = 1;
+
+    static final int FULL_CLIENT_REQUEST = 0x1;
+    static final int AUDIO_ONLY_RESPONSE = 0xB;
+    static final int ERROR_INFORMATION = 0xF;
+
+    static final int SERIALIZATION_NONE = 0x0;
+    static final int SERIALIZATION_JSON = 0x1;
+    static final int COMPRESSION_NONE = 0x0;
+    static final int COMPRESSION_GZIP = 0x1;
+
+    private static final int HEADER_SIZE = 4;
+    private static final int DEFAULT_BUFFER_SIZE = 4096;
+
+    private final ArrayBlockingQueue<ByteBuffer> pool;
+
+    VolcTtsCodec(int poolSize) {
+        this.pool = new ArrayBlockingQueue<>(Math.max(1, poolSize));
+    }
+
+    // ======== 编码 ========
+
+    /**
+     * 编码 full client request（JSON 负载，可选 gzip）。返回的缓冲已 flip，用完需 {@link #release(ByteBuffer)}。
+     */
+    ByteBuffer encodeRequest(byte[] json, boolean gzip) {
+        byte[] payload = gzip ? gzip(json) : json;
+        ByteBuffer buf = acquire(HEADER_SIZE + 4 + payload.length);
+        buf.put((byte) (PROTOCOL_VERSION << 4 | HEADER_SIZE / 4))
+           .put((byte) (FULL_CLIENT_REQUEST << 4))
+           .put((byte) (SERIALIZATION_JSON << 4 | (gzip ? COMPRESSION_GZIP : COMPRESSION_NONE)))
+           .put((byte) 0)
+           .putInt(payload.length)
+           .put(payload);
+        return buf.flip();
+    }
+
+    ByteBuffer acquire(int size) {
+        ByteBuffer buf = size <= DEFAULT_BUFFER_SIZE ? pool.poll() : null;
+        if (buf == null) return ByteBuffer.allocate(Math.max(size, DEFAULT_BUFFER_SIZE));
+        return buf.clear();
+    }
+
+    /**
+     * 归还缓冲；超出默认尺寸的大缓冲不入池，池满直接丢弃。
+     */
+    void release(ByteBuffer buf) {
+        if (buf != null && buf.hasArray() && buf.capacity() == DEFAULT_BUFFER_SIZE) {
+            pool.offer(buf);
+        }
+    }
+
+    // ======== 解码 ========
+
+    /**
+     * 解码一帧到可复用的 {@link Frame}（同一连接的消息串行到达，可反复使用同一个实例）。
+     * 不改变 in 的 position/limit。
+     * @throws IllegalArgumentException 协议版本不支持、头部长度或帧长度不合法
+     */
+    static Frame decode(ByteBuffer in, Frame into) {
+        int base = in.position();
+        int limit = in.limit();
+        if (limit - base < HEADER_SIZE) {
+            throw new IllegalArgumentException("TTS frame too short: " + (limit - base));
+        }
+        int b0 = in.get(base) & 0xff;
+        int b1 = in.get(base + 1) & 0xff;
+        int b2 = in.get(base + 2) & 0xff;
+        int version = b0 >> 4;
+        if (version != PROTOCOL_VERSION) {
+            throw new IllegalArgumentException("Unsupported TTS protocol version: " + version);
+        }
+        int headerSize = (b0 & 0x0f) * 4;
+        // 头部长度来自对端：小于固定头或越过帧尾都直接拒绝，不能让后续偏移落到头部内或帧外
+        if (headerSize < HEADER_SIZE || headerSize > limit - base) {
+            throw new IllegalArgumentException("Invalid TTS header size " + headerSize + " for frame length " + (limit - base));
+        }
+        into.messageType = b1 >> 4;
+        into.flags = b1 & 0x0f;
+        into.serialization = b2 >> 4;
+        into.compression = b2 & 0x0f;
+        into.sequence = 0;
+        into.code = 0;
+        into.payload = null;
+
+        int pos = base + headerSize;
+        switch (into.messageType) {
+            case AUDIO_ONLY_RESPONSE -> {
+                // 标志为 0：无序号、无负载的确认帧
+                if (into.flags == 0) return into;
+                require(in, pos, 8);
+                into.sequence = in.getInt(pos);
+                into.payload = payload(in, pos + 4, into.compression);
+            }
+            case ERROR_INFORMATION -> {
+                require(in, pos, 8);
+                into.code = in.getInt(pos);
+                into.payload = payload(in, pos + 4, into.compression);
+            }
+            default -> {
+                // 其他类型（如 full server response）暂不解析负载
+            }
+        }
+        return into;
+    }
+
+    private static ByteBuffer payload(ByteBuffer in, int sizePos, int compression) {
+        int size = in.getInt(sizePos);
+        int start = sizePos + 4;
+        // 用减法比较：size 接近 Integer.MAX_VALUE 时 start + size 会溢出为负数而通过检查
+        if (size < 0 || size > in.limit() - start) {
+            throw new IllegalArgumentException("TTS frame payload size " + size + " exceeds frame length " + (in.limit() - in.position()));
+        }
+        ByteBuffer view = in.slice(start, size);
+        return compression == COMPRESSION_GZIP ? ByteBuffer.wrap(gunzip(view)) : view;
+    }
+
+    private static void require(ByteBuffer in, int pos, int bytes) {
+        if (pos + bytes > in.limit()) {
+            throw new IllegalArgumentException("TTS frame truncated at " + (pos - in.position()));
+        }
+    }
+
+    static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2 + 32);
+        try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(data);
+        } catch (IOException e) {
+            throw new IllegalStateException("gzip failed", e);
+        }
+        return out.toByteArray();
+    }
+
+    static byte[] gunzip(ByteBuffer data) {
+        try (GZIPInputStream gz = new GZIPInputStream(new ByteBufferInputStream(data.duplicate()))) {
+            return gz.readAllBytes();
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid gzip payload in TTS frame", e);
+        }
+    }
+
+    /**
+     * 解码结果；payload 是与原帧共享内容的视图（gzip 帧为解压后的新缓冲），仅在当前回调内有效。
+     * 视图可写（保留 hasArray 以便零拷贝写入缓冲），调用方只读不写。
+     */
+    static final class Frame {
+        int messageType;
+        int flags;
+        int serialization;
+        int compression;
+        int sequence;
+        int code;
+        ByteBuffer payload;
+
+        boolean isAudio() {
+            return messageType == AUDIO_ONLY_RESPONSE;
+        }
+
+        boolean isError() {
+            return messageType == ERROR_INFORMATION;
+        }
+
+        /** 序号为负表示最后一帧。 */
+        boolean isLast() {
+            return isAudio() && sequence < 0;
+        }
+
+        int getSequence() {
+            return sequence;
+        }
+
+        int getCode() {
+            return code;
+        }
+
+        ByteBuffer getPayload() {
+            return payload;
+        }
+
+        String payloadAsString() {
+            return payload == null ? "" : StandardCharsets.UTF_8.decode(payload.duplicate()).toString();
+        }
+    }
+
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buf;
+
+        ByteBufferInputStream(ByteBuffer buf) {
+            this.buf = buf;
+        }
+
+        @Override
+        public int read() {
+            return buf.hasRemaining() ? buf.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buf.hasRemaining()) return -1;
+            int n = Math.min(len, buf.remaining());
+            buf.get(b, off, n);
+            return n;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.maverick.maverickchatbot.ai.tts.impl;
 
 import com.maverick.maverickchatbot.ai.tts.TtsService;
+import lombok.AllArgsConstructor;
 import lombok.RequiredArgsConstructor;
 import lombok.Data;
 import lombok.Builder;
@@ -12,18 +13,28 @@ import org.springframework.stereotype.Service;
 
 import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.annotation.JSONField;
+import com.maverick.maverickchatbot.ai.tts.TtsTimeoutException;
 import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.drafts.Draft_6455;
 import org.java_websocket.framing.CloseFrame;
 import org.java_websocket.handshake.ServerHandshake;
 
 import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.math.BigInteger;
 import java.net.URI;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.Collections;
+import java.util.Queue;
 import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 /**
@@ -49,23 +60,57 @@ public class VolcTtsDemo implements TtsService {
 
     public static final String API_URL = "wss://openspeech.bytedance.com/api/v1/tts/ws_binary";
 
+    // 请求帧编码缓冲池，所有连接共享
+    private static final VolcTtsCodec CODEC = new VolcTtsCodec(32);
+
+    @Value("${tts.volc.ws-url:" + API_URL + "}")
+    private String wsUrl;
+
+    @Value("${tts.volc.connect-timeout-ms:3000}")
+    private long connectTimeoutMs;
+
+    @Value("${tts.volc.first-byte-timeout-ms:5000}")
+    private long firstByteTimeoutMs;
+
+    @Value("${tts.volc.total-timeout-ms:15000}")
+    private long totalTimeoutMs;
+
     @Override
     public byte[] synthesize(String text, String voice) {
         try {
-            log.info("Starting TTS synthesis for text: '{}' with voice: '{}'", text, voice);
-            TtsRequest ttsRequest = buildTtsRequest(text, voice);
-            TtsWebsocketClient client = new TtsWebsocketClient(accessToken, authHeaderPrefix);
-            byte[] result = client.submit(ttsRequest);
-//            System.out.println(JSON.toJSONString(ttsRequest));
-//            System.out.println(JSON.toJSONString(client));
+            byte[] result = submit(text, voice).join();
             log.info("TTS synthesis completed, audio length: {} bytes", result.length);
             return result;
-        } catch (Exception e) {
-            log.error("TTS synthesis failed for text: '{}', voice: '{}', error: {}", text, voice, e.getMessage(), e);
-            throw new RuntimeException("TTS synthesis failed", e);
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            log.error("TTS synthesis failed for text: '{}', voice: '{}', error: {}", text, voice, cause.getMessage());
+            if (cause instanceof TtsTimeoutException timeout) throw timeout;
+            throw new RuntimeException("TTS synthesis failed", cause);
+        } catch (CancellationException e) {
+            // join() 对被取消的 future 直接抛 CancellationException，不经 CompletionException 包装
+            log.warn("TTS synthesis cancelled for text: '{}', voice: '{}'", text, voice);
+            throw new RuntimeException("TTS synthesis cancelled", e);
         }
     }
 
+    /**
+     * 原生异步，不占用 executor 线程：回调在 WebSocket 读线程上完成 future。
+     */
+    @Override
+    public CompletableFuture<byte[]> synthesizeAsync(String text, String voice, Executor executor) {
+        return submit(text, voice);
+    }
+
+    /**
+     * 每次合成一条连接：建连、首包、整段三段截止时间，任一到期或收到错误帧/连接提前关闭即异常完成。
+     */
+    private CompletableFuture<byte[]> submit(String text, String voice) {
+        log.info("Starting TTS synthesis for text: '{}' with voice: '{}'", text, voice);
+        TtsRequest ttsRequest = buildTtsRequest(text, voice);
+        Deadlines deadlines = new Deadlines(connectTimeoutMs, firstByteTimeoutMs, totalTimeoutMs);
+        return new TtsWebsocketClient(wsUrl, accessToken, authHeaderPrefix, deadlines).submitAsync(ttsRequest);
+    }
+
     @Override
     public void synthesizeStream(String text, String voice, Consumer<byte[]> onChunk) throws Exception {
         // 不再支持流式合成，直接使用一次性合成并一次性返回
@@ -103,87 +148,148 @@ public class VolcTtsDemo implements TtsService {
         return request;
     }
 
-    // 标准TTS WebSocket客户端，用于一次性合成
+    /**
+     * 单次合成的截止时间（毫秒）：建连、请求发出到首包音频、整段合成。
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Deadlines {
+        public static final Deadlines DEFAULT = new Deadlines(3000, 5000, 15000);
+
+        private final long connectMs;
+        private final long firstByteMs;
+        private final long totalMs;
+    }
+
+    // 标准TTS WebSocket客户端，用于一次性合成；一个实例只承载一次请求
     public static class TtsWebsocketClient extends WebSocketClient {
+        // 所有连接共用的截止时间计时器；请求结束即取消，已取消的任务立即出队，不再持有客户端与音频缓冲
+        static final ScheduledThreadPoolExecutor TIMER = newTimer();
+
         private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        // onMessage 在连接的读线程上串行调用，解码结果可复用
+        private final VolcTtsCodec.Frame frame = new VolcTtsCodec.Frame();
+        private final CompletableFuture<byte[]> result = new CompletableFuture<>();
+        private final Queue<ScheduledFuture<?>> timers = new ConcurrentLinkedQueue<>();
+
+        private final URI uri;
+        private final Deadlines deadlines;
+        private volatile byte[] pendingRequest;
+        private volatile boolean opened;
+        private volatile boolean firstByte;
 
         public TtsWebsocketClient(String accessToken, String authHeaderPrefix) {
-            super(URI.create(API_URL), Collections.singletonMap("Authorization", authHeaderPrefix + accessToken));
-            log.info("Creating TTS WebSocket client with auth header: '{}[REDACTED]'", authHeaderPrefix);
+            this(API_URL, accessToken, authHeaderPrefix, Deadlines.DEFAULT);
+        }
+
+        public TtsWebsocketClient(String url, String accessToken, String authHeaderPrefix) {
+            this(url, accessToken, authHeaderPrefix, Deadlines.DEFAULT);
+        }
+
+        public TtsWebsocketClient(String url, String accessToken, String authHeaderPrefix, Deadlines deadlines) {
+            // 建连超时同时作为 socket connect 超时，避免读线程卡在 TCP 握手
+            super(URI.create(url), new Draft_6455(), Collections.singletonMap("Authorization", authHeaderPrefix + accessToken),
+                    (int) Math.min(Integer.MAX_VALUE, deadlines.getConnectMs()));
+            this.uri = URI.create(url);
+            this.deadlines = deadlines;
+            log.debug("Creating TTS WebSocket client with auth header: '{}[REDACTED]'", authHeaderPrefix);
         }
 
+        /**
+         * 发起合成。future 在最后一帧音频到达时完成；错误帧、连接提前关闭、任一截止时间到期时异常完成。
+         * future 结束（含调用方 cancel）后连接随即关闭。
+         */
+        public CompletableFuture<byte[]> submitAsync(TtsRequest ttsRequest) {
+            byte[] jsonBytes = JSON.toJSONBytes(ttsRequest);
+            if (log.isDebugEnabled()) {
+                log.debug("TTS request: {}", new String(jsonBytes, StandardCharsets.UTF_8));
+            }
+            this.pendingRequest = jsonBytes;
+            result.whenComplete((audio, error) -> {
+                timers.forEach(timer -> timer.cancel(false));
+                if (!isClosed()) close(CloseFrame.NORMAL, error == null ? "Received all audio data" : "Request aborted");
+            });
+            schedule(deadlines.getConnectMs(), () -> {
+                if (!opened) fail(new TtsTimeoutException("connect", "TTS connect timed out after " + deadlines.getConnectMs() + "ms: " + uri));
+            });
+            schedule(deadlines.getTotalMs(), () ->
+                    fail(new TtsTimeoutException("total", "TTS synthesis exceeded " + deadlines.getTotalMs() + "ms")));
+
+            log.info("Connecting to TTS WebSocket: {}", uri);
+            connect();
+            return result;
+        }
+
+        /**
+         * 同步版本，阻塞至 future 结束（受整段截止时间约束）。
+         */
         public byte[] submit(TtsRequest ttsRequest) throws InterruptedException {
-            String json = JSON.toJSONString(ttsRequest);
-            log.info("TTS request: {}", json);
-            byte[] jsonBytes = json.getBytes(StandardCharsets.UTF_8);
-            byte[] header = {0x11, 0x10, 0x10, 0x00};
-            ByteBuffer requestByte = ByteBuffer.allocate(8 + jsonBytes.length);
-            requestByte.put(header).putInt(jsonBytes.length).put(jsonBytes);
-
-            log.info("Connecting to TTS WebSocket: {}", API_URL);
-            this.connectBlocking();
-            synchronized (this) {
-                this.send(requestByte.array());
-                log.info("TTS request sent, waiting for response...");
-                wait();
-                byte[] result = this.buffer.toByteArray();
-                log.info("Received TTS response, size: {} bytes", result.length);
-                return result;
+            try {
+                return submitAsync(ttsRequest).get();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException re) throw re;
+                throw new IllegalStateException(e.getCause());
             }
         }
 
         @Override
-        @SuppressWarnings("unused")
         public void onMessage(ByteBuffer bytes) {
-            int protocolVersion = (bytes.get(0) & 0xff) >> 4;
-            int headerSize = bytes.get(0) & 0x0f;
-            int messageType = (bytes.get(1) & 0xff) >> 4;
-            int messageTypeSpecificFlags = bytes.get(1) & 0x0f;
-            int serializationMethod = (bytes.get(2) & 0xff) >> 4;
-            int messageCompression = bytes.get(2) & 0x0f;
-            int reserved = bytes.get(3) & 0xff;
-            bytes.position(headerSize * 4);
-            byte[] fourByte = new byte[4];
-            if (messageType == 11) {
-                // Audio-only server response
-                log.debug("Received audio-only response");
-                if (messageTypeSpecificFlags == 0) {
-                    // Ack without audio data
-                } else {
-                    bytes.get(fourByte, 0, 4);
-                    int sequenceNumber = new BigInteger(fourByte).intValue();
-                    bytes.get(fourByte, 0, 4);
-                    int payloadSize = new BigInteger(fourByte).intValue();
-                    byte[] payload = new byte[payloadSize];
-                    bytes.get(payload, 0, payloadSize);
-                    try {
-                        this.buffer.write(payload);
-                    } catch (IOException e) {
-                        throw new RuntimeException("Failed to write audio payload", e);
-                    }
-                    if (sequenceNumber < 0) {
-                        // Received the last segment
-                        this.close(CloseFrame.NORMAL, "Received all audio data");
+            if (result.isDone()) return;
+            try {
+                VolcTtsCodec.Frame f = VolcTtsCodec.decode(bytes, frame);
+                if (f.isAudio()) {
+                    // Audio-only server response；标志为 0 的确认帧不带音频
+                    if (f.getPayload() != null) {
+                        firstByte = true;
+                        onAudio(f.getPayload(), f.isLast());
                     }
+                } else if (f.isError()) {
+                    fail(new TtsException(f.getCode(), f.payloadAsString()));
+                } else {
+                    log.warn("Received unknown response message type: {}", f.messageType);
                 }
-            } else if (messageType == 15) {
-                // Error message from server
-                bytes.get(fourByte, 0, 4);
-                int code = new BigInteger(fourByte).intValue();
-                bytes.get(fourByte, 0, 4);
-                int messageSize = new BigInteger(fourByte).intValue();
-                byte[] messageBytes = new byte[messageSize];
-                bytes.get(messageBytes, 0, messageSize);
-                String message = new String(messageBytes, StandardCharsets.UTF_8);
-                throw new TtsException(code, message);
+            } catch (RuntimeException e) {
+                // 解析异常不能抛在读线程上，交给调用方
+                fail(e);
+            }
+        }
+
+        /**
+         * 收到一段音频；payload 为帧内视图，仅在本次回调内有效。
+         * last 为 true 表示最后一段（序号为负）。默认写入缓冲并在最后一段后关闭连接。
+         */
+        protected void onAudio(ByteBuffer payload, boolean last) {
+            if (payload.hasArray()) {
+                this.buffer.write(payload.array(), payload.arrayOffset() + payload.position(), payload.remaining());
             } else {
-                log.warn("Received unknown response message type: {}", messageType);
+                byte[] copy = new byte[payload.remaining()];
+                payload.duplicate().get(copy);
+                this.buffer.write(copy, 0, copy.length);
+            }
+            if (last) {
+                // Received the last segment；连接由 future 完成回调关闭
+                result.complete(this.buffer.toByteArray());
             }
         }
 
         @Override
         public void onOpen(ServerHandshake serverHandshake) {
             log.debug("TTS WebSocket connection opened");
+            opened = true;
+            byte[] jsonBytes = pendingRequest;
+            if (jsonBytes == null || result.isDone()) return;
+            ByteBuffer request = CODEC.encodeRequest(jsonBytes, false);
+            try {
+                send(request);
+            } catch (RuntimeException e) {
+                fail(e);
+                return;
+            } finally {
+                CODEC.release(request);
+            }
+            schedule(deadlines.getFirstByteMs(), () -> {
+                if (!firstByte) fail(new TtsTimeoutException("first-byte", "TTS first audio byte not received within " + deadlines.getFirstByteMs() + "ms"));
+            });
         }
 
         @Override
@@ -195,15 +301,33 @@ public class VolcTtsDemo implements TtsService {
         public void onClose(int code, String reason, boolean remote) {
             log.debug("Connection closed by {}, Code: {}, Reason: {}", 
                 (remote ? "remote" : "us"), code, reason);
-            synchronized (this) {
-                notify();
-            }
+            // 未收到最后一帧即断开
+            fail(new TtsException(code, "TTS connection closed before final frame: " + reason));
         }
 
         @Override
         public void onError(Exception e) {
-            log.error("WebSocket error", e);
-            close(CloseFrame.NORMAL, e.toString());
+            log.warn("TTS WebSocket error: {}", e.toString());
+            fail(e);
+        }
+
+        private void fail(Throwable t) {
+            result.completeExceptionally(t);
+        }
+
+        private void schedule(long delayMs, Runnable check) {
+            if (delayMs <= 0 || result.isDone()) return;
+            ScheduledFuture<?> timer = TIMER.schedule(check, delayMs, TimeUnit.MILLISECONDS);
+            timers.add(timer);
+            // 与完成回调竞争：登记前 future 已结束则由这里取消
+            if (result.isDone()) timer.cancel(false);
+        }
+
+        private static ScheduledThreadPoolExecutor newTimer() {
+            ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1,
+                    Thread.ofPlatform().name("tts-deadline").daemon().factory());
+            timer.setRemoveOnCancelPolicy(true);
+            return timer;
         }
     }
 
@@ -0,0 +1,27 @@
+package com.maverick.maverickchatbot.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+public class ExecutorConfig {
+
+    /**
+     * 对话编排用执行器：并行发起检索/生成等阻塞 IO，使用虚拟线程，按任务创建。
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService conversationExecutor() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("conv-", 0).factory());
+    }
+
+    /**
+     * 文本对话接口执行器：每个请求一个虚拟线程跑完整轮，请求线程（含 SSE）立即释放。
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService chatApiExecutor() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("chat-api-", 0).factory());
+    }
+}
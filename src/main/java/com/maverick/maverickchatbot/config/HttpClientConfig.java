@@ -1,16 +1,26 @@
 package com.maverick.maverickchatbot.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.web.client.RestTemplate;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.Executors;
 
 @Configuration
 public class HttpClientConfig {
 
+    /**
+     * ASR 调用用 HTTP 客户端：JDK HttpClient 自带连接池，HTTP/1.1 长连接复用；
+     * 响应回调在虚拟线程上执行。读超时按请求设置，见 SherpaOnnxSpeechToTextService。
+     */
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public HttpClient asrHttpClient(@Value("${asr.http.connect-timeout-ms:2000}") long connectTimeoutMs) {
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .executor(Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("asr-http-", 0).factory()))
+                .build();
     }
 }
-
-
@@ -0,0 +1,59 @@
+package com.maverick.maverickchatbot.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 语音对话分阶段计时：每个阶段一个 Timer（voice.turn.stage），按 stage / role / path 打标签，
+ * 同时发布 p50/p95/p99 与直方图，经 Actuator（/actuator/prometheus）暴露。
+ */
+@Component
+@RequiredArgsConstructor
+public class StageTimers {
+
+    public static final String METRIC = "voice.turn.stage";
+    public static final String DROPPED_METRIC = "voice.turn.dropped";
+    public static final String DEGRADED_METRIC = "voice.turn.degraded";
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * 开始一轮对话的计时；role 为用户所选角色，可为空。
+     */
+    public TurnTrace start(String role) {
+        return new TurnTrace(this, role);
+    }
+
+    /**
+     * 记录一次被丢弃的轮次（voice.turn.dropped），reason 如 silent / noise / audio_duplicate / text_duplicate。
+     */
+    public void dropped(String reason) {
+        Counter.builder(DROPPED_METRIC).tag("reason", reason).register(meterRegistry).increment();
+    }
+
+    /**
+     * 记录一次降级（voice.turn.degraded），mode 见 TurnTrace.DEGRADED_*。
+     */
+    void degraded(String mode) {
+        Counter.builder(DEGRADED_METRIC).tag("mode", mode).register(meterRegistry).increment();
+    }
+
+    void record(String stage, String role, String path, long nanos) {
+        Timer.builder(METRIC)
+                .tag("stage", stage)
+                .tag("role", role == null || role.isEmpty() ? "default" : role)
+                .tag("path", path)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(60))
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,125 @@
+package com.maverick.maverickchatbot.metrics;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * 单轮对话的分阶段耗时记录。各阶段可能在不同线程中完成（如后台生成的回答、记忆摘要），故方法均同步。
+ * 同一阶段多次记录时累加（如一轮中两次向量检索）；{@link #finish()} 时按最终 path 一次性写入 Timer。
+ */
+public class TurnTrace {
+
+    public static final String PREPROCESS = "preprocess";
+    public static final String ASR = "asr";
+    public static final String REWRITE = "rewrite";
+    public static final String EMBED = "embed";
+    public static final String VECTOR_SEARCH = "vector_search";
+    public static final String TRANSFER = "transfer";
+    public static final String FIRST_TOKEN = "first_token";
+    public static final String GENERATE = "generate";
+    public static final String SUMMARY = "summary";
+    public static final String TTS = "tts";
+    public static final String TURN = "turn";
+
+    // 直接由当前角色回答 / 跨角色转接 / 知识库未命中直接回复 / 噪声或重复被丢弃 / 过载被准入控制拒绝
+    public static final String PATH_DIRECT = "direct";
+    public static final String PATH_ESCALATED = "escalated";
+    public static final String PATH_NO_RAG = "no_rag";
+    public static final String PATH_DROPPED = "dropped";
+    public static final String PATH_SHED = "shed";
+
+    // 依赖熔断或变慢时的降级方式：仅文本回复（TTS 熔断）/ 无知识库生成（向量化或向量库熔断）/ 跳过改写与摘要（LLM 变慢）
+    public static final String DEGRADED_TEXT_ONLY = "text_only";
+    public static final String DEGRADED_NO_RAG = "no_rag";
+    public static final String DEGRADED_SKIP_REWRITE = "skip_rewrite";
+    public static final String DEGRADED_SKIP_SUMMARY = "skip_summary";
+
+    /** 不计时的空实现，供未开启追踪的调用方使用。 */
+    public static final TurnTrace NOOP = new TurnTrace(null, null);
+
+    private final StageTimers timers;
+    private final String role;
+    private final long startNs = System.nanoTime();
+    private final Map<String, Long> stagesNs = new LinkedHashMap<>();
+    private final Set<String> degraded = new LinkedHashSet<>();
+    private String path = PATH_DROPPED;
+    private boolean finished;
+
+    TurnTrace(StageTimers timers, String role) {
+        this.timers = timers;
+        this.role = role;
+    }
+
+    public synchronized void record(String stage, long nanos) {
+        if (timers == null || finished) return;
+        stagesNs.merge(stage, nanos, Long::sum);
+    }
+
+    /**
+     * 记录从本轮开始到此刻的耗时，用于首 token 等“用户感知”类阶段。
+     */
+    public void mark(String stage) {
+        record(stage, System.nanoTime() - startNs);
+    }
+
+    public <T> T time(String stage, Supplier<T> body) {
+        long start = System.nanoTime();
+        try {
+            return body.get();
+        } finally {
+            record(stage, System.nanoTime() - start);
+        }
+    }
+
+    public synchronized void path(String path) {
+        this.path = path;
+    }
+
+    public synchronized String getPath() {
+        return path;
+    }
+
+    /**
+     * 标记本轮的一种降级方式（见 DEGRADED_*），{@link #finish()} 时计入 voice.turn.degraded。
+     */
+    public synchronized void degrade(String mode) {
+        if (timers == null || finished) return;
+        degraded.add(mode);
+    }
+
+    public synchronized Set<String> getDegraded() {
+        return Collections.unmodifiableSet(new LinkedHashSet<>(degraded));
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    public long elapsedMs() {
+        return (System.nanoTime() - startNs) / 1_000_000;
+    }
+
+    /**
+     * 各阶段耗时（毫秒），按首次记录的顺序。
+     */
+    public synchronized Map<String, Long> stagesMs() {
+        Map<String, Long> out = new LinkedHashMap<>();
+        stagesNs.forEach((k, v) -> out.put(k, v / 1_000_000));
+        return Collections.unmodifiableMap(out);
+    }
+
+    /**
+     * 结束本轮：补记总耗时并写入 Timer；重复调用无效果。
+     */
+    public synchronized void finish() {
+        if (timers == null || finished) return;
+        stagesNs.merge(TURN, System.nanoTime() - startNs, Long::sum);
+        finished = true;
+        stagesNs.forEach((stage, ns) -> timers.record(stage, role, path, ns));
+        degraded.forEach(timers::degraded);
+    }
+}
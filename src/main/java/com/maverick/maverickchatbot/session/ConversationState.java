@@ -0,0 +1,51 @@
+package com.maverick.maverickchatbot.session;
+
+import com.maverick.maverickchatbot.ai.asr.AudioFingerprint;
+import lombok.Data;
+
+/**
+ * 一个会话跨轮次的对话状态，按会话令牌保存在 {@link SessionStore} 中，断线重连后凭令牌恢复。
+ * 同一会话的轮次串行处理，字段不做额外同步。
+ */
+@Data
+public class ConversationState {
+
+    // 对象头、时间戳等固定开销的估算值
+    private static final int BASE_BYTES = 96;
+
+    private final String token;
+    private final long createdAt;
+    private volatile long lastAccessAt;
+
+    private String roleId;
+    private String lastQuery;
+    private String topicSummary;
+    private String memorySummary;
+    private String lastEscalatedRoleId;
+
+    // 去重：上一轮已处理的 ASR 文本、上一段音频的指纹及时间
+    private String lastProcessedText;
+    private long lastProcessedAt;
+    private AudioFingerprint lastAudioFingerprint;
+    private long lastAudioAt;
+
+    public ConversationState(String token, long now) {
+        this.token = token;
+        this.createdAt = now;
+        this.lastAccessAt = now;
+    }
+
+    /**
+     * 估算占用字节数（字符串按 UTF-16 计），用于会话存储的内存上限。
+     */
+    public long estimatedBytes() {
+        long bytes = BASE_BYTES + chars(token) + chars(roleId) + chars(lastQuery) + chars(topicSummary)
+                + chars(memorySummary) + chars(lastEscalatedRoleId) + chars(lastProcessedText);
+        if (lastAudioFingerprint != null) bytes += lastAudioFingerprint.sizeBytes();
+        return bytes;
+    }
+
+    private static long chars(String s) {
+        return s == null ? 0 : 40 + 2L * s.length();
+    }
+}
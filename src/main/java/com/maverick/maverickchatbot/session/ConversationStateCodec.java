@@ -0,0 +1,41 @@
+package com.maverick.maverickchatbot.session;
+
+import com.alibaba.fastjson.JSONObject;
+
+/**
+ * 会话状态与 JSON 的互转，供持久化/外部存储使用。
+ * 音频指纹只用于秒级去重，不持久化；未知字段忽略，缺失字段取默认值，便于增减字段后读取旧数据。
+ */
+final class ConversationStateCodec {
+
+    private ConversationStateCodec() {
+    }
+
+    static JSONObject toJson(ConversationState state) {
+        JSONObject o = new JSONObject(true);
+        o.put("token", state.getToken());
+        o.put("createdAt", state.getCreatedAt());
+        o.put("lastAccessAt", state.getLastAccessAt());
+        o.put("roleId", state.getRoleId());
+        o.put("lastQuery", state.getLastQuery());
+        o.put("topicSummary", state.getTopicSummary());
+        o.put("memorySummary", state.getMemorySummary());
+        o.put("lastEscalatedRoleId", state.getLastEscalatedRoleId());
+        o.put("lastProcessedText", state.getLastProcessedText());
+        o.put("lastProcessedAt", state.getLastProcessedAt());
+        return o;
+    }
+
+    static ConversationState fromJson(JSONObject o) {
+        ConversationState state = new ConversationState(o.getString("token"), o.getLongValue("createdAt"));
+        state.setLastAccessAt(o.getLongValue("lastAccessAt"));
+        state.setRoleId(o.getString("roleId"));
+        state.setLastQuery(o.getString("lastQuery"));
+        state.setTopicSummary(o.getString("topicSummary"));
+        state.setMemorySummary(o.getString("memorySummary"));
+        state.setLastEscalatedRoleId(o.getString("lastEscalatedRoleId"));
+        state.setLastProcessedText(o.getString("lastProcessedText"));
+        state.setLastProcessedAt(o.getLongValue("lastProcessedAt"));
+        return state;
+    }
+}
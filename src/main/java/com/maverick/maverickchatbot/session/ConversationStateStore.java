@@ -0,0 +1,21 @@
+package com.maverick.maverickchatbot.session;
+
+/**
+ * 会话状态的存储 SPI。实现按 session.store 选择：memory（进程内，默认）、file（本地追加日志 + 快照）、
+ * kv（外部共享 KV，经 {@link KeyValueClient} 接入）。后两者可在重启、扩缩容后凭令牌恢复会话。
+ * 实现需线程安全；过期（空闲超过 session.ttl-ms）的会话视为不存在。
+ */
+public interface ConversationStateStore {
+
+    /**
+     * 按令牌加载；不存在或已过期返回 null。
+     */
+    ConversationState load(String token);
+
+    /**
+     * 写入（新建或覆盖）。
+     */
+    void save(ConversationState state);
+
+    void delete(String token);
+}
@@ -0,0 +1,452 @@
+package com.maverick.maverickchatbot.session;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * 本地磁盘会话存储（session.store=file）：每次写入向追加日志记一行 JSON（put 整个状态 / del 令牌），
+ * 日志超过 compactBytes 时把存活会话写成快照（先写临时文件再原子替换），日志只保留快照之后追加的部分。
+ * 压缩只在锁内复制存活会话与切换日志，写快照与 fsync 在锁外进行，期间其他会话照常读写。
+ * 启动时读快照再重放日志；末行写到一半（进程崩溃）时跳过。内存中只保留每个会话最新的一行 JSON。
+ * 快照替换后、日志切换前崩溃也安全：日志中每条都是整状态覆盖，按序重放结果与快照一致。
+ * 与内存存储相同按访问顺序（LRU）维护，会话数或估算内存超限时淘汰最久未访问的会话，淘汰同样记 del 行。
+ * 开启 fsync 时采用组提交：写入方在锁内追加、锁外等待落盘，一次 force 覆盖此前所有已追加的写入。
+ */
+@Slf4j
+public class FileConversationStateStore implements ConversationStateStore, AutoCloseable {
+
+    static final String SNAPSHOT = "sessions.snapshot.jsonl";
+    static final String LOG = "sessions.log.jsonl";
+    private static final String TMP = ".tmp";
+
+    private final SessionProperties properties;
+    private final LongSupplier clock;
+    private final Path snapshotFile;
+    private final Path logFile;
+    private final Counter compactions;
+    private final Counter fsyncs;
+    private final MeterRegistry meterRegistry;
+    // 串行化压缩（含关闭时的最后一次），整个压缩期间持有；加锁顺序 compactLock -> lock -> syncLock
+    private final ReentrantLock compactLock = new ReentrantLock();
+    private final ReentrantLock lock = new ReentrantLock();
+    // 只在 force 与切换日志文件时持有
+    private final ReentrantLock syncLock = new ReentrantLock();
+    // token -> 最新的状态 JSON 与访问时间，按访问顺序
+    private final LinkedHashMap<String, Record> index = new LinkedHashMap<>(256, 0.75f, true);
+    private volatile FileChannel logChannel;
+    private long logBytes;
+    private long totalBytes;
+    private long lastSweepAt;
+    // 已有写入方认领了本轮压缩
+    private boolean compacting;
+    // 已追加 / 已落盘的写入序号
+    private volatile long writtenSeq;
+    private volatile long syncedSeq;
+
+    public FileConversationStateStore(SessionProperties properties, MeterRegistry meterRegistry, LongSupplier clock) {
+        this.properties = properties;
+        this.clock = clock;
+        Path dir = Path.of(properties.getFile().getDir());
+        this.snapshotFile = dir.resolve(SNAPSHOT);
+        this.logFile = dir.resolve(LOG);
+        this.meterRegistry = meterRegistry;
+        this.lastSweepAt = clock.getAsLong();
+        this.compactions = Counter.builder("session.store.compactions").register(meterRegistry);
+        this.fsyncs = Counter.builder("session.store.fsyncs").register(meterRegistry);
+        Gauge.builder("session.store.sessions", this, FileConversationStateStore::size).register(meterRegistry);
+        Gauge.builder("session.store.bytes", this, FileConversationStateStore::bytes).register(meterRegistry);
+        try {
+            Files.createDirectories(dir);
+            recover();
+            enforceLimits(null);
+            // 启动即压缩一次：丢弃过期会话，日志从空开始
+            compact();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Open session store at " + dir.toAbsolutePath() + " failed", e);
+        }
+        log.info("File session store opened at {}: {} sessions", dir.toAbsolutePath(), index.size());
+    }
+
+    @Override
+    public ConversationState load(String token) {
+        long now = clock.getAsLong();
+        String json;
+        lock.lock();
+        try {
+            sweepIfDue(now);
+            Record record = index.get(token);
+            if (record == null) return null;
+            if (expired(record, now)) {
+                remove(token);
+                evicted("ttl");
+                return null;
+            }
+            json = record.json;
+        } finally {
+            lock.unlock();
+        }
+        return ConversationStateCodec.fromJson(JSON.parseObject(json));
+    }
+
+    /**
+     * 写入并按上限淘汰；刚写入的会话不会被淘汰。开启 fsync 时返回前已落盘。
+     */
+    @Override
+    public void save(ConversationState state) {
+        String json = ConversationStateCodec.toJson(state).toJSONString();
+        JSONObject entry = new JSONObject(true);
+        entry.put("op", "put");
+        entry.put("state", JSON.parseObject(json));
+        String line = entry.toJSONString();
+        long seq;
+        boolean compactDue;
+        lock.lock();
+        try {
+            seq = append(line);
+            Record record = new Record(json, state.getLastAccessAt());
+            Record previous = index.put(state.getToken(), record);
+            totalBytes += record.bytes() - (previous == null ? 0 : previous.bytes());
+            enforceLimits(state.getToken());
+            compactDue = claimCompaction();
+        } finally {
+            lock.unlock();
+        }
+        awaitDurable(seq);
+        if (compactDue) compactInBackground();
+    }
+
+    @Override
+    public void delete(String token) {
+        long seq;
+        lock.lock();
+        try {
+            if (!remove(token)) return;
+            evicted("deleted");
+            seq = append(delLine(token));
+        } finally {
+            lock.unlock();
+        }
+        awaitDurable(seq);
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return index.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 全部会话的估算内存（字节）。
+     */
+    public long bytes() {
+        lock.lock();
+        try {
+            return totalBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 等待进行中的压缩结束后做最后一次压缩并关闭日志；压缩失败时仍把日志落盘，已返回的写入不丢。
+     */
+    @Override
+    public void close() {
+        compactLock.lock();
+        lock.lock();
+        try {
+            if (logChannel == null) return;
+            try {
+                compact();
+            } catch (IOException e) {
+                log.warn("Final session store compaction failed: {}", e.toString());
+            }
+            syncLock.lock();
+            try {
+                logChannel.force(false);
+                syncedSeq = writtenSeq;
+                logChannel.close();
+            } finally {
+                logChannel = null;
+                syncLock.unlock();
+            }
+        } catch (IOException e) {
+            log.warn("Close session store failed: {}", e.toString());
+        } finally {
+            lock.unlock();
+            compactLock.unlock();
+        }
+    }
+
+    private void recover() throws IOException {
+        long now = clock.getAsLong();
+        int snapshotCount = 0;
+        int replayed = 0;
+        if (Files.exists(snapshotFile)) {
+            try (BufferedReader reader = Files.newBufferedReader(snapshotFile, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    JSONObject state = parse(line, snapshotFile);
+                    if (state == null) continue;
+                    index.put(state.getString("token"), new Record(line, state.getLongValue("lastAccessAt")));
+                    snapshotCount++;
+                }
+            }
+        }
+        if (Files.exists(logFile)) {
+            try (BufferedReader reader = Files.newBufferedReader(logFile, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    JSONObject entry = parse(line, logFile);
+                    if (entry == null) continue;
+                    if ("del".equals(entry.getString("op"))) {
+                        index.remove(entry.getString("token"));
+                    } else {
+                        JSONObject state = entry.getJSONObject("state");
+                        index.put(state.getString("token"), new Record(state.toJSONString(), state.getLongValue("lastAccessAt")));
+                    }
+                    replayed++;
+                }
+            }
+        }
+        index.values().removeIf(r -> expired(r, now));
+        for (Record r : index.values()) totalBytes += r.bytes();
+        log.info("Session store recovered: snapshot={} log={} live={}", snapshotCount, replayed, index.size());
+    }
+
+    private JSONObject parse(String line, Path file) {
+        if (line.isBlank()) return null;
+        try {
+            return JSON.parseObject(line);
+        } catch (RuntimeException e) {
+            log.warn("Skip corrupt line in {}: {}", file.getFileName(), e.getMessage());
+            return null;
+        }
+    }
+
+    // 持有 lock 调用；返回本次写入的序号，供锁外等待落盘
+    private long append(String line) {
+        byte[] bytes = (line + "\n").getBytes(StandardCharsets.UTF_8);
+        try {
+            ByteBuffer buf = ByteBuffer.wrap(bytes);
+            while (buf.hasRemaining()) logChannel.write(buf);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Append session log failed", e);
+        }
+        logBytes += bytes.length;
+        return ++writtenSeq;
+    }
+
+    /**
+     * 组提交：已被其他写入方的 force 覆盖则直接返回，否则一次 force 覆盖当前已追加的全部写入。
+     * 不持有 lock，等待落盘期间其他会话可继续追加。
+     */
+    private void awaitDurable(long seq) {
+        if (!properties.getFile().isFsync() || syncedSeq >= seq) return;
+        syncLock.lock();
+        try {
+            if (syncedSeq >= seq) return;
+            FileChannel channel = logChannel;
+            // 关闭时已把全部已追加的写入落盘；仍未覆盖说明关闭时落盘失败
+            if (channel == null) throw new IllegalStateException("Session store closed before write became durable");
+            long upTo = writtenSeq;
+            channel.force(false);
+            syncedSeq = upTo;
+            fsyncs.increment();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Sync session log failed", e);
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    private void enforceLimits(String keep) {
+        Iterator<Map.Entry<String, Record>> it = index.entrySet().iterator();
+        while ((index.size() > properties.getMaxSessions() || totalBytes > properties.getMaxBytes()) && it.hasNext()) {
+            Map.Entry<String, Record> eldest = it.next();
+            if (eldest.getKey().equals(keep)) continue;
+            String reason = index.size() > properties.getMaxSessions() ? "size" : "memory";
+            it.remove();
+            totalBytes -= eldest.getValue().bytes();
+            evicted(reason);
+            // 记 del 行，重启重放后不会复活；构造期间由随后的压缩一并落盘
+            if (logChannel != null) append(delLine(eldest.getKey()));
+        }
+    }
+
+    // 访问顺序即空闲时长顺序：从最久未访问开始，遇到未过期的即停止。过期无需记日志，重启时按 ttl 重新判定
+    private void sweepIfDue(long now) {
+        if (now - lastSweepAt < properties.getSweepIntervalMs()) return;
+        lastSweepAt = now;
+        Iterator<Record> it = index.values().iterator();
+        int removed = 0;
+        while (it.hasNext()) {
+            Record record = it.next();
+            if (!expired(record, now)) break;
+            it.remove();
+            totalBytes -= record.bytes();
+            evicted("ttl");
+            removed++;
+        }
+        if (removed > 0) log.debug("Session store swept {} expired sessions, {} remain", removed, index.size());
+    }
+
+    private boolean remove(String token) {
+        Record record = index.remove(token);
+        if (record == null) return false;
+        totalBytes -= record.bytes();
+        return true;
+    }
+
+    private static String delLine(String token) {
+        JSONObject entry = new JSONObject(true);
+        entry.put("op", "del");
+        entry.put("token", token);
+        return entry.toJSONString();
+    }
+
+    private void evicted(String reason) {
+        Counter.builder("session.store.evicted").tag("reason", reason).register(meterRegistry).increment();
+    }
+
+    // 持有 lock 调用：日志超限且无进行中的压缩时由当前写入方认领
+    private boolean claimCompaction() {
+        if (compacting || logBytes < properties.getFile().getCompactBytes()) return false;
+        compacting = true;
+        return true;
+    }
+
+    // 认领压缩的写入方在锁外执行：锁内只复制存活会话与切换日志
+    private void compactInBackground() {
+        compactLock.lock();
+        try {
+            Snapshot snapshot;
+            lock.lock();
+            try {
+                if (logChannel == null) return;
+                snapshot = capture();
+            } finally {
+                lock.unlock();
+            }
+            writeSnapshot(snapshot.lines);
+            lock.lock();
+            try {
+                if (logChannel != null) swapLog(snapshot.logMark);
+            } finally {
+                lock.unlock();
+            }
+        } catch (IOException e) {
+            log.warn("Session store compaction failed, keep appending: {}", e.toString());
+        } finally {
+            lock.lock();
+            compacting = false;
+            lock.unlock();
+            compactLock.unlock();
+        }
+    }
+
+    // 持有 lock 调用（构造与关闭期间），快照覆盖当前全部日志
+    private void compact() throws IOException {
+        Snapshot snapshot = capture();
+        writeSnapshot(snapshot.lines);
+        swapLog(snapshot.logMark);
+    }
+
+    // 持有 lock 调用：丢弃过期会话，复制存活会话并记下快照覆盖到的日志位置
+    private Snapshot capture() {
+        long now = clock.getAsLong();
+        List<String> lines = new ArrayList<>(index.size());
+        Iterator<Record> it = index.values().iterator();
+        while (it.hasNext()) {
+            Record record = it.next();
+            if (expired(record, now)) {
+                it.remove();
+                totalBytes -= record.bytes();
+                continue;
+            }
+            lines.add(record.json);
+        }
+        return new Snapshot(lines, logBytes);
+    }
+
+    // 不需持有 lock：先写临时文件并 force，再原子替换
+    private void writeSnapshot(List<String> lines) throws IOException {
+        Path tmp = snapshotFile.resolveSibling(SNAPSHOT + TMP);
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (String json : lines) {
+                ByteBuffer buf = ByteBuffer.wrap((json + "\n").getBytes(StandardCharsets.UTF_8));
+                while (buf.hasRemaining()) out.write(buf);
+            }
+            out.force(true);
+        }
+        Files.move(tmp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 持有 lock 调用：新日志只保留快照之后追加的部分（写快照期间的写入），force 后原子替换旧日志。
+     * 快照与新日志均已 force，此前追加的写入均已落盘；切换期间不能有 force 进行中。
+     */
+    private void swapLog(long logMark) throws IOException {
+        Path tmp = logFile.resolveSibling(LOG + TMP);
+        long tail = logBytes - logMark;
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            if (tail > 0) {
+                try (FileChannel in = FileChannel.open(logFile, StandardOpenOption.READ)) {
+                    long copied = 0;
+                    while (copied < tail) copied += in.transferTo(logMark + copied, tail - copied, out);
+                }
+            }
+            out.force(false);
+        }
+        syncLock.lock();
+        try {
+            // 先替换再关闭旧日志：替换失败时旧日志仍可继续追加
+            Files.move(tmp, logFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            if (logChannel != null) logChannel.close();
+            logChannel = FileChannel.open(logFile, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            syncedSeq = writtenSeq;
+        } finally {
+            syncLock.unlock();
+        }
+        logBytes = tail;
+        compactions.increment();
+    }
+
+    private boolean expired(Record record, long now) {
+        return now - record.lastAccessAt > properties.getTtlMs();
+    }
+
+    private record Snapshot(List<String> lines, long logMark) {
+    }
+
+    private record Record(String json, long lastAccessAt) {
+        long bytes() {
+            return 40 + 2L * json.length();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.maverick.maverickchatbot.session;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * 进程内会话存储（session.store=memory）：直接持有状态对象，按访问顺序维护（LRU）。
+ * 空闲超过 ttl 的会话在访问时顺带清理；会话数或估算内存超限时淘汰最久未访问的会话。重启即丢失。
+ */
+@Slf4j
+public class InMemoryConversationStateStore implements ConversationStateStore {
+
+    private final SessionProperties properties;
+    private final LongSupplier clock;
+    private final MeterRegistry meterRegistry;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<String, Entry> sessions = new LinkedHashMap<>(256, 0.75f, true);
+    private long totalBytes;
+    private long lastSweepAt;
+
+    public InMemoryConversationStateStore(SessionProperties properties, MeterRegistry meterRegistry, LongSupplier clock) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.clock = clock;
+        this.lastSweepAt = clock.getAsLong();
+        Gauge.builder("session.store.sessions", this, InMemoryConversationStateStore::size).register(meterRegistry);
+        Gauge.builder("session.store.bytes", this, InMemoryConversationStateStore::bytes).register(meterRegistry);
+    }
+
+    @Override
+    public ConversationState load(String token) {
+        long now = clock.getAsLong();
+        lock.lock();
+        try {
+            sweepIfDue(now);
+            Entry entry = sessions.get(token);
+            if (entry == null) return null;
+            if (expired(entry.state, now)) {
+                remove(token, "ttl");
+                return null;
+            }
+            return entry.state;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 写入并按上限淘汰；刚写入的会话（正在使用中）不会被淘汰，已被淘汰的会话重新放回。
+     */
+    @Override
+    public void save(ConversationState state) {
+        lock.lock();
+        try {
+            long bytes = state.estimatedBytes();
+            Entry previous = sessions.put(state.getToken(), new Entry(state, bytes));
+            totalBytes += bytes - (previous == null ? 0 : previous.bytes);
+            enforceLimits(state.getToken());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void delete(String token) {
+        lock.lock();
+        try {
+            remove(token, "deleted");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return sessions.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 全部会话的估算内存（字节）。
+     */
+    public long bytes() {
+        lock.lock();
+        try {
+            return totalBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void enforceLimits(String keep) {
+        Iterator<Map.Entry<String, Entry>> it = sessions.entrySet().iterator();
+        while ((sessions.size() > properties.getMaxSessions() || totalBytes > properties.getMaxBytes()) && it.hasNext()) {
+            Map.Entry<String, Entry> eldest = it.next();
+            if (eldest.getKey().equals(keep)) continue;
+            String reason = sessions.size() > properties.getMaxSessions() ? "size" : "memory";
+            it.remove();
+            totalBytes -= eldest.getValue().bytes;
+            evicted(reason);
+        }
+    }
+
+    // 访问顺序即空闲时长顺序：从最久未访问开始，遇到未过期的即停止
+    private void sweepIfDue(long now) {
+        if (now - lastSweepAt < properties.getSweepIntervalMs()) return;
+        lastSweepAt = now;
+        Iterator<Entry> it = sessions.values().iterator();
+        int removed = 0;
+        while (it.hasNext()) {
+            Entry entry = it.next();
+            if (!expired(entry.state, now)) break;
+            it.remove();
+            totalBytes -= entry.bytes;
+            evicted("ttl");
+            removed++;
+        }
+        if (removed > 0) log.debug("Session store swept {} expired sessions, {} remain", removed, sessions.size());
+    }
+
+    private void remove(String token, String reason) {
+        Entry entry = sessions.remove(token);
+        if (entry == null) return;
+        totalBytes -= entry.bytes;
+        evicted(reason);
+    }
+
+    private boolean expired(ConversationState state, long now) {
+        return now - state.getLastAccessAt() > properties.getTtlMs();
+    }
+
+    private void evicted(String reason) {
+        Counter.builder("session.store.evicted").tag("reason", reason).register(meterRegistry).increment();
+    }
+
+    private record Entry(ConversationState state, long bytes) {
+    }
+}
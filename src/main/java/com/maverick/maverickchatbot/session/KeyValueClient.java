@@ -0,0 +1,20 @@
+package com.maverick.maverickchatbot.session;
+
+/**
+ * 外部 KV 的最小接口（形如 Redis 的 GET / SET PX / DEL），由部署方以 Bean 形式提供，
+ * 供 {@link KeyValueConversationStateStore} 使用。
+ */
+public interface KeyValueClient {
+
+    /**
+     * 不存在或已过期返回 null。
+     */
+    String get(String key);
+
+    /**
+     * 写入并设置过期时间（毫秒）。
+     */
+    void set(String key, String value, long ttlMs);
+
+    void delete(String key);
+}
@@ -0,0 +1,38 @@
+package com.maverick.maverickchatbot.session;
+
+import com.alibaba.fastjson.JSON;
+
+/**
+ * 外部 KV 会话存储（session.store=kv）：状态序列化为 JSON 存在 keyPrefix + token 下，
+ * 过期交给 KV 自身的 TTL（每次写入续期），多个节点共享同一份会话。
+ */
+public class KeyValueConversationStateStore implements ConversationStateStore {
+
+    private final KeyValueClient client;
+    private final SessionProperties properties;
+
+    public KeyValueConversationStateStore(KeyValueClient client, SessionProperties properties) {
+        this.client = client;
+        this.properties = properties;
+    }
+
+    @Override
+    public ConversationState load(String token) {
+        String json = client.get(key(token));
+        return json == null ? null : ConversationStateCodec.fromJson(JSON.parseObject(json));
+    }
+
+    @Override
+    public void save(ConversationState state) {
+        client.set(key(state.getToken()), ConversationStateCodec.toJson(state).toJSONString(), properties.getTtlMs());
+    }
+
+    @Override
+    public void delete(String token) {
+        client.delete(key(token));
+    }
+
+    private String key(String token) {
+        return properties.getKv().getKeyPrefix() + token;
+    }
+}
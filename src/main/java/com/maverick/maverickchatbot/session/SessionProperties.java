@@ -0,0 +1,45 @@
+package com.maverick.maverickchatbot.session;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 会话存储配置（session.*）。
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "session")
+public class SessionProperties {
+
+    // 存储后端：memory（进程内，默认）/ file（本地磁盘，重启可恢复）/ kv（外部 KV，多节点共享）
+    private String store = "memory";
+
+    // 空闲超过 ttl 的会话被淘汰，重连也无法恢复
+    private long ttlMs = 30 * 60 * 1000L;
+
+    // 会话数与估算内存的上限，超出时按最久未访问淘汰
+    private int maxSessions = 10000;
+    private long maxBytes = 64L * 1024 * 1024;
+
+    // 过期清理的最小间隔（在访问时顺带进行，不另起线程）
+    private long sweepIntervalMs = 60 * 1000L;
+
+    private File file = new File();
+
+    private Kv kv = new Kv();
+
+    @Data
+    public static class File {
+        private String dir = "data/sessions";
+        // 追加日志超过该大小时压缩为快照
+        private long compactBytes = 4L * 1024 * 1024;
+        // 写入返回前 fsync（并发写入组提交，共用一次 force）；关闭时依赖页缓存，进程崩溃不丢数据，机器掉电可能丢失最后几轮
+        private boolean fsync = false;
+    }
+
+    @Data
+    public static class Kv {
+        private String keyPrefix = "maverick:session:";
+    }
+}
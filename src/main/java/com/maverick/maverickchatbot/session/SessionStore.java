@@ -0,0 +1,121 @@
+package com.maverick.maverickchatbot.session;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * 会话入口：发放会话令牌，按令牌从 {@link ConversationStateStore} 恢复 {@link ConversationState}，
+ * 与 WebSocket 连接解耦，断线重连（以及外部存储下的重启、换节点）凭令牌恢复上下文。
+ * 令牌由服务端随机生成，客户端携带未知或已过期的令牌时发放新会话，不接受客户端自选令牌。
+ * 存储读写失败不影响对话本身：读失败按新会话处理，写失败只记日志与计数。
+ * 同一令牌同一时刻只允许一轮在进行（{@link #tryBeginTurn}），文本接口并发请求与 WS 重连时新旧连接重叠
+ * 都不会并发改写同一会话；该标记只在本节点有效，多节点部署需按令牌粘性路由。
+ */
+@Component
+@Slf4j
+public class SessionStore {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final ConversationStateStore store;
+    private final LongSupplier clock;
+    private final MeterRegistry meterRegistry;
+    private final Set<String> turnsInFlight = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public SessionStore(ConversationStateStore store, MeterRegistry meterRegistry) {
+        this(store, meterRegistry, System::currentTimeMillis);
+    }
+
+    SessionStore(ConversationStateStore store, MeterRegistry meterRegistry, LongSupplier clock) {
+        this.store = store;
+        this.meterRegistry = meterRegistry;
+        this.clock = clock;
+    }
+
+    /**
+     * 按令牌恢复会话；令牌为空、未知或已过期时新建会话（新令牌）。返回状态的令牌与入参相同即为恢复成功。
+     */
+    public ConversationState open(String token) {
+        long now = clock.getAsLong();
+        if (token != null && !token.isEmpty()) {
+            ConversationState state = load(token);
+            if (state != null) {
+                state.setLastAccessAt(now);
+                save(state);
+                opened("resumed");
+                return state;
+            }
+            opened("expired");
+        } else {
+            opened("new");
+        }
+        ConversationState state = new ConversationState(newToken(), now);
+        save(state);
+        return state;
+    }
+
+    /**
+     * 一轮结束后回写：刷新访问时间并写入存储。
+     */
+    public void commit(ConversationState state) {
+        state.setLastAccessAt(clock.getAsLong());
+        save(state);
+    }
+
+    /**
+     * 标记该令牌开始一轮；已有一轮在进行时返回 false，调用方应拒绝本轮（不回写会话）。
+     * 返回 true 时必须在本轮结束后调用 {@link #endTurn}。
+     */
+    public boolean tryBeginTurn(String token) {
+        if (turnsInFlight.add(token)) return true;
+        Counter.builder("session.turn.conflicts").register(meterRegistry).increment();
+        return false;
+    }
+
+    public void endTurn(String token) {
+        turnsInFlight.remove(token);
+    }
+
+    private ConversationState load(String token) {
+        try {
+            return store.load(token);
+        } catch (RuntimeException e) {
+            log.warn("Load conversation state failed, start a new session: {}", e.toString());
+            storeError("load");
+            return null;
+        }
+    }
+
+    private void save(ConversationState state) {
+        try {
+            store.save(state);
+        } catch (RuntimeException e) {
+            log.warn("Save conversation state failed: {}", e.toString());
+            storeError("save");
+        }
+    }
+
+    private void storeError(String op) {
+        Counter.builder("session.store.errors").tag("op", op).register(meterRegistry).increment();
+    }
+
+    private void opened(String result) {
+        Counter.builder("session.store.opened").tag("result", result).register(meterRegistry).increment();
+    }
+
+    private static String newToken() {
+        byte[] bytes = new byte[24];
+        RANDOM.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
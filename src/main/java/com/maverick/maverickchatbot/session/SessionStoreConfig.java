@@ -0,0 +1,42 @@
+package com.maverick.maverickchatbot.session;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 按 session.store 选择会话存储后端
+ */
+@Configuration
+public class SessionStoreConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "session.store", havingValue = "memory", matchIfMissing = true)
+    public ConversationStateStore conversationStateStore(SessionProperties properties, MeterRegistry meterRegistry) {
+        return new InMemoryConversationStateStore(properties, meterRegistry, System::currentTimeMillis);
+    }
+
+    /**
+     * 关闭时压缩一次，下次启动只需读快照。
+     */
+    @Bean(name = "conversationStateStore", destroyMethod = "close")
+    @ConditionalOnProperty(name = "session.store", havingValue = "file")
+    public ConversationStateStore fileConversationStateStore(SessionProperties properties, MeterRegistry meterRegistry) {
+        return new FileConversationStateStore(properties, meterRegistry, System::currentTimeMillis);
+    }
+
+    /**
+     * KeyValueClient 由部署方提供（如基于 Redis 客户端的实现），未提供时启动失败。
+     */
+    @Bean("conversationStateStore")
+    @ConditionalOnProperty(name = "session.store", havingValue = "kv")
+    public ConversationStateStore keyValueConversationStateStore(ObjectProvider<KeyValueClient> client, SessionProperties properties) {
+        KeyValueClient kv = client.getIfAvailable();
+        if (kv == null) {
+            throw new IllegalStateException("session.store=kv requires a KeyValueClient bean");
+        }
+        return new KeyValueConversationStateStore(kv, properties);
+    }
+}
@@ -0,0 +1,80 @@
+package com.maverick.maverickchatbot.tools.loadtest;
+
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * sherpa-onnx 风格 ASR 桩：接受任意音频请求体，按延迟分布等待后轮换返回预置问句 {"text":"..."}。
+ * 路径以 -batch 结尾时按批量格式解析，整批只等待一次，返回 {"results":[{"text":"..."}...]}。
+ */
+@Slf4j
+final class AsrStub {
+
+    private final HttpServer server;
+    private final List<String> texts;
+    private final LatencyModel latency;
+    private final AtomicLong seq = new AtomicLong();
+
+    AsrStub(int port, List<String> texts, LatencyModel latency) throws IOException {
+        this.texts = texts;
+        this.latency = latency;
+        this.server = HttpServer.create(new InetSocketAddress(port), 512);
+        this.server.createContext("/", this::handle);
+        this.server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    void start() {
+        server.start();
+        log.info("ASR stub listening on :{} latency={} texts={}", server.getAddress().getPort(), latency, texts.size());
+    }
+
+    void stop() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange ex) throws IOException {
+        try (ex; InputStream in = ex.getRequestBody()) {
+            JSONObject body = new JSONObject();
+            if (ex.getRequestURI().getPath().endsWith("-batch")) {
+                // 批量格式：[条数 int32][各条长度 int32...][音频]，只需条数
+                int count = new DataInputStream(in).readInt();
+                in.transferTo(OutputStream.nullOutputStream());
+                latency.sleep();
+                JSONArray results = new JSONArray();
+                for (int i = 0; i < count; i++) {
+                    JSONObject r = new JSONObject();
+                    r.put("text", nextText());
+                    results.add(r);
+                }
+                body.put("results", results);
+            } else {
+                in.transferTo(OutputStream.nullOutputStream());
+                latency.sleep();
+                body.put("text", nextText());
+            }
+            byte[] bytes = body.toJSONString().getBytes(StandardCharsets.UTF_8);
+            ex.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            ex.sendResponseHeaders(200, bytes.length);
+            ex.getResponseBody().write(bytes);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private String nextText() {
+        return texts.get((int) (seq.getAndIncrement() % texts.size()));
+    }
+}
@@ -0,0 +1,210 @@
+package com.maverick.maverickchatbot.tools.loadtest;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * DashScope 协议的对话与向量化桩（base-url 指向 http://host:port/api/v1）。
+ * <ul>
+ *   <li>.../text-generation/generation：非流式返回整段；请求头 X-DashScope-SSE: enable 时按 SSE 逐 token 返回，
+ *       首 token 与 token 间隔各自服从延迟分布；按提示词特征区分改写/过渡话/摘要/回答。</li>
+ *   <li>.../text-embedding/text-embedding：返回 {@link StubEmbeddings} 的确定性向量。</li>
+ * </ul>
+ */
+@Slf4j
+final class DashScopeStub {
+
+    private static final Pattern QUOTED = Pattern.compile("“([^”]+)”");
+    private static final Pattern UTTERANCE = Pattern.compile("<current_utterance>\\s*(.*?)\\s*</current_utterance>", Pattern.DOTALL);
+    private static final String ANSWER_TEXT =
+            "依我之见，此事当从大局出发，先稳根本，再图进取。兵法有云，知己知彼，百战不殆。" +
+            "若能审时度势，广纳良言，则事可成矣。你且安心，容我细细道来。";
+
+    private final HttpServer server;
+    private final LatencyModel chatLatency;
+    private final LatencyModel firstToken;
+    private final LatencyModel tokenInterval;
+    private final LatencyModel embedLatency;
+    private final int answerChars;
+
+    DashScopeStub(int port, LatencyModel chatLatency, LatencyModel firstToken, LatencyModel tokenInterval,
+                  LatencyModel embedLatency, int answerChars) throws IOException {
+        this.chatLatency = chatLatency;
+        this.firstToken = firstToken;
+        this.tokenInterval = tokenInterval;
+        this.embedLatency = embedLatency;
+        this.answerChars = answerChars;
+        this.server = HttpServer.create(new InetSocketAddress(port), 1024);
+        this.server.createContext("/", this::handle);
+        this.server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    void start() {
+        server.start();
+        log.info("DashScope stub listening on :{} chat={} firstToken={} tokenInterval={} embed={}",
+                server.getAddress().getPort(), chatLatency, firstToken, tokenInterval, embedLatency);
+    }
+
+    void stop() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange ex) throws IOException {
+        try (ex) {
+            JSONObject req = JSON.parseObject(new String(ex.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            String path = ex.getRequestURI().getPath();
+            if (path.endsWith("/text-embedding")) {
+                embedding(ex, req);
+            } else if (path.endsWith("/generation")) {
+                boolean sse = "enable".equalsIgnoreCase(ex.getRequestHeaders().getFirst("X-DashScope-SSE"));
+                if (sse) {
+                    streamGeneration(ex, req);
+                } else {
+                    generation(ex, req);
+                }
+            } else {
+                ex.sendResponseHeaders(404, -1);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("DashScope stub failed: {}", e.toString());
+        }
+    }
+
+    private void embedding(HttpExchange ex, JSONObject req) throws IOException, InterruptedException {
+        embedLatency.sleep();
+        JSONArray texts = req.getJSONObject("input").getJSONArray("texts");
+        JSONArray embeddings = new JSONArray();
+        int tokens = 0;
+        for (int i = 0; i < texts.size(); i++) {
+            String text = texts.getString(i);
+            tokens += text.length();
+            JSONObject e = new JSONObject();
+            e.put("text_index", i);
+            e.put("embedding", StubEmbeddings.embed(text));
+            embeddings.add(e);
+        }
+        JSONObject output = new JSONObject();
+        output.put("embeddings", embeddings);
+        JSONObject usage = new JSONObject();
+        usage.put("total_tokens", tokens);
+        JSONObject resp = new JSONObject();
+        resp.put("output", output);
+        resp.put("usage", usage);
+        resp.put("request_id", UUID.randomUUID().toString());
+        writeJson(ex, resp);
+    }
+
+    private void generation(HttpExchange ex, JSONObject req) throws IOException, InterruptedException {
+        chatLatency.sleep();
+        String text = reply(req);
+        writeJson(ex, result(text, "stop", text.length()));
+    }
+
+    private void streamGeneration(HttpExchange ex, JSONObject req) throws IOException, InterruptedException {
+        JSONObject params = req.getJSONObject("parameters");
+        boolean incremental = params != null && Boolean.TRUE.equals(params.getBoolean("incremental_output"));
+        String text = reply(req);
+        List<String> tokens = tokenize(text);
+
+        ex.getResponseHeaders().set("Content-Type", "text/event-stream;charset=UTF-8");
+        ex.sendResponseHeaders(200, 0);
+        OutputStream out = ex.getResponseBody();
+        firstToken.sleep();
+        StringBuilder sent = new StringBuilder();
+        for (int i = 0; i < tokens.size(); i++) {
+            if (i > 0) tokenInterval.sleep();
+            sent.append(tokens.get(i));
+            boolean last = i == tokens.size() - 1;
+            JSONObject chunk = result(incremental ? tokens.get(i) : sent.toString(), last ? "stop" : "null", sent.length());
+            String event = "id:" + (i + 1) + "\nevent:result\n:HTTP_STATUS/200\ndata:" + chunk.toJSONString() + "\n\n";
+            out.write(event.getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        }
+    }
+
+    /**
+     * 按提示词特征生成回复：改写回显原问，过渡话复用引号内的模板句，摘要返回短句，其余视为回答。
+     */
+    private String reply(JSONObject req) {
+        String prompt = promptText(req);
+        Matcher utterance = UTTERANCE.matcher(prompt);
+        if (utterance.find()) return utterance.group(1);
+        if (prompt.contains("过渡话")) {
+            Matcher quoted = QUOTED.matcher(prompt);
+            String base = quoted.find() ? quoted.group(1) : "我去请别人来回答。";
+            return prompt.contains("每句单独一行") ? base + "\n嗯，" + base + "\n这个嘛，" + base : base;
+        }
+        if (prompt.contains("<existing_summary>")) return "用户在询问角色相关问题；偏好简短回答";
+        StringBuilder sb = new StringBuilder();
+        while (sb.length() < answerChars) sb.append(ANSWER_TEXT);
+        return sb.substring(0, answerChars);
+    }
+
+    private static String promptText(JSONObject req) {
+        StringBuilder sb = new StringBuilder();
+        JSONObject input = req.getJSONObject("input");
+        JSONArray messages = input == null ? null : input.getJSONArray("messages");
+        if (messages == null) return input == null ? "" : String.valueOf(input.getString("prompt"));
+        for (int i = 0; i < messages.size(); i++) {
+            Object content = messages.getJSONObject(i).get("content");
+            sb.append(content instanceof String ? content : JSON.toJSONString(content)).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static List<String> tokenize(String text) {
+        // 约 2 个汉字一个 token
+        List<String> out = new ArrayList<>();
+        for (int i = 0; i < text.length(); i += 2) {
+            out.add(text.substring(i, Math.min(text.length(), i + 2)));
+        }
+        if (out.isEmpty()) out.add("");
+        return out;
+    }
+
+    private static JSONObject result(String content, String finishReason, int outputTokens) {
+        JSONObject message = new JSONObject();
+        message.put("role", "assistant");
+        message.put("content", content);
+        JSONObject choice = new JSONObject();
+        choice.put("finish_reason", finishReason);
+        choice.put("message", message);
+        JSONArray choices = new JSONArray();
+        choices.add(choice);
+        JSONObject output = new JSONObject();
+        output.put("choices", choices);
+        JSONObject usage = new JSONObject();
+        usage.put("input_tokens", 100);
+        usage.put("output_tokens", outputTokens);
+        usage.put("total_tokens", 100 + outputTokens);
+        JSONObject resp = new JSONObject();
+        resp.put("output", output);
+        resp.put("usage", usage);
+        resp.put("request_id", UUID.randomUUID().toString());
+        return resp;
+    }
+
+    private static void writeJson(HttpExchange ex, JSONObject body) throws IOException {
+        byte[] bytes = body.toJSONString().getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().set("Content-Type", "application/json;charset=UTF-8");
+        ex.sendResponseHeaders(200, bytes.length);
+        ex.getResponseBody().write(bytes);
+    }
+}
@@ -0,0 +1,53 @@
+package com.maverick.maverickchatbot.tools.loadtest;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 桩服务的延迟分布。规格写法（毫秒）：
+ * "0" 或空 = 无延迟；"200" = 固定 200ms；"300,1500" = 中位数 300、p99 1500 的对数正态分布。
+ */
+final class LatencyModel {
+
+    // 标准正态分布 0.99 分位
+    private static final double Z99 = 2.326;
+
+    private final double mu;
+    private final double sigma;
+    private final long fixedMs;
+
+    private LatencyModel(double mu, double sigma, long fixedMs) {
+        this.mu = mu;
+        this.sigma = sigma;
+        this.fixedMs = fixedMs;
+    }
+
+    static LatencyModel parse(String spec) {
+        if (spec == null || spec.isBlank()) return new LatencyModel(0, 0, 0);
+        String[] parts = spec.split(",");
+        long median = Long.parseLong(parts[0].trim());
+        if (parts.length == 1 || median <= 0) return new LatencyModel(0, 0, Math.max(0, median));
+        long p99 = Math.max(median, Long.parseLong(parts[1].trim()));
+        return new LatencyModel(Math.log(median), Math.log((double) p99 / median) / Z99, -1);
+    }
+
+    static LatencyModel fromProperty(String name, String defaultSpec) {
+        return parse(System.getProperty(name, defaultSpec));
+    }
+
+    long sampleMs() {
+        if (fixedMs >= 0) return fixedMs;
+        double g = ThreadLocalRandom.current().nextGaussian();
+        return Math.round(Math.exp(mu + sigma * g));
+    }
+
+    void sleep() throws InterruptedException {
+        long ms = sampleMs();
+        if (ms > 0) Thread.sleep(ms);
+    }
+
+    @Override
+    public String toString() {
+        if (fixedMs >= 0) return fixedMs + "ms";
+        return "lognormal(p50=" + Math.round(Math.exp(mu)) + "ms, p99=" + Math.round(Math.exp(mu + Z99 * sigma)) + "ms)";
+    }
+}
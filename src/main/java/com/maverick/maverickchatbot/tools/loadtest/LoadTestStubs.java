@@ -0,0 +1,62 @@
+package com.maverick.maverickchatbot.tools.loadtest;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * 压测用外部依赖桩：ASR、DashScope 对话/向量化、火山 TTS（向量库由应用侧 rag.store=memory 提供）。
+ * 配合 application-loadtest.yml 使用，延迟分布通过系统属性调整，例如：
+ * <pre>
+ * mvn -q -DskipTests exec:java -Dexec.mainClass=com.maverick.maverickchatbot.tools.loadtest.LoadTestStubs \
+ *     -Dstub.llm.first-token=300,1200 -Dstub.tts.first-byte=150,600
+ * </pre>
+ */
+public class LoadTestStubs {
+
+    static final List<String> DEFAULT_QUESTIONS = List.of(
+            "诸葛亮为什么要六出祁山北伐中原",
+            "刘备三顾茅庐的时候你们聊了些什么",
+            "福尔摩斯是怎么看出华生去过阿富汗的",
+            "你觉得贝克街的那位侦探靠不靠谱啊",
+            "霍格沃茨里你最喜欢哪一门魔法课程",
+            "今天天气不错，你平时喜欢做些什么事情"
+    );
+
+    public static void main(String[] args) throws Exception {
+        List<String> questions = System.getProperty("stub.asr.texts") == null
+                ? DEFAULT_QUESTIONS
+                : Arrays.asList(System.getProperty("stub.asr.texts").split("\\|"));
+
+        AsrStub asr = new AsrStub(Integer.getInteger("stub.asr.port", 18081), questions,
+                LatencyModel.fromProperty("stub.asr.latency", "150,600"));
+        DashScopeStub llm = new DashScopeStub(Integer.getInteger("stub.llm.port", 18082),
+                LatencyModel.fromProperty("stub.llm.latency", "600,2500"),
+                LatencyModel.fromProperty("stub.llm.first-token", "300,1200"),
+                LatencyModel.fromProperty("stub.llm.token-interval", "20"),
+                LatencyModel.fromProperty("stub.embed.latency", "40,200"),
+                Integer.getInteger("stub.llm.answer-chars", 60));
+        VolcTtsStub tts = new VolcTtsStub(Integer.getInteger("stub.tts.port", 18083),
+                LatencyModel.fromProperty("stub.tts.first-byte", "150,600"),
+                LatencyModel.fromProperty("stub.tts.frame-interval", "30"),
+                Integer.getInteger("stub.tts.frames", 8),
+                Integer.getInteger("stub.tts.frame-bytes", 4096));
+
+        asr.start();
+        llm.start();
+        tts.start();
+
+        CountDownLatch stop = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            asr.stop();
+            llm.stop();
+            try {
+                tts.stop(1000);
+            } catch (InterruptedException ignored) {
+                Thread.currentThread().interrupt();
+            }
+            stop.countDown();
+        }));
+        stop.await();
+    }
+}
@@ -0,0 +1,76 @@
+package com.maverick.maverickchatbot.tools.loadtest;
+
+import com.maverick.maverickchatbot.ai.roles.RoleConfig;
+import com.maverick.maverickchatbot.ai.roles.RoleService;
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.document.loader.FileSystemDocumentLoader;
+import dev.langchain4j.data.document.splitter.DocumentByParagraphSplitter;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 压测启动时向进程内向量库灌入各角色文档的前若干片段（切分方式与 RagIngestRunner 一致），
+ * 使检索、跨角色转接路径在压测中真实发生。
+ */
+@Slf4j
+@Component
+@Profile("loadtest")
+@ConditionalOnProperty(name = "rag.store", havingValue = "memory")
+@RequiredArgsConstructor
+public class MemoryStoreSeeder implements ApplicationRunner {
+
+    private final RoleService roleService;
+    private final EmbeddingModel qwenEmbeddingModel;
+    private final EmbeddingStore<TextSegment> embeddingStore;
+
+    @Value("${rag.memory.docs-root:src/main/resources/docs}")
+    private String docsRoot;
+
+    @Value("${rag.memory.seed-per-role:200}")
+    private int seedPerRole;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long start = System.nanoTime();
+        Path root = Paths.get(docsRoot);
+        int total = 0;
+        for (RoleConfig role : roleService.listRoles()) {
+            String dirName = (role.getDocsDir() != null && !role.getDocsDir().isEmpty()) ? role.getDocsDir() : role.getId();
+            Path roleDir = root.resolve(dirName);
+            if (!Files.isDirectory(roleDir)) continue;
+            List<TextSegment> segments = new ArrayList<>();
+            DocumentByParagraphSplitter splitter = new DocumentByParagraphSplitter(1000, 200);
+            for (Document doc : FileSystemDocumentLoader.loadDocuments(roleDir.toString())) {
+                String fileName = doc.metadata().getString("file_name");
+                for (TextSegment seg : splitter.split(doc)) {
+                    if (segments.size() >= seedPerRole) break;
+                    var md = seg.metadata();
+                    md.put("role_id", role.getId());
+                    segments.add(TextSegment.from((fileName != null ? fileName + "\n" : "") + seg.text(), md));
+                }
+            }
+            if (segments.isEmpty()) continue;
+            List<Embedding> embeddings = qwenEmbeddingModel.embedAll(segments).content();
+            embeddingStore.addAll(embeddings, segments);
+            total += segments.size();
+            log.info("Seeded in-memory store: role={} segments={}", role.getId(), segments.size());
+        }
+        log.info("In-memory store ready: segments={}, timeMs={}", total, (System.nanoTime() - start) / 1_000_000);
+    }
+}
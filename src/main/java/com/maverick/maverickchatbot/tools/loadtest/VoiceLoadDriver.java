@@ -0,0 +1,215 @@
+package com.maverick.maverickchatbot.tools.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * /ws/voice 压测驱动：N 个并发会话，每轮发送 voice 目录下的一段 WAV，统计吞吐、
+ * 首音频时延（发送音频到收到第一帧二进制音频）与整轮时延的 p50/p99、错误率及各路径占比。
+ * 会话以 trace=1 连接，以服务端的 {"type":"trace"} 消息作为一轮结束标志。
+ * <pre>
+ * mvn -q -DskipTests exec:java -Dexec.mainClass=com.maverick.maverickchatbot.tools.loadtest.VoiceLoadDriver \
+ *     -Dexec.args="--sessions 50 --turns 10 --think-ms 2500"
+ * </pre>
+ * think-ms 默认 2500，需大于服务端同文本去重窗口（2s），否则同一会话的连续轮次可能被当作重复丢弃。
+ */
+public class VoiceLoadDriver {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opts = parseArgs(args);
+        String url = opts.getOrDefault("url", "ws://localhost:8080/ws/voice");
+        int sessions = Integer.parseInt(opts.getOrDefault("sessions", "20"));
+        int turns = Integer.parseInt(opts.getOrDefault("turns", "5"));
+        long thinkMs = Long.parseLong(opts.getOrDefault("think-ms", "2500"));
+        long timeoutMs = Long.parseLong(opts.getOrDefault("timeout-ms", "30000"));
+        List<String> roles = Arrays.asList(opts.getOrDefault("roles", "zhugeliang,sherlockHolmes,harry").split(","));
+        List<byte[]> wavs = loadWavs(Paths.get(opts.getOrDefault("wav-dir", "src/main/resources/voice")));
+
+        Stats stats = new Stats();
+        HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+        long start = System.nanoTime();
+        try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < sessions; i++) {
+                int sessionNo = i;
+                pool.execute(() -> runSession(http, url, roles.get(sessionNo % roles.size()), wavs, sessionNo, turns, thinkMs, timeoutMs, stats));
+            }
+        }
+        stats.print(sessions, (System.nanoTime() - start) / 1e9);
+    }
+
+    private static void runSession(HttpClient http, String url, String roleId, List<byte[]> wavs, int sessionNo,
+                                   int turns, long thinkMs, long timeoutMs, Stats stats) {
+        SessionListener listener = new SessionListener();
+        WebSocket ws;
+        try {
+            ws = http.newWebSocketBuilder()
+                    .buildAsync(URI.create(url + "?roleId=" + roleId + "&trace=1"), listener)
+                    .get(10, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            stats.connectErrors.increment();
+            return;
+        }
+        try {
+            for (int t = 0; t < turns; t++) {
+                if (t > 0 && thinkMs > 0) Thread.sleep(thinkMs);
+                byte[] wav = wavs.get((sessionNo + t) % wavs.size());
+                Turn turn = listener.begin();
+                ws.sendBinary(ByteBuffer.wrap(wav), true).get(10, TimeUnit.SECONDS);
+                try {
+                    turn.done.get(timeoutMs, TimeUnit.MILLISECONDS);
+                    stats.record(turn);
+                } catch (TimeoutException e) {
+                    stats.timeouts.increment();
+                } catch (Exception e) {
+                    stats.errors.increment();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            stats.errors.increment();
+        } finally {
+            ws.sendClose(WebSocket.NORMAL_CLOSURE, "done");
+        }
+    }
+
+    private static List<byte[]> loadWavs(Path dir) throws Exception {
+        List<byte[]> out = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path p : files.filter(f -> f.toString().endsWith(".wav")).sorted().toList()) {
+                out.add(Files.readAllBytes(p));
+            }
+        }
+        if (out.isEmpty()) throw new IllegalStateException("No WAV files in " + dir);
+        return out;
+    }
+
+    private static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> out = new ConcurrentHashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            out.put(args[i].replaceFirst("^--", ""), args[i + 1]);
+        }
+        return out;
+    }
+
+    /** 单轮的时间点；done 在收到 trace（成功）或 error 文本（失败）时完成。 */
+    private static final class Turn {
+        final long sentNs = System.nanoTime();
+        volatile long firstAudioNs = -1;
+        volatile String path;
+        final CompletableFuture<Long> done = new CompletableFuture<>();
+    }
+
+    private static final class SessionListener implements WebSocket.Listener {
+        private volatile Turn current;
+        private final StringBuilder text = new StringBuilder();
+
+        Turn begin() {
+            Turn t = new Turn();
+            current = t;
+            return t;
+        }
+
+        @Override
+        public CompletionStage<?> onBinary(WebSocket ws, ByteBuffer data, boolean last) {
+            Turn t = current;
+            if (t != null && t.firstAudioNs < 0) t.firstAudioNs = System.nanoTime();
+            ws.request(1);
+            return null;
+        }
+
+        @Override
+        public CompletionStage<?> onText(WebSocket ws, CharSequence data, boolean last) {
+            text.append(data);
+            if (last) {
+                String msg = text.toString();
+                text.setLength(0);
+                Turn t = current;
+                if (t != null) {
+                    if (msg.startsWith("error")) {
+                        t.done.completeExceptionally(new IllegalStateException(msg));
+                    } else if (msg.contains("\"type\":\"trace\"")) {
+                        int i = msg.indexOf("\"path\":\"");
+                        t.path = i < 0 ? "unknown" : msg.substring(i + 8, msg.indexOf('"', i + 8));
+                        t.done.complete(System.nanoTime());
+                    }
+                }
+            }
+            ws.request(1);
+            return null;
+        }
+
+        @Override
+        public void onError(WebSocket ws, Throwable error) {
+            Turn t = current;
+            if (t != null) t.done.completeExceptionally(error);
+        }
+    }
+
+    private static final class Stats {
+        final List<Long> firstAudioMs = Collections.synchronizedList(new ArrayList<>());
+        final List<Long> turnMs = Collections.synchronizedList(new ArrayList<>());
+        final Map<String, AtomicInteger> paths = new ConcurrentHashMap<>();
+        final LongAdder ok = new LongAdder();
+        final LongAdder noAudio = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder timeouts = new LongAdder();
+        final LongAdder connectErrors = new LongAdder();
+
+        void record(Turn t) {
+            ok.increment();
+            turnMs.add((t.done.join() - t.sentNs) / 1_000_000);
+            if (t.firstAudioNs > 0) {
+                firstAudioMs.add((t.firstAudioNs - t.sentNs) / 1_000_000);
+            } else {
+                noAudio.increment();
+            }
+            paths.computeIfAbsent(t.path, k -> new AtomicInteger()).incrementAndGet();
+        }
+
+        void print(int sessions, double seconds) {
+            long attempted = ok.sum() + errors.sum() + timeouts.sum();
+            System.out.printf("sessions=%d turns=%d elapsed=%.1fs throughput=%.2f turns/s%n",
+                    sessions, attempted, seconds, ok.sum() / seconds);
+            System.out.printf("ok=%d errors=%d timeouts=%d connectErrors=%d noAudio=%d errorRate=%.2f%%%n",
+                    ok.sum(), errors.sum(), timeouts.sum(), connectErrors.sum(), noAudio.sum(),
+                    attempted == 0 ? 0.0 : 100.0 * (errors.sum() + timeouts.sum()) / attempted);
+            System.out.printf("timeToFirstAudio p50=%dms p99=%dms | turn p50=%dms p99=%dms%n",
+                    percentile(firstAudioMs, 0.50), percentile(firstAudioMs, 0.99),
+                    percentile(turnMs, 0.50), percentile(turnMs, 0.99));
+            System.out.println("paths=" + paths);
+        }
+
+        private static long percentile(List<Long> values, double p) {
+            List<Long> sorted;
+            synchronized (values) {
+                sorted = new ArrayList<>(values);
+            }
+            if (sorted.isEmpty()) return -1;
+            Collections.sort(sorted);
+            int idx = (int) Math.ceil(p * sorted.size()) - 1;
+            return sorted.get(Math.max(0, Math.min(idx, sorted.size() - 1)));
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.maverick.maverickchatbot.tools.loadtest;
+
+import lombok.extern.slf4j.Slf4j;
+import org.java_websocket.WebSocket;
+import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.server.WebSocketServer;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 火山 TTS 二进制协议桩：收到完整请求帧后，按首包延迟等待，再以固定间隔发送若干 audio-only 帧，
+ * 最后一帧序号取负，与 {@code VolcTtsDemo.TtsWebsocketClient} 的解析约定一致。
+ */
+@Slf4j
+final class VolcTtsStub extends WebSocketServer {
+
+    private final LatencyModel firstByte;
+    private final LatencyModel frameInterval;
+    private final int frames;
+    private final int frameBytes;
+    private final ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+
+    VolcTtsStub(int port, LatencyModel firstByte, LatencyModel frameInterval, int frames, int frameBytes) {
+        super(new InetSocketAddress(port));
+        this.firstByte = firstByte;
+        this.frameInterval = frameInterval;
+        this.frames = Math.max(1, frames);
+        this.frameBytes = frameBytes;
+        setReuseAddr(true);
+    }
+
+    @Override
+    public void onStart() {
+        log.info("Volc TTS stub listening on :{} firstByte={} frameInterval={} frames={}x{}B",
+                getPort(), firstByte, frameInterval, frames, frameBytes);
+    }
+
+    @Override
+    public void onOpen(WebSocket conn, ClientHandshake handshake) {
+    }
+
+    @Override
+    public void onMessage(WebSocket conn, String message) {
+    }
+
+    @Override
+    public void onMessage(WebSocket conn, ByteBuffer request) {
+        // 只校验请求头：v1、full client request(0x1)
+        if (request.remaining() < 8 || (request.get(1) & 0xff) >> 4 != 1) {
+            conn.send(errorFrame(40000, "bad request frame"));
+            conn.close();
+            return;
+        }
+        workers.execute(() -> {
+            try {
+                firstByte.sleep();
+                byte[] audio = new byte[frameBytes];
+                for (int i = 1; i <= frames && conn.isOpen(); i++) {
+                    if (i > 1) frameInterval.sleep();
+                    conn.send(audioFrame(i == frames ? -i : i, audio));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                log.debug("TTS stub send failed: {}", e.toString());
+            }
+        });
+    }
+
+    @Override
+    public void onClose(WebSocket conn, int code, String reason, boolean remote) {
+    }
+
+    @Override
+    public void onError(WebSocket conn, Exception ex) {
+        log.debug("TTS stub error: {}", ex.toString());
+    }
+
+    private static ByteBuffer audioFrame(int sequence, byte[] audio) {
+        ByteBuffer buf = ByteBuffer.allocate(4 + 8 + audio.length);
+        buf.put(new byte[]{0x11, (byte) 0xB1, 0x00, 0x00}).putInt(sequence).putInt(audio.length).put(audio);
+        return buf.flip();
+    }
+
+    private static ByteBuffer errorFrame(int code, String message) {
+        byte[] msg = message.getBytes(java.nio.charset.StandardCharsets.UTF_8);
+        ByteBuffer buf = ByteBuffer.allocate(4 + 8 + msg.length);
+        buf.put(new byte[]{0x11, (byte) 0xF0, 0x10, 0x00}).putInt(code).putInt(msg.length).put(msg);
+        return buf.flip();
+    }
+}
@@ -0,0 +1,217 @@
+package com.maverick.maverickchatbot.web;
+
+import com.maverick.maverickchatbot.admission.AdmissionController;
+import com.maverick.maverickchatbot.admission.AdmissionRejectedException;
+import com.maverick.maverickchatbot.admission.ConcurrencyLimiter;
+import com.maverick.maverickchatbot.ai.rag.ConversationOrchestrator;
+import com.maverick.maverickchatbot.ai.rag.TurnListener;
+import com.maverick.maverickchatbot.ai.roles.RoleConfig;
+import com.maverick.maverickchatbot.ai.roles.RoleService;
+import com.maverick.maverickchatbot.metrics.StageTimers;
+import com.maverick.maverickchatbot.metrics.TurnTrace;
+import com.maverick.maverickchatbot.session.ConversationState;
+import com.maverick.maverickchatbot.session.SessionStore;
+import com.maverick.maverickchatbot.web.dto.ChatTextRequest;
+import com.maverick.maverickchatbot.web.dto.ChatTextResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 文本对话接口：跳过 ASR/TTS，直接驱动 ConversationOrchestrator，供纯文本客户端、集成方与 LLM/RAG 压测使用。
+ * 会话语义与 /ws/voice 一致：请求携带 session 令牌恢复上下文，未知或过期时发放新令牌；同样经过节点级准入。
+ * 同一令牌同一时刻只处理一轮，上一轮未结束时返回 409。每轮在 chatApiExecutor 的虚拟线程上执行，Servlet 线程立即释放。
+ */
+@RestController
+@RequestMapping("/api/chat")
+@RequiredArgsConstructor
+@Slf4j
+public class ChatController {
+
+    private final ConversationOrchestrator conversationOrchestrator;
+    private final RoleService roleService;
+    private final SessionStore sessionStore;
+    private final StageTimers stageTimers;
+    private final AdmissionController admissionController;
+    private final ExecutorService chatApiExecutor;
+
+    @Value("${chat.api.sse-timeout-ms:60000}")
+    private long sseTimeoutMs;
+
+    /**
+     * 阻塞式：整轮完成后一次性返回；过载时 503 并带 Retry-After。
+     */
+    @PostMapping
+    public CompletableFuture<ResponseEntity<ChatTextResponse>> chat(@RequestBody ChatTextRequest request) {
+        RoleConfig role = requireRole(request);
+        String text = requireText(request);
+        String claimed = claimTurn(request.getSession());
+        return CompletableFuture.supplyAsync(() -> {
+            ConversationState state = open(claimed);
+            boolean resumed = state.getToken().equals(request.getSession());
+            TurnTrace trace = stageTimers.start(role.getId());
+            try {
+                ConversationOrchestrator.Result result = runTurn(state, role, text, trace, new TurnListener() {
+                    @Override
+                    public TurnTrace trace() {
+                        return trace;
+                    }
+                }, false);
+                return ResponseEntity.ok(new ChatTextResponse(state.getToken(), resumed,
+                        result.getTransferText(), result.getFinalText(), result.getAiRoleId()));
+            } catch (AdmissionRejectedException e) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, admissionController.retryAfterMs() / 1000)))
+                        .build();
+            } finally {
+                releaseTurn(state, claimed);
+            }
+        }, chatApiExecutor);
+    }
+
+    /**
+     * SSE 流式：依次推送 session → transfer（仅跨角色）→ token* → answer → done；
+     * 过载推送 busy，失败推送 error。客户端中途断开不影响本轮完成与会话回写。
+     */
+    @PostMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@RequestBody ChatTextRequest request) {
+        RoleConfig role = requireRole(request);
+        String text = requireText(request);
+        String claimed = claimTurn(request.getSession());
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+        chatApiExecutor.execute(() -> {
+            ConversationState state = open(claimed);
+            boolean resumed = state.getToken().equals(request.getSession());
+            TurnTrace trace = stageTimers.start(role.getId());
+            try {
+                event(emitter, "session", "{\"token\":" + toJsonString(state.getToken()) + ",\"resumed\":" + resumed + "}");
+                runTurn(state, role, text, trace, new TurnListener() {
+                    @Override
+                    public void onTransfer(String transferText, byte[] transferAudio) {
+                        event(emitter, "transfer", "{\"text\":" + toJsonString(transferText) + "}");
+                    }
+
+                    @Override
+                    public void onToken(String delta) {
+                        event(emitter, "token", "{\"delta\":" + toJsonString(delta) + "}");
+                    }
+
+                    @Override
+                    public void onAnswer(String finalText, String aiRoleId) {
+                        event(emitter, "answer", "{\"ai\":" + toJsonString(finalText) +
+                                (aiRoleId != null ? ",\"aiRoleId\":" + toJsonString(aiRoleId) : "") + "}");
+                    }
+
+                    @Override
+                    public TurnTrace trace() {
+                        return trace;
+                    }
+                }, true);
+                event(emitter, "done", "{" + JsonUtil.traceFields(trace) + "}");
+            } catch (AdmissionRejectedException e) {
+                event(emitter, "busy", "{\"reason\":" + toJsonString(e.getReason())
+                        + ",\"retryAfterMs\":" + admissionController.retryAfterMs() + "}");
+            } catch (Exception e) {
+                log.error("Text chat turn failed", e);
+                event(emitter, "error", "{\"message\":" + toJsonString(e.getMessage()) + "}");
+            } finally {
+                releaseTurn(state, claimed);
+                emitter.complete();
+            }
+        });
+        return emitter;
+    }
+
+    private ConversationOrchestrator.Result runTurn(ConversationState state, RoleConfig role, String text, TurnTrace trace,
+                                                    TurnListener listener, boolean streaming) {
+        state.setRoleId(role.getId());
+        ConcurrencyLimiter.Permit permit = null;
+        try {
+            permit = admissionController.admitTurn();
+            ConversationOrchestrator.Result result = streaming
+                    ? conversationOrchestrator.handleTurnStreaming(text, role, state.getLastQuery(), state.getTopicSummary(),
+                            state.getMemorySummary(), state.getLastEscalatedRoleId(), listener)
+                    : conversationOrchestrator.handleTurn(text, role, state.getLastQuery(), state.getTopicSummary(),
+                            state.getMemorySummary(), state.getLastEscalatedRoleId(), listener);
+            result.applyTo(state);
+            return result;
+        } catch (AdmissionRejectedException e) {
+            log.warn("Text chat turn rejected by admission control: {} ({})", e.getLimiter(), e.getReason());
+            trace.path(TurnTrace.PATH_SHED);
+            if (permit != null) permit.fail();
+            throw e;
+        } catch (RuntimeException e) {
+            if (permit != null) permit.fail();
+            throw e;
+        } finally {
+            if (permit != null) permit.close();
+            sessionStore.commit(state);
+            trace.finish();
+        }
+    }
+
+    /**
+     * 请求携带令牌时同步占用该令牌，已有一轮在进行则 409；未携带令牌时无需占用。
+     */
+    private String claimTurn(String token) {
+        if (token == null || token.isEmpty()) return null;
+        if (!sessionStore.tryBeginTurn(token)) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "a turn is already in flight for this session");
+        }
+        return token;
+    }
+
+    /**
+     * 恢复或新建会话；发放新令牌时同样占用（令牌尚未下发，必定成功），客户端拿到令牌后立刻发来的请求也会被拒绝。
+     */
+    private ConversationState open(String claimed) {
+        ConversationState state = sessionStore.open(claimed);
+        if (!state.getToken().equals(claimed)) sessionStore.tryBeginTurn(state.getToken());
+        return state;
+    }
+
+    private void releaseTurn(ConversationState state, String claimed) {
+        sessionStore.endTurn(state.getToken());
+        if (claimed != null) sessionStore.endTurn(claimed);
+    }
+
+    private RoleConfig requireRole(ChatTextRequest request) {
+        RoleConfig role = roleService.getById(request.getRoleId());
+        if (role == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "unknown roleId: " + request.getRoleId());
+        }
+        return role;
+    }
+
+    private static String requireText(ChatTextRequest request) {
+        String text = request.getText() == null ? "" : request.getText().trim();
+        if (text.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "text is required");
+        }
+        return text;
+    }
+
+    // 客户端已断开时发送失败，忽略即可：本轮照常完成并回写会话
+    private static void event(SseEmitter emitter, String name, String json) {
+        try {
+            emitter.send(SseEmitter.event().name(name).data(json, MediaType.APPLICATION_JSON));
+        } catch (Exception e) {
+            log.debug("SSE send {} failed: {}", name, e.getMessage());
+        }
+    }
+
+    private static String toJsonString(String s) { return JsonUtil.toJsonString(s); }
+}
@@ -1,5 +1,7 @@
 package com.maverick.maverickchatbot.web;
 
+import com.maverick.maverickchatbot.metrics.TurnTrace;
+
 public class JsonUtil {
 
     public static String toJsonString(String s) {
@@ -25,6 +27,23 @@ public class JsonUtil {
         sb.append('"');
         return sb.toString();
     }
-}
-
 
+    /**
+     * 本轮 trace 的 JSON 字段（不含外层花括号）：path、roleId、stagesMs，有降级时附 degraded。
+     */
+    public static String traceFields(TurnTrace trace) {
+        StringBuilder stages = new StringBuilder("{");
+        trace.stagesMs().forEach((stage, ms) -> {
+            if (stages.length() > 1) stages.append(',');
+            stages.append(toJsonString(stage)).append(':').append(ms);
+        });
+        stages.append('}');
+        StringBuilder degraded = new StringBuilder();
+        for (String mode : trace.getDegraded()) {
+            degraded.append(degraded.length() == 0 ? "" : ",").append(toJsonString(mode));
+        }
+        return "\"path\":" + toJsonString(trace.getPath()) +
+                ",\"roleId\":" + toJsonString(trace.getRole()) + ",\"stagesMs\":" + stages +
+                (degraded.length() > 0 ? ",\"degraded\":[" + degraded + "]" : "");
+    }
+}
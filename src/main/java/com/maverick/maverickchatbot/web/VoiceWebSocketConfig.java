@@ -16,8 +16,8 @@ public class VoiceWebSocketConfig implements WebSocketConfigurer {
 
     @Override
     public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
-        registry.addHandler(voiceWebSocketHandler, "/ws/voice").setAllowedOrigins("*")
-                .addInterceptors(new org.springframework.web.socket.server.support.HttpSessionHandshakeInterceptor());
+        // 对话状态由 SessionStore 按会话令牌保存，不再复制 HttpSession 属性
+        registry.addHandler(voiceWebSocketHandler, "/ws/voice").setAllowedOrigins("*");
     }
 }
 
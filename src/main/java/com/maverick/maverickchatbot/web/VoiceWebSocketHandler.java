@@ -1,10 +1,23 @@
 package com.maverick.maverickchatbot.web;
 
+import com.maverick.maverickchatbot.admission.AdmissionController;
+import com.maverick.maverickchatbot.admission.AdmissionRejectedException;
+import com.maverick.maverickchatbot.admission.ConcurrencyLimiter;
+import com.maverick.maverickchatbot.ai.asr.AudioFingerprint;
+import com.maverick.maverickchatbot.ai.asr.AudioPreprocessor;
+import com.maverick.maverickchatbot.ai.asr.AudioSource;
 import com.maverick.maverickchatbot.ai.asr.SpeechToTextService;
+import com.maverick.maverickchatbot.ai.tts.SentenceTtsPipeline;
 import com.maverick.maverickchatbot.ai.tts.TtsService;
 import com.maverick.maverickchatbot.ai.rag.ConversationOrchestrator;
+import com.maverick.maverickchatbot.ai.rag.TurnListener;
+import com.maverick.maverickchatbot.metrics.StageTimers;
+import com.maverick.maverickchatbot.metrics.TurnTrace;
+import com.maverick.maverickchatbot.session.ConversationState;
+import com.maverick.maverickchatbot.session.SessionStore;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.lang.NonNull;
 import org.springframework.web.socket.BinaryMessage;
@@ -12,24 +25,51 @@ import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.AbstractWebSocketHandler;
-import org.springframework.web.multipart.MultipartFile;
-import java.nio.ByteBuffer;
 import com.maverick.maverickchatbot.ai.roles.RoleService;
 import com.maverick.maverickchatbot.ai.roles.RoleConfig;
 
+import java.util.concurrent.locks.ReentrantLock;
+
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class VoiceWebSocketHandler extends AbstractWebSocketHandler {
 
     private final SpeechToTextService speechToTextService;
+    private final AudioPreprocessor audioPreprocessor;
     private final TtsService ttsService;
+    private final SentenceTtsPipeline sentenceTtsPipeline;
     private final RoleService roleService;
     private final ConversationOrchestrator conversationOrchestrator;
+    private final StageTimers stageTimers;
+    private final AdmissionController admissionController;
+    private final SessionStore sessionStore;
+
+    private static final String STATE_ATTR = "conversationState";
+    private static final String SEND_LOCK_ATTR = "sendLock";
+
+    @Value("${asr.dedupe.window-ms:2000}")
+    private long audioDedupeWindowMs;
+
+    @Value("${asr.dedupe.min-similarity:0.9}")
+    private double audioDedupeMinSimilarity;
 
     @Override
     public void afterConnectionEstablished(@NonNull WebSocketSession session) {
-        log.info("/ws/voice connected: {}", session.getId());
+        // 携带 ?session=<token> 重连时恢复上一连接的对话上下文；否则发放新令牌
+        String token = extractQueryParam(session, "session");
+        session.getAttributes().put(SEND_LOCK_ATTR, new ReentrantLock());
+        ConversationState state = sessionStore.open(token);
+        state.setRoleId(extractRoleIdFromQuery(session));
+        session.getAttributes().put(STATE_ATTR, state);
+        boolean resumed = state.getToken().equals(token);
+        log.info("/ws/voice connected: {} (resumed={})", session.getId(), resumed);
+        try {
+            send(session, new TextMessage("{\"type\":\"session\",\"token\":" + toJsonString(state.getToken())
+                    + ",\"resumed\":" + resumed + "}"));
+        } catch (Exception e) {
+            log.debug("发送会话令牌失败: {}", e.getMessage());
+        }
     }
 
     private static String toJsonString(String s) { return JsonUtil.toJsonString(s); }
@@ -46,82 +86,172 @@ public class VoiceWebSocketHandler extends AbstractWebSocketHandler {
     @Override
     protected void handleBinaryMessage(@NonNull WebSocketSession session, @NonNull BinaryMessage message) throws Exception {
         // 收到整段音频（二进制 WAV/AIFF 等），执行 ASR→LLM→TTS，返回音频（MP3 或 WAV）
+        String roleId = extractRoleIdFromQuery(session);
+        RoleConfig role = roleService.getById(roleId);
+        ConversationState state = conversationState(session);
+        // 同一连接的消息本就串行；这里挡住凭同一令牌重连、新旧连接同时在跑的情况，拒绝的轮次不回写会话
+        if (!sessionStore.tryBeginTurn(state.getToken())) {
+            log.info("会话 {} 已有一轮在进行，拒绝本轮", session.getId());
+            stageTimers.dropped("turn_in_flight");
+            sendBusy(session, new AdmissionRejectedException("session", "turn_in_flight"));
+            return;
+        }
+        // 指标按角色打标签：只用已知角色 id，客户端传入的任意 roleId 不能制造新的时间序列
+        TurnTrace trace = stageTimers.start(role != null ? role.getId() : "unknown");
+        ConcurrencyLimiter.Permit permit = null;
         try {
-            byte[] audioBytes = extractAudioBytes(message);
-            MultipartFile file = toMultipart(audioBytes);
-            String asrText = transcribe(file); // ASR
+            // 直接引用帧负载，不复制；整轮在本回调内同步完成，返回前不会复用该缓冲
+            AudioSource audio = AudioSource.wav(message.getPayload());
+            // 转 16k 单声道并裁掉首尾静音；全静音直接丢弃，不发起 ASR
+            long preStart = System.nanoTime();
+            AudioPreprocessor.Result pre = audioPreprocessor.process(audio);
+            trace.record(TurnTrace.PREPROCESS, System.nanoTime() - preStart);
+            if (pre.isSilent()) {
+                log.info("忽略静音音频：{} bytes, {}ms", pre.getInputBytes(), pre.getInputMs());
+                stageTimers.dropped("silent");
+                return;
+            }
+            // 音频指纹去重：同一会话短时间内重复/近似重复的上传在 ASR 之前丢弃；下方文本去重仍作为第二道防线
+            if (isDuplicateAudio(state, pre.getFingerprint())) {
+                log.info("忽略重复音频（{}ms 内指纹相同或相近）：{} bytes", audioDedupeWindowMs, pre.getInputBytes());
+                stageTimers.dropped("audio_duplicate");
+                return;
+            }
+            // 节点级准入：过载时排队有界、预计等不到即拒绝，回复 busy 而不是让本轮挂起到下游超时
+            permit = admissionController.admitTurn();
+            long asrStart = System.nanoTime();
+            String asrText = transcribe(pre.getAudio()); // ASR
+            trace.record(TurnTrace.ASR, System.nanoTime() - asrStart);
             log.info("用户语音输入：{}", asrText);
 
             // 过滤纯标点/空白或口头禅等噪声，避免发送无意义文本
             if (isNoisyText(asrText)) {
                 log.info("忽略噪声/无效 ASR：{}", asrText);
+                stageTimers.dropped("noise");
                 return;
             }
 
             // 简易去重：相同 ASR 在短时间内（2s）不重复处理
-            try {
-                var attrs = session.getAttributes();
-                String lastProcessed = attrs != null ? (String) attrs.get("lastProcessedText") : null;
-                Long lastAt = attrs != null ? (Long) attrs.get("lastProcessedAt") : null;
-                long now = System.currentTimeMillis();
-                if (asrText != null && !asrText.isEmpty() && lastProcessed != null && asrText.equals(lastProcessed) && lastAt != null && (now - lastAt) < 2000) {
-                    log.info("忽略重复 ASR（2s 内相同文本）：{}", asrText);
-                    return;
-                }
-                if (attrs != null) {
-                    attrs.put("lastProcessedText", asrText);
-                    attrs.put("lastProcessedAt", now);
-                }
-            } catch (Exception ignore) {}
-
-            String roleId = extractRoleIdFromQuery(session);
-            RoleConfig role = roleService.getById(roleId);
-
-            String lastQuery = getSessionAttr(session, "lastQuery");
-            String topicSummary = getSessionAttr(session, "topicSummary");
-            String memorySummary = getSessionAttr(session, "memorySummary");
-            String lastEscalatedRoleId = getSessionAttr(session, "lastEscalatedRoleId");
-
-            var result = conversationOrchestrator.handleTurn(asrText, role, lastQuery, topicSummary, memorySummary, lastEscalatedRoleId);
-
-            if (hasText(result.getTransferText())) {
-                // 过渡文本：保持当前角色音色
-                sendTextJson(session, asrText, result.getTransferText(), null);
-                String currentRoleId = roleId;
-                sendTts(session, result.getTransferText(), currentRoleId);
+            long now = System.currentTimeMillis();
+            if (asrText.equals(state.getLastProcessedText()) && now - state.getLastProcessedAt() < 2000) {
+                log.info("忽略重复 ASR（2s 内相同文本）：{}", asrText);
+                stageTimers.dropped("text_duplicate");
+                return;
             }
+            state.setLastProcessedText(asrText);
+            state.setLastProcessedAt(now);
+
+            String lastQuery = state.getLastQuery();
+            String topicSummary = state.getTopicSummary();
+            String memorySummary = state.getMemorySummary();
+            String lastEscalatedRoleId = state.getLastEscalatedRoleId();
+
+            // 前端以 ?tokens=1 订阅回答增量文本；默认只下发整段文本，兼容旧前端
+            boolean tokenEvents = "1".equals(extractQueryParam(session, "tokens"));
+            // 跨角色时过渡话在回调中即时下发（保持当前角色音色），与目标角色回答的生成并行；
+            // 回答一就绪即下发文本与 TTS，记忆摘要在后台生成，不占用户可感知时延
+            TurnListener listener = new TurnListener() {
+                @Override
+                public void onTransfer(String transferText, byte[] transferAudio) {
+                    if (!hasText(transferText)) return;
+                    try {
+                        sendTextJson(session, asrText, transferText, null);
+                        if (transferAudio != null && transferAudio.length > 0) {
+                            // 预合成音频直接下发，省去一次 TTS
+                            send(session, new BinaryMessage(transferAudio));
+                        } else {
+                            sendTts(session, transferText, roleId, trace);
+                        }
+                    } catch (Exception e) {
+                        log.warn("发送过渡话失败: {}", e.getMessage());
+                    }
+                }
 
-            // 最终文本：若有跨角色，使用目标角色音色；否则用当前角色
-            sendTextJson(session, asrText, result.getFinalText(), result.getAiRoleId());
-            String roleForAnswer = (result.getAiRoleId() != null && !result.getAiRoleId().isEmpty()) ? result.getAiRoleId() : roleId;
-            sendTts(session, result.getFinalText(), roleForAnswer);
+                @Override
+                public void onToken(String delta) {
+                    if (!tokenEvents) return;
+                    try {
+                        send(session, new TextMessage("{\"type\":\"token\",\"delta\":" + toJsonString(delta) + "}"));
+                    } catch (Exception e) {
+                        log.debug("发送回答增量失败: {}", e.getMessage());
+                    }
+                }
 
-            updateSessionContext(session, result);
+                @Override
+                public void onAnswer(String finalText, String aiRoleId) {
+                    try {
+                        // 最终文本：若有跨角色，使用目标角色音色；否则用当前角色
+                        sendTextJson(session, asrText, finalText, aiRoleId);
+                        String roleForAnswer = (aiRoleId != null && !aiRoleId.isEmpty()) ? aiRoleId : roleId;
+                        sendTts(session, finalText, roleForAnswer, trace);
+                    } catch (Exception e) {
+                        log.warn("发送回答失败: {}", e.getMessage());
+                    }
+                }
 
+                @Override
+                public TurnTrace trace() {
+                    return trace;
+                }
+            };
+            var result = conversationOrchestrator.handleTurnStreaming(asrText, role, lastQuery, topicSummary, memorySummary, lastEscalatedRoleId, listener);
+            result.applyTo(state);
+
+        } catch (AdmissionRejectedException e) {
+            log.warn("本轮被准入控制拒绝: {} ({})", e.getLimiter(), e.getReason());
+            trace.path(TurnTrace.PATH_SHED);
+            if (permit != null) permit.fail();
+            sendBusy(session, e);
         } catch (Exception e) {
+            if (permit != null) permit.fail();
             log.error("WS handleBinaryMessage failed", e);
             // 不关闭连接，返回文本错误，前端可忽略或提示
-            try { session.sendMessage(new TextMessage("error: " + e.getMessage())); } catch (Exception ignored) {}
+            try { send(session, new TextMessage("error: " + e.getMessage())); } catch (Exception ignored) {}
+        } finally {
+            if (permit != null) permit.close();
+            // 刷新会话的访问时间与内存估算
+            sessionStore.commit(state);
+            sessionStore.endTurn(state.getToken());
+            trace.finish();
+            // 前端以 ?trace=1 订阅本轮分阶段耗时；噪声/重复被丢弃的轮次不下发
+            if ("1".equals(extractQueryParam(session, "trace")) && !TurnTrace.PATH_DROPPED.equals(trace.getPath())) {
+                sendTraceJson(session, trace);
+            }
         }
     }
 
     // ======== Private helpers (inside handler class) ========
-    private byte[] extractAudioBytes(BinaryMessage message) {
-        ByteBuffer payload = message.getPayload();
-        byte[] audioBytes = new byte[payload.remaining()];
-        payload.get(audioBytes);
-        return audioBytes;
+    private String transcribe(AudioSource audio) {
+        // ASR 熔断时快速拒绝，与过载一样回复 busy
+        return admissionController.call(AdmissionController.ASR, () -> speechToTextService.transcribe(audio));
     }
 
-    private MultipartFile toMultipart(byte[] audioBytes) {
-        return new ByteArrayMultipartFile("file", "client.wav", "audio/wav", audioBytes);
+    private boolean isDuplicateAudio(ConversationState state, AudioFingerprint fingerprint) {
+        if (fingerprint == null || audioDedupeWindowMs <= 0) return false;
+        long now = System.currentTimeMillis();
+        AudioFingerprint last = state.getLastAudioFingerprint();
+        if (last != null && now - state.getLastAudioAt() < audioDedupeWindowMs && fingerprint.matches(last, audioDedupeMinSimilarity)) {
+            return true;
+        }
+        state.setLastAudioFingerprint(fingerprint);
+        state.setLastAudioAt(now);
+        return false;
     }
 
-    private String transcribe(MultipartFile file) throws Exception {
-        return speechToTextService.transcribe(file);
+    private ConversationState conversationState(WebSocketSession session) {
+        ConversationState state = (ConversationState) session.getAttributes().get(STATE_ATTR);
+        if (state == null) {
+            state = sessionStore.open(null);
+            session.getAttributes().put(STATE_ATTR, state);
+        }
+        return state;
     }
 
     private String extractRoleIdFromQuery(WebSocketSession session) {
+        return extractQueryParam(session, "roleId");
+    }
+
+    private String extractQueryParam(WebSocketSession session, String name) {
         try {
             var uri = session.getUri();
             if (uri == null) return null;
@@ -129,7 +259,7 @@ public class VoiceWebSocketHandler extends AbstractWebSocketHandler {
             if (params == null) return null;
             for (String p : params.split("&")) {
                 String[] kv = p.split("=", 2);
-                if (kv.length == 2 && "roleId".equals(kv[0])) {
+                if (kv.length == 2 && name.equals(kv[0])) {
                     return java.net.URLDecoder.decode(kv[1], java.nio.charset.StandardCharsets.UTF_8);
                 }
             }
@@ -137,77 +267,82 @@ public class VoiceWebSocketHandler extends AbstractWebSocketHandler {
         return null;
     }
 
-    private String getSessionAttr(WebSocketSession session, String key) {
+    private void sendTextJson(WebSocketSession session, String userText, String aiText, String aiRoleId) throws Exception {
+        String json = "{\"type\":\"text\",\"user\":" + toJsonString(userText) + ",\"ai\":" + toJsonString(aiText) +
+                (aiRoleId != null ? ",\"aiRoleId\":" + toJsonString(aiRoleId) : "") + "}";
+        send(session, new TextMessage(json));
+    }
+
+    private void sendTraceJson(WebSocketSession session, TurnTrace trace) {
+        String json = "{\"type\":\"trace\"," + JsonUtil.traceFields(trace) + "}";
         try {
-            var attrs = session.getAttributes();
-            return attrs != null ? (String) attrs.get(key) : null;
-        } catch (Exception e) { return null; }
+            send(session, new TextMessage(json));
+        } catch (Exception e) {
+            log.debug("发送 trace 失败: {}", e.getMessage());
+        }
     }
 
-    private void updateSessionContext(WebSocketSession session, com.maverick.maverickchatbot.ai.rag.ConversationOrchestrator.Result result) {
+    private void sendBusy(WebSocketSession session, AdmissionRejectedException e) {
+        String json = "{\"type\":\"busy\",\"reason\":" + toJsonString(e.getReason())
+                + ",\"retryAfterMs\":" + admissionController.retryAfterMs() + "}";
         try {
-            var attrs = session.getAttributes();
-            if (attrs != null) {
-                attrs.put("lastQuery", result.getNewLastQuery());
-                // 取消对 topicSummary 的维护
-                if (result.getNewMemorySummary() != null && !result.getNewMemorySummary().isEmpty()) {
-                    attrs.put("memorySummary", result.getNewMemorySummary());
-                }
-                if (result.getNewEscalatedRoleId() != null) {
-                    attrs.put("lastEscalatedRoleId", result.getNewEscalatedRoleId());
-                }
-            }
-        } catch (Exception ignored) {}
+            send(session, new TextMessage(json));
+        } catch (Exception ex) {
+            log.debug("发送 busy 失败: {}", ex.getMessage());
+        }
     }
 
-    private void sendTextJson(WebSocketSession session, String userText, String aiText, String aiRoleId) throws Exception {
-        String json = "{\"type\":\"text\",\"user\":" + toJsonString(userText) + ",\"ai\":" + toJsonString(aiText) +
-                (aiRoleId != null ? ",\"aiRoleId\":" + toJsonString(aiRoleId) : "") + "}";
-        session.sendMessage(new TextMessage(json));
+    // 过渡话、增量文本与回答可能来自不同线程，WebSocketSession 不允许并发发送；
+    // 发送是阻塞 I/O 且可能在虚拟线程上执行，用每连接一把 ReentrantLock 串行化，避免 synchronized 钉住载体线程
+    private void send(WebSocketSession session, org.springframework.web.socket.WebSocketMessage<?> message) throws Exception {
+        ReentrantLock lock = (ReentrantLock) session.getAttributes().get(SEND_LOCK_ATTR);
+        lock.lock();
+        try {
+            session.sendMessage(message);
+        } finally {
+            lock.unlock();
+        }
     }
 
     private void sendTts(WebSocketSession session, String text) throws Exception {
         String roleId = extractRoleIdFromQuery(session);
-        String voice = null;
-        try {
-            RoleConfig rc = roleService.getById(roleId);
-            if (rc != null && rc.getVoiceSamples() != null && !rc.getVoiceSamples().isEmpty()) {
-                RoleConfig.VoiceSample first = rc.getVoiceSamples().get(0);
-                if (first != null && first.getSpkId() != null && !first.getSpkId().isEmpty()) {
-                    voice = first.getSpkId();
-                }
-            }
-            // 若当前角色未配置 voiceSamples，则由 TtsService 内部回退到全局默认 voice-type
-        } catch (Exception ignored) {}
-        
+        // 若当前角色未配置 voiceSamples，则由 TtsService 内部回退到全局默认 voice-type
+        String voice = roleService.resolveVoice(roleId);
+
         // 使用一次性合成，获取完整音频后发送给前端
         log.info("Starting TTS synthesis for text: '{}' with voice: '{}'", text, voice);
         byte[] audio = ttsService.synthesize(text, voice);
         if (audio != null && audio.length > 0) {
             log.info("TTS synthesis completed, sending audio ({} bytes) to frontend", audio.length);
-            session.sendMessage(new BinaryMessage(audio));
+            send(session, new BinaryMessage(audio));
         } else {
             log.warn("TTS synthesis returned empty audio for text: '{}'", text);
         }
     }
 
-    private void sendTts(WebSocketSession session, String text, String roleId) throws Exception {
-        String voice = null;
-        try {
-            RoleConfig rc = roleService.getById(roleId);
-            if (rc != null && rc.getVoiceSamples() != null && !rc.getVoiceSamples().isEmpty()) {
-                RoleConfig.VoiceSample first = rc.getVoiceSamples().get(0);
-                if (first != null && first.getSpkId() != null && !first.getSpkId().isEmpty()) {
-                    voice = first.getSpkId();
-                }
+    private void sendTts(WebSocketSession session, String text, String roleId, TurnTrace trace) throws Exception {
+        // TTS 熔断：文本已下发，本轮降级为仅文本，提示前端一次
+        if (admissionController.isOpen(AdmissionController.TTS)) {
+            if (!trace.getDegraded().contains(TurnTrace.DEGRADED_TEXT_ONLY)) {
+                trace.degrade(TurnTrace.DEGRADED_TEXT_ONLY);
+                send(session, new TextMessage("{\"type\":\"degraded\",\"mode\":" + toJsonString(TurnTrace.DEGRADED_TEXT_ONLY) + "}"));
             }
-        } catch (Exception ignored) {}
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            sendTts(session, text, roleId);
+        } finally {
+            trace.record(TurnTrace.TTS, System.nanoTime() - start);
+        }
+    }
+
+    private void sendTts(WebSocketSession session, String text, String roleId) throws Exception {
+        String voice = roleService.resolveVoice(roleId);
 
         log.info("Starting TTS synthesis for text: '{}' with voice: '{}' (roleId={})", text, voice, roleId);
-        byte[] audio = ttsService.synthesize(text, voice);
-        if (audio != null && audio.length > 0) {
-            session.sendMessage(new BinaryMessage(audio));
-        }
+        // 按句并行合成，逐句按序下发
+        sentenceTtsPipeline.synthesize(session.getId(), text, voice, audio -> send(session, new BinaryMessage(audio)));
     }
 
     private boolean hasText(String s) {
@@ -215,7 +350,7 @@ public class VoiceWebSocketHandler extends AbstractWebSocketHandler {
     }
 
     // 判断是否为噪声或无效文本：纯标点/空白、或常见口头禅且过短
-    private boolean isNoisyText(String s) {
+    static boolean isNoisyText(String s) {
         if (s == null) return true;
         String t = s.trim();
         if (t.isEmpty()) return true;
@@ -235,49 +370,6 @@ public class VoiceWebSocketHandler extends AbstractWebSocketHandler {
     @Override
     public void afterConnectionClosed(@NonNull WebSocketSession session, @NonNull CloseStatus status) {
         log.info("/ws/voice closed: {} {}", session.getId(), status);
+        sentenceTtsPipeline.release(session.getId());
     }
 }
-
-class ByteArrayMultipartFile implements MultipartFile {
-    private final String name;
-    private final String originalFilename;
-    private final String contentType;
-    private final byte[] content;
-
-    ByteArrayMultipartFile(String name, String originalFilename, String contentType, byte[] content) {
-        this.name = name;
-        this.originalFilename = originalFilename;
-        this.contentType = contentType;
-        this.content = content;
-    }
-
-    @Override
-    public @NonNull String getName() { return name; }
-
-    @Override
-    public String getOriginalFilename() { return originalFilename; }
-
-    @Override
-    public String getContentType() { return contentType; }
-
-    @Override
-    public boolean isEmpty() { return content == null || content.length == 0; }
-
-    @Override
-    public long getSize() { return content.length; }
-
-    @Override
-    public @NonNull byte[] getBytes() { return content; }
-
-    @Override
-    public @NonNull java.io.InputStream getInputStream() { return new java.io.ByteArrayInputStream(content); }
-
-    @Override
-    public void transferTo(@NonNull java.io.File dest) throws java.io.IOException, java.lang.IllegalStateException {
-        try (java.io.FileOutputStream fos = new java.io.FileOutputStream(dest)) {
-            fos.write(content);
-        }
-    }
-}
-
-
@@ -0,0 +1,15 @@
+package com.maverick.maverickchatbot.web.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChatTextRequest {
+    private String roleId;
+    private String text;
+    // 会话令牌；为空或已过期时发放新会话
+    private String session;
+}
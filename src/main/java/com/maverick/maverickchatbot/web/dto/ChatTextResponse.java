@@ -0,0 +1,17 @@
+package com.maverick.maverickchatbot.web.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChatTextResponse {
+    private String session;
+    private boolean resumed;
+    // 跨角色转接时的过渡话，否则为 null
+    private String transferText;
+    private String aiText;
+    private String aiRoleId;
+}
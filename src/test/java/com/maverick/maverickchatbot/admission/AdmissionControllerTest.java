@@ -0,0 +1,53 @@
+package com.maverick.maverickchatbot.admission;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AdmissionControllerTest {
+
+    // 只配隔离舱、不配熔断器的依赖
+    private static AdmissionController bulkheadOnly(int maxQueue, long queueTimeoutMs) {
+        AdmissionProperties.Limit cfg = new AdmissionProperties.Limit();
+        cfg.setInitialLimit(1);
+        cfg.setMinLimit(1);
+        cfg.setMaxLimit(1);
+        cfg.setMaxQueue(maxQueue);
+        cfg.setQueueTimeoutMs(queueTimeoutMs);
+        AdmissionProperties properties = new AdmissionProperties();
+        properties.getDependencies().put(AdmissionController.ASR, cfg);
+        AdmissionController controller = new AdmissionController(properties, new SimpleMeterRegistry());
+        controller.init();
+        return controller;
+    }
+
+    @Test
+    void bulkheadRejectionWithoutBreakerIsAdmissionRejection() {
+        AdmissionController controller = bulkheadOnly(0, 1000);
+        AdmissionController.Call held = controller.enter(AdmissionController.ASR);
+        try {
+            assertThatThrownBy(() -> controller.enter(AdmissionController.ASR))
+                    .isInstanceOf(AdmissionRejectedException.class)
+                    .extracting("reason").isEqualTo("queue_full");
+        } finally {
+            held.close();
+        }
+        assertThat(controller.isOpen(AdmissionController.ASR)).isFalse();
+    }
+
+    @Test
+    void bulkheadTimeoutWithoutBreakerIsAdmissionRejection() {
+        AdmissionController controller = bulkheadOnly(1, 50);
+        AdmissionController.Call held = controller.enter(AdmissionController.ASR);
+        try {
+            assertThatThrownBy(() -> controller.call(AdmissionController.ASR, () -> "unreachable"))
+                    .isInstanceOf(AdmissionRejectedException.class)
+                    .extracting("reason").isEqualTo("timeout");
+        } finally {
+            held.close();
+        }
+        assertThat(controller.call(AdmissionController.ASR, () -> "ok")).isEqualTo("ok");
+    }
+}
@@ -0,0 +1,91 @@
+package com.maverick.maverickchatbot.admission;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CircuitBreakerTest {
+
+    private static final long FAST = 1_000_000L;
+
+    private static AdmissionProperties.Breaker breaker(long openMs) {
+        AdmissionProperties.Breaker cfg = new AdmissionProperties.Breaker();
+        cfg.setWindowSize(10);
+        cfg.setMinCalls(4);
+        cfg.setFailureRateThreshold(0.5);
+        cfg.setSlowCallMs(100);
+        cfg.setSlowCallRateThreshold(0.8);
+        cfg.setDegradeSlowCallRate(0.3);
+        cfg.setOpenMs(openMs);
+        cfg.setHalfOpenCalls(2);
+        return cfg;
+    }
+
+    @Test
+    void opensOnFailureRateAndRejectsUntilOpenPeriodEnds() {
+        CircuitBreaker cb = new CircuitBreaker("t", breaker(60_000), new SimpleMeterRegistry());
+        cb.record(cb.acquire(), FAST, true);
+        cb.record(cb.acquire(), FAST, false);
+        cb.record(cb.acquire(), FAST, true);
+        assertThat(cb.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        // 第 4 次：样本达到 minCalls，失败率 2/4
+        cb.record(cb.acquire(), FAST, false);
+
+        assertThat(cb.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(cb.isOpen()).isTrue();
+        assertThatThrownBy(cb::acquire)
+                .isInstanceOf(AdmissionRejectedException.class)
+                .extracting("reason").isEqualTo("circuit_open");
+    }
+
+    @Test
+    void halfOpenTrialsCloseOnSuccessAndReopenOnFailure() {
+        CircuitBreaker cb = new CircuitBreaker("t", breaker(0), new SimpleMeterRegistry());
+        for (int i = 0; i < 4; i++) cb.record(cb.acquire(), FAST, false);
+        assertThat(cb.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+
+        // open-ms=0：下一次申请即转为半开，最多放行 2 个试探
+        long t1 = cb.acquire();
+        long t2 = cb.acquire();
+        assertThat(cb.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        assertThatThrownBy(cb::acquire).extracting("reason").isEqualTo("circuit_open");
+        cb.record(t1, FAST, true);
+        cb.record(t2, FAST, true);
+        assertThat(cb.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+        for (int i = 0; i < 4; i++) cb.record(cb.acquire(), FAST, false);
+        long trial = cb.acquire();
+        // 慢的试探同样视为失败
+        cb.record(trial, 200_000_000L, true);
+        assertThat(cb.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void staleResultsFromPreviousStateAreIgnored() {
+        CircuitBreaker cb = new CircuitBreaker("t", breaker(0), new SimpleMeterRegistry());
+        long stale = cb.acquire();
+        for (int i = 0; i < 4; i++) cb.record(cb.acquire(), FAST, false);
+        long t1 = cb.acquire();
+        long t2 = cb.acquire();
+        // 熔断前放行的调用此时失败，不影响半开试探
+        cb.record(stale, FAST, false);
+        cb.record(t1, FAST, true);
+        cb.record(t2, FAST, true);
+        assertThat(cb.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void slowCallsMarkDegradedBeforeTripping() {
+        CircuitBreaker cb = new CircuitBreaker("t", breaker(60_000), new SimpleMeterRegistry());
+        cb.record(cb.acquire(), 200_000_000L, true);
+        for (int i = 0; i < 3; i++) cb.record(cb.acquire(), FAST, true);
+        assertThat(cb.isDegraded()).isFalse();
+
+        cb.record(cb.acquire(), 200_000_000L, true);
+        // 慢调用 2/5：达到变慢阈值，但未到熔断阈值
+        assertThat(cb.isDegraded()).isTrue();
+        assertThat(cb.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+}
@@ -0,0 +1,89 @@
+package com.maverick.maverickchatbot.admission;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ConcurrencyLimiterTest {
+
+    private static AdmissionProperties.Limit limit(int initial, int maxQueue, long targetMs, long queueTimeoutMs) {
+        AdmissionProperties.Limit cfg = new AdmissionProperties.Limit();
+        cfg.setInitialLimit(initial);
+        cfg.setMinLimit(1);
+        cfg.setMaxLimit(100);
+        cfg.setMaxQueue(maxQueue);
+        cfg.setTargetLatencyMs(targetMs);
+        cfg.setQueueTimeoutMs(queueTimeoutMs);
+        return cfg;
+    }
+
+    @Test
+    void fullQueueIsRejectedImmediately() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("t", limit(1, 0, 1000, 1000), new SimpleMeterRegistry());
+        try (ConcurrencyLimiter.Permit held = limiter.acquire()) {
+            assertThatThrownBy(limiter::acquire)
+                    .isInstanceOf(AdmissionRejectedException.class)
+                    .extracting("reason").isEqualTo("queue_full");
+        }
+    }
+
+    @Test
+    void queuedRequestProceedsWhenPermitIsReleased() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("t", limit(1, 4, 1000, 2000), new SimpleMeterRegistry());
+        ConcurrencyLimiter.Permit held = limiter.acquire();
+        CompletableFuture<ConcurrencyLimiter.Permit> waiter = CompletableFuture.supplyAsync(limiter::acquire);
+        CompletableFuture.delayedExecutor(50, TimeUnit.MILLISECONDS).execute(held::close);
+
+        ConcurrencyLimiter.Permit next = waiter.orTimeout(5, TimeUnit.SECONDS).join();
+        assertThat(limiter.getInflight()).isEqualTo(1);
+        next.close();
+        assertThat(limiter.getInflight()).isZero();
+    }
+
+    @Test
+    void expectedWaitBeyondQueueTimeoutIsRejectedUpFront() throws Exception {
+        AdmissionProperties.Limit cfg = limit(1, 10, 10_000, 100);
+        cfg.setMaxLimit(1);
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("t", cfg, new SimpleMeterRegistry());
+        // 建立约 300ms 的平均耗时
+        try (ConcurrencyLimiter.Permit p = limiter.acquire()) {
+            Thread.sleep(300);
+        }
+        try (ConcurrencyLimiter.Permit held = limiter.acquire()) {
+            long start = System.nanoTime();
+            assertThatThrownBy(limiter::acquire).extracting("reason").isEqualTo("deadline");
+            assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(50);
+        }
+    }
+
+    @Test
+    void limitBacksOffOnSlowOrFailedCallsAndGrowsUnderHealthyLoad() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("t", limit(10, 0, 0, 0), new SimpleMeterRegistry());
+        // 目标耗时为 0：任何调用都视为慢，每次回退 10%
+        limiter.acquire().close();
+        assertThat(limiter.getLimit()).isEqualTo(9);
+
+        ConcurrencyLimiter healthy = new ConcurrencyLimiter("h", limit(4, 0, 60_000, 0), new SimpleMeterRegistry());
+        // 接近满载（3/4）时成功调用才会推高上限
+        for (int i = 0; i < 40; i++) {
+            ConcurrencyLimiter.Permit a = healthy.acquire();
+            ConcurrencyLimiter.Permit b = healthy.acquire();
+            ConcurrencyLimiter.Permit c = healthy.acquire();
+            a.close();
+            b.close();
+            c.close();
+        }
+        assertThat(healthy.getLimit()).isGreaterThan(4);
+
+        ConcurrencyLimiter.Permit failed = healthy.acquire();
+        int before = healthy.getLimit();
+        failed.fail();
+        failed.close();
+        assertThat(healthy.getLimit()).isLessThan(before);
+    }
+}
@@ -0,0 +1,83 @@
+package com.maverick.maverickchatbot.ai.asr;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AudioFingerprintTest {
+
+    private static final int RATE = 16000;
+
+    @Test
+    void identicalAudioMatches() {
+        short[] pcm = speechLike(42, 1.0, 1.5);
+        AudioFingerprint a = AudioFingerprint.ofPcm(pcm, 0, pcm.length, RATE);
+        AudioFingerprint b = AudioFingerprint.ofPcm(pcm.clone(), 0, pcm.length, RATE);
+
+        assertThat(a.getHash()).isEqualTo(b.getHash());
+        assertThat(a.matches(b, 0.9)).isTrue();
+        assertThat(a.frames()).isEqualTo(38);
+    }
+
+    @Test
+    void slightlyLouderReuploadIsNearDuplicate() {
+        short[] pcm = speechLike(42, 1.0, 1.5);
+        short[] louder = speechLike(42, 1.12, 1.5);
+
+        AudioFingerprint a = AudioFingerprint.ofPcm(pcm, 0, pcm.length, RATE);
+        AudioFingerprint b = AudioFingerprint.ofPcm(louder, 0, louder.length, RATE);
+
+        assertThat(a.getHash()).isNotEqualTo(b.getHash());
+        assertThat(a.matches(b, 0.9)).isTrue();
+    }
+
+    @Test
+    void differentUtteranceDoesNotMatch() {
+        short[] one = speechLike(1, 1.0, 1.5);
+        short[] other = speechLike(2, 1.0, 1.5);
+        short[] longer = speechLike(1, 1.0, 2.0);
+
+        AudioFingerprint a = AudioFingerprint.ofPcm(one, 0, one.length, RATE);
+        assertThat(a.matches(AudioFingerprint.ofPcm(other, 0, other.length, RATE), 0.9)).isFalse();
+        assertThat(a.matches(AudioFingerprint.ofPcm(longer, 0, longer.length, RATE), 0.9)).isFalse();
+    }
+
+    @Test
+    void shortClipsOnlyMatchExactly() {
+        short[] pcm = speechLike(42, 1.0, 0.6);
+        short[] louder = speechLike(42, 1.12, 0.6);
+
+        AudioFingerprint a = AudioFingerprint.ofPcm(pcm, 0, pcm.length, RATE);
+        assertThat(a.frames()).isLessThan(AudioFingerprint.MIN_FUZZY_FRAMES);
+        assertThat(a.matches(AudioFingerprint.ofPcm(pcm.clone(), 0, pcm.length, RATE), 0.9)).isTrue();
+        assertThat(a.matches(AudioFingerprint.ofPcm(louder, 0, louder.length, RATE), 0.9)).isFalse();
+    }
+
+    @Test
+    void rawBytesOnlyMatchExactly() {
+        byte[] mp3 = new byte[4096];
+        new Random(7).nextBytes(mp3);
+        byte[] changed = mp3.clone();
+        changed[100] ^= 1;
+
+        AudioFingerprint a = AudioFingerprint.ofBytes(ByteBuffer.wrap(mp3));
+        assertThat(a.matches(AudioFingerprint.ofBytes(ByteBuffer.wrap(mp3.clone())), 0.9)).isTrue();
+        assertThat(a.matches(AudioFingerprint.ofBytes(ByteBuffer.wrap(changed)), 0.9)).isFalse();
+    }
+
+    // 以随机“音节”包络调制的噪声，seed 决定包络
+    private static short[] speechLike(long seed, double gain, double seconds) {
+        Random envelope = new Random(seed);
+        Random noise = new Random(99);
+        short[] pcm = new short[(int) (RATE * seconds)];
+        double level = 0;
+        for (int i = 0; i < pcm.length; i++) {
+            if (i % (RATE / 10) == 0) level = envelope.nextInt(4) == 0 ? 30 : 500 + envelope.nextInt(12000);
+            pcm[i] = (short) Math.max(-32768, Math.min(32767, noise.nextGaussian() * level * gain));
+        }
+        return pcm;
+    }
+}
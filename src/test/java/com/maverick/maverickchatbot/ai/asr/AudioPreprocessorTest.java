@@ -0,0 +1,79 @@
+package com.maverick.maverickchatbot.ai.asr;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AudioPreprocessorTest {
+
+    private final AudioPreprocessor preprocessor = new AudioPreprocessor(true, -45, 20, 100, 60, new SimpleMeterRegistry());
+
+    @Test
+    void downmixesResamplesAndTrimsSilence() {
+        // 48kHz 双声道：1s 静音 + 0.5s 440Hz + 1s 静音
+        byte[] wav = wav(48000, 2, 1.0, 0.5, 1.0);
+
+        AudioPreprocessor.Result r = preprocessor.process(AudioSource.wav(wav));
+
+        assertThat(r.isSilent()).isFalse();
+        assertThat(r.isPassThrough()).isFalse();
+        AudioPreprocessor.WavFormat out = AudioPreprocessor.WavFormat.parse(r.getAudio().data().order(ByteOrder.LITTLE_ENDIAN));
+        assertThat(out.sampleRate).isEqualTo(16000);
+        assertThat(out.channels).isEqualTo(1);
+        assertThat(out.bitsPerSample).isEqualTo(16);
+        assertThat(r.getInputMs()).isEqualTo(2500);
+        // 0.5s 语音 + 两侧各 100ms 补边，允许一帧误差
+        assertThat(r.getOutputMs()).isBetween(680L, 740L);
+        assertThat(r.getAudio().size()).isLessThan(wav.length / 10);
+        // 指纹不含补边：0.5s 语音按 40ms 分帧
+        assertThat(r.getFingerprint().frames()).isEqualTo(13);
+    }
+
+    @Test
+    void allSilenceIsRejected() {
+        AudioPreprocessor.Result r = preprocessor.process(AudioSource.wav(wav(16000, 1, 1.0, 0, 0)));
+
+        assertThat(r.isSilent()).isTrue();
+        assertThat(r.getAudio()).isNull();
+    }
+
+    @Test
+    void upsamplesNarrowbandAudio() {
+        AudioPreprocessor.Result r = preprocessor.process(AudioSource.wav(wav(8000, 1, 0, 1.0, 0)));
+
+        assertThat(r.getOutputMs()).isEqualTo(1000);
+        assertThat(r.getAudio().size()).isEqualTo(44 + 16000 * 2);
+    }
+
+    @Test
+    void nonWavPassesThrough() {
+        AudioSource mp3 = AudioSource.of(ByteBuffer.wrap("ID3\u0004fake-mp3".getBytes(StandardCharsets.ISO_8859_1)), "a.mp3", "audio/mpeg");
+
+        AudioPreprocessor.Result r = preprocessor.process(mp3);
+
+        assertThat(r.isPassThrough()).isTrue();
+        assertThat(r.getAudio()).isSameAs(mp3);
+    }
+
+    private static byte[] wav(int rate, int channels, double leadSec, double toneSec, double tailSec) {
+        int lead = (int) (rate * leadSec);
+        int tone = (int) (rate * toneSec);
+        int frames = lead + tone + (int) (rate * tailSec);
+        int dataSize = frames * channels * 2;
+        ByteBuffer b = ByteBuffer.allocate(44 + dataSize).order(ByteOrder.LITTLE_ENDIAN);
+        b.put("RIFF".getBytes(StandardCharsets.US_ASCII)).putInt(36 + dataSize).put("WAVE".getBytes(StandardCharsets.US_ASCII))
+         .put("fmt ".getBytes(StandardCharsets.US_ASCII)).putInt(16).putShort((short) 1).putShort((short) channels)
+         .putInt(rate).putInt(rate * channels * 2).putShort((short) (channels * 2)).putShort((short) 16)
+         .put("data".getBytes(StandardCharsets.US_ASCII)).putInt(dataSize);
+        for (int i = 0; i < frames; i++) {
+            short v = i >= lead && i < lead + tone ? (short) (8000 * Math.sin(2 * Math.PI * 440 * i / rate)) : 0;
+            for (int c = 0; c < channels; c++) b.putShort(v);
+        }
+        return b.array();
+    }
+}
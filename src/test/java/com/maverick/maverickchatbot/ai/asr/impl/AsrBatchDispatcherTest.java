@@ -0,0 +1,118 @@
+package com.maverick.maverickchatbot.ai.asr.impl;
+
+import com.maverick.maverickchatbot.ai.asr.AudioSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AsrBatchDispatcherTest {
+
+    private final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void groupsConcurrentUtterancesAndFansOutResults() {
+        try (AsrBatchDispatcher dispatcher = new AsrBatchDispatcher(AsrBatchDispatcherTest::echo, executor, 200, 16, batchSizes::add)) {
+            List<CompletableFuture<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 5; i++) futures.add(dispatcher.submit(audio("u" + i)));
+
+            for (int i = 0; i < 5; i++) assertThat(futures.get(i).join()).isEqualTo("text:u" + i);
+            assertThat(batchSizes).containsExactly(5);
+        }
+    }
+
+    @Test
+    void fullBatchIsSentWithoutWaitingForTheWindow() {
+        try (AsrBatchDispatcher dispatcher = new AsrBatchDispatcher(AsrBatchDispatcherTest::echo, executor, 60_000, 2, batchSizes::add)) {
+            CompletableFuture<String> a = dispatcher.submit(audio("a"));
+            CompletableFuture<String> b = dispatcher.submit(audio("b"));
+
+            assertThat(CompletableFuture.allOf(a, b).orTimeout(5, TimeUnit.SECONDS).join()).isNull();
+            assertThat(batchSizes).containsExactly(2);
+        }
+    }
+
+    @Test
+    void perItemFailureOnlyFailsThatItem() {
+        try (AsrBatchDispatcher dispatcher = new AsrBatchDispatcher(audios -> {
+            List<String> texts = new ArrayList<>();
+            for (AudioSource a : audios) texts.add(text(a).equals("bad") ? null : "ok");
+            return CompletableFuture.completedFuture(texts);
+        }, executor, 200, 16, batchSizes::add)) {
+            CompletableFuture<String> good = dispatcher.submit(audio("good"));
+            CompletableFuture<String> bad = dispatcher.submit(audio("bad"));
+
+            assertThat(good.join()).isEqualTo("ok");
+            assertThatThrownBy(bad::join).hasCauseInstanceOf(IllegalStateException.class);
+        }
+    }
+
+    @Test
+    void blockedSenderDoesNotStallNextBatch() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        // 模拟第一批卡在等待连接许可
+        try (AsrBatchDispatcher dispatcher = new AsrBatchDispatcher(audios -> {
+            if (text(audios.get(0)).equals("slow")) awaitQuietly(release);
+            return echo(audios);
+        }, executor, 0, 1, batchSizes::add)) {
+            CompletableFuture<String> slow = dispatcher.submit(audio("slow"));
+            CompletableFuture<String> fast = dispatcher.submit(audio("fast"));
+
+            assertThat(fast.get(5, TimeUnit.SECONDS)).isEqualTo("text:fast");
+            assertThat(slow).isNotDone();
+            release.countDown();
+            assertThat(slow.get(5, TimeUnit.SECONDS)).isEqualTo("text:slow");
+        }
+    }
+
+    @Test
+    void rejectedDispatchFailsTheDrainedBatch() {
+        try (AsrBatchDispatcher dispatcher = new AsrBatchDispatcher(AsrBatchDispatcherTest::echo, task -> {
+            throw new RejectedExecutionException("saturated");
+        }, 0, 16, batchSizes::add)) {
+            CompletableFuture<String> f = dispatcher.submit(audio("a"));
+
+            assertThatThrownBy(() -> f.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(RejectedExecutionException.class);
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static CompletableFuture<List<String>> echo(List<AudioSource> audios) {
+        List<String> texts = new ArrayList<>();
+        for (AudioSource a : audios) texts.add("text:" + text(a));
+        return CompletableFuture.completedFuture(texts);
+    }
+
+    private static AudioSource audio(String s) {
+        return AudioSource.wav(s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String text(AudioSource a) {
+        return StandardCharsets.UTF_8.decode(a.data()).toString();
+    }
+}
@@ -0,0 +1,217 @@
+package com.maverick.maverickchatbot.ai.llm;
+
+import com.maverick.maverickchatbot.admission.AdmissionController;
+import com.maverick.maverickchatbot.admission.AdmissionProperties;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ModelRouterTest {
+
+    private static final List<ChatMessage> MESSAGES = List.of(UserMessage.from("你好"));
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 第 n 次调用（从 0 开始）的耗时由 delayMs 决定，被中断即抛出。
+     */
+    private static ChatModel fakeModel(IntFunction<Long> delayMs) {
+        AtomicInteger calls = new AtomicInteger();
+        return new ChatModel() {
+            @Override
+            public ChatResponse chat(List<ChatMessage> messages) {
+                int n = calls.getAndIncrement();
+                try {
+                    Thread.sleep(delayMs.apply(n));
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                return ChatResponse.builder().aiMessage(AiMessage.from("answer-" + n)).build();
+            }
+        };
+    }
+
+    private ModelRouter router(ChatModel model, int maxConcurrency, long deadlineMs, boolean hedge) {
+        return router(model, null, maxConcurrency, deadlineMs, hedge);
+    }
+
+    private ModelRouter router(ChatModel model, StreamingChatModel streamingModel, int maxConcurrency, long deadlineMs, boolean hedge) {
+        return router(model, streamingModel, maxConcurrency, deadlineMs, hedge, new AdmissionController(new AdmissionProperties(), registry));
+    }
+
+    private ModelRouter router(ChatModel model, StreamingChatModel streamingModel, int maxConcurrency, long deadlineMs, boolean hedge,
+                               AdmissionController admission) {
+        ModelRoutingProperties routing = new ModelRoutingProperties();
+        ModelRoutingProperties.Tier tier = new ModelRoutingProperties.Tier();
+        tier.setMaxConcurrency(maxConcurrency);
+        routing.getTiers().put(ModelRouter.DEFAULT_TIER, tier);
+        LlmResilienceProperties resilience = new LlmResilienceProperties();
+        resilience.getDeadlinesMs().put(LlmCallType.ANSWER.key(), deadlineMs);
+        resilience.getHedge().setEnabled(hedge);
+        resilience.getHedge().setMinSamples(3);
+        resilience.getHedge().setMinDelayMs(50);
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        if (streamingModel != null) beans.addBean("streamingChatModel", streamingModel);
+        ModelRouter router = new ModelRouter(model, routing, executor, resilience, registry,
+                admission, beans.getBeanProvider(StreamingChatModel.class));
+        router.init();
+        return router;
+    }
+
+    private double counter(String name) {
+        return registry.get(name).tag("call", LlmCallType.ANSWER.key()).counter().count();
+    }
+
+    @Test
+    void hedgeWinsWhenPrimaryIsSlow() {
+        // 前 3 次快速调用攒够延迟样本，第 4 次（主请求）很慢，第 5 次（对冲）很快
+        ModelRouter router = router(fakeModel(n -> n == 3 ? 5_000L : 5L), 4, 2_000, true);
+        for (int i = 0; i < 3; i++) router.chat(LlmCallType.ANSWER, MESSAGES);
+
+        long start = System.nanoTime();
+        ChatResponse response = router.chat(LlmCallType.ANSWER, MESSAGES);
+
+        assertThat(response.aiMessage().text()).isEqualTo("answer-4");
+        assertThat((System.nanoTime() - start) / 1_000_000).isLessThan(1_000);
+        assertThat(counter("llm.hedge.sent")).isEqualTo(1);
+        assertThat(counter("llm.hedge.won")).isEqualTo(1);
+    }
+
+    @Test
+    void bothAttemptsSlowThrowsTimeoutAtDeadline() {
+        ModelRouter router = router(fakeModel(n -> n < 3 ? 5L : 5_000L), 4, 300, true);
+        for (int i = 0; i < 3; i++) router.chat(LlmCallType.ANSWER, MESSAGES);
+
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> router.chat(LlmCallType.ANSWER, MESSAGES)).isInstanceOf(LlmTimeoutException.class);
+
+        assertThat((System.nanoTime() - start) / 1_000_000).isBetween(250L, 1_000L);
+        assertThat(counter("llm.hedge.sent")).isEqualTo(1);
+        assertThat(counter("llm.deadline.exceeded")).isEqualTo(1);
+    }
+
+    @Test
+    void timedOutAttemptsRaiseHedgeDelay() throws InterruptedException {
+        AtomicLong delayMs = new AtomicLong(5);
+        ModelRouter router = router(fakeModel(n -> delayMs.get()), 4, 300, true);
+        for (int i = 0; i < 3; i++) router.chat(LlmCallType.ANSWER, MESSAGES);
+
+        // 整体变慢：超时的尝试按截止时的耗时计入延迟样本
+        delayMs.set(5_000);
+        for (int i = 0; i < 2; i++) {
+            assertThatThrownBy(() -> router.chat(LlmCallType.ANSWER, MESSAGES)).isInstanceOf(LlmTimeoutException.class);
+        }
+        Thread.sleep(100);
+        double sent = counter("llm.hedge.sent");
+
+        // 分位数已抬高到截止时间附近，150ms 的调用不再触发对冲
+        delayMs.set(150);
+        assertThat(router.chat(LlmCallType.ANSWER, MESSAGES).aiMessage().text()).startsWith("answer-");
+        assertThat(counter("llm.hedge.sent")).isEqualTo(sent);
+    }
+
+    @Test
+    void permitIsReleasedWhenTimedOutCallIsCancelled() {
+        // 档位只有 1 个许可：超时的调用被取消后许可必须归还，下一次调用才能拿到
+        ModelRouter router = router(fakeModel(n -> n == 0 ? 5_000L : 5L), 1, 200, false);
+        assertThatThrownBy(() -> router.chat(LlmCallType.ANSWER, MESSAGES)).isInstanceOf(LlmTimeoutException.class);
+
+        assertThat(router.chat(LlmCallType.ANSWER, MESSAGES).aiMessage().text()).isEqualTo("answer-1");
+    }
+
+    @Test
+    void streamHoldsTierPermitUntilStreamEndsEvenIfAbandoned() {
+        AtomicReference<StreamingChatResponseHandler> handler = new AtomicReference<>();
+        StreamingChatModel streaming = new StreamingChatModel() {
+            @Override
+            public void chat(List<ChatMessage> messages, StreamingChatResponseHandler h) {
+                handler.set(h);
+            }
+        };
+        ModelRouter router = router(fakeModel(n -> 5L), streaming, 1, 200, false);
+        List<String> tokens = new ArrayList<>();
+        ModelRouter.Stream stream = router.stream(LlmCallType.ANSWER, MESSAGES,
+                System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(200), tokens::add);
+        handler.get().onPartialResponse("你");
+
+        // 调用方放弃等待：之后的 token 不再回调，但厂商流未结束，许可仍被占用
+        stream.abandon();
+        handler.get().onPartialResponse("好");
+        assertThat(tokens).containsExactly("你");
+        assertThatThrownBy(() -> router.chat(LlmCallType.ANSWER, MESSAGES)).isInstanceOf(LlmTimeoutException.class);
+
+        handler.get().onCompleteResponse(ChatResponse.builder().aiMessage(AiMessage.from("你好")).build());
+        // 等许可超时的那次未到达模型，这是模型的第一次阻塞调用
+        assertThat(router.chat(LlmCallType.ANSWER, MESSAGES).aiMessage().text()).isEqualTo("answer-0");
+        assertThat(counter("llm.calls")).isEqualTo(3);
+    }
+
+    @Test
+    void permitTimeoutsDoNotTripLlmBreakerButVendorFailuresDo() {
+        AdmissionProperties.Breaker breaker = new AdmissionProperties.Breaker();
+        breaker.setWindowSize(10);
+        breaker.setMinCalls(2);
+        breaker.setFailureRateThreshold(0.5);
+        AdmissionProperties properties = new AdmissionProperties();
+        properties.getBreakers().put(AdmissionController.LLM, breaker);
+        AdmissionController admission = new AdmissionController(properties, registry);
+        ReflectionTestUtils.invokeMethod(admission, "init");
+
+        AtomicReference<StreamingChatResponseHandler> handler = new AtomicReference<>();
+        StreamingChatModel streaming = new StreamingChatModel() {
+            @Override
+            public void chat(List<ChatMessage> messages, StreamingChatResponseHandler h) {
+                handler.set(h);
+            }
+        };
+        ChatModel failing = new ChatModel() {
+            @Override
+            public ChatResponse chat(List<ChatMessage> messages) {
+                throw new IllegalStateException("vendor 500");
+            }
+        };
+        ModelRouter router = router(failing, streaming, 1, 100, false, admission);
+
+        // 流式调用占住唯一的档位许可：之后的调用都等不到许可
+        router.stream(LlmCallType.ANSWER, MESSAGES, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100), t -> { });
+        for (int i = 0; i < 4; i++) {
+            assertThatThrownBy(() -> router.chat(LlmCallType.ANSWER, MESSAGES)).isInstanceOf(LlmTimeoutException.class);
+        }
+        assertThatThrownBy(() -> router.stream(LlmCallType.ANSWER, MESSAGES, System.nanoTime(), t -> { }))
+                .isInstanceOf(LlmTimeoutException.class);
+        assertThat(admission.isOpen(AdmissionController.LLM)).isFalse();
+
+        // 真正到达厂商的失败照常计入
+        handler.get().onCompleteResponse(ChatResponse.builder().aiMessage(AiMessage.from("好")).build());
+        assertThatThrownBy(() -> router.chat(LlmCallType.ANSWER, MESSAGES)).hasMessageContaining("vendor 500");
+        assertThat(admission.isOpen(AdmissionController.LLM)).isTrue();
+    }
+}
@@ -0,0 +1,88 @@
+package com.maverick.maverickchatbot.ai.memory;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.memory.ChatMemory;
+import dev.langchain4j.memory.chat.MessageWindowChatMemory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BoundedChatMemoryStoreTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private final List<Object> evicted = new ArrayList<>();
+    // 默认不做周期清理，只验证访问时的过期判定
+    private long sweepIntervalMs = Long.MAX_VALUE;
+
+    private BoundedChatMemoryStore store(int maxSessions, boolean compact) {
+        ChatMemoryProperties props = new ChatMemoryProperties();
+        props.setMaxMessages(4);
+        props.setMaxSessions(maxSessions);
+        props.setTtlMs(60_000);
+        props.setSweepIntervalMs(sweepIntervalMs);
+        props.setCompact(compact);
+        BoundedChatMemoryStore store = new BoundedChatMemoryStore(props, new SimpleMeterRegistry(), now::get);
+        store.setEvictionListener(evicted::add);
+        return store;
+    }
+
+    private ChatMemory memory(BoundedChatMemoryStore store, String id) {
+        return MessageWindowChatMemory.builder().id(id).maxMessages(4).chatMemoryStore(store).build();
+    }
+
+    @Test
+    void sessionsAreIsolatedAndWindowedInBothModes() {
+        for (boolean compact : new boolean[]{false, true}) {
+            BoundedChatMemoryStore store = store(100, compact);
+            ChatMemory a = memory(store, "a");
+            ChatMemory b = memory(store, "b");
+            for (int i = 0; i < 5; i++) {
+                a.add(UserMessage.from("a" + i));
+                a.add(AiMessage.from("ok" + i));
+            }
+            b.add(UserMessage.from("你好"));
+
+            assertThat(a.messages()).hasSize(4).last().isEqualTo(AiMessage.from("ok4"));
+            assertThat(memory(store, "b").messages()).containsExactly(UserMessage.from("你好"));
+        }
+    }
+
+    @Test
+    void leastRecentlyUsedAndIdleSessionsAreEvicted() {
+        BoundedChatMemoryStore store = store(2, false);
+        memory(store, "a").add(UserMessage.from("1"));
+        memory(store, "b").add(UserMessage.from("2"));
+        store.getMessages("a");
+        memory(store, "c").add(UserMessage.from("3"));
+
+        assertThat(store.size()).isEqualTo(2);
+        assertThat(evicted).containsExactly("b");
+        assertThat(store.getMessages("a")).hasSize(1);
+
+        now.addAndGet(61_000);
+        assertThat(store.getMessages("c")).isEmpty();
+        assertThat(evicted).containsExactly("b", "c");
+    }
+
+    @Test
+    void idleSessionsAreSweptWhenAnotherSessionIsAccessed() {
+        sweepIntervalMs = 10_000;
+        BoundedChatMemoryStore store = store(100, false);
+        memory(store, "a").add(UserMessage.from("1"));
+        memory(store, "b").add(UserMessage.from("2"));
+        now.addAndGet(30_000);
+        memory(store, "c").add(UserMessage.from("3"));
+
+        // a、b 已空闲超过 ttl，c 未过期；只访问 c 也会清理 a、b
+        now.addAndGet(31_000);
+        assertThat(store.getMessages("c")).hasSize(1);
+        assertThat(evicted).containsExactly("a", "b");
+        assertThat(store.size()).isEqualTo(1);
+    }
+}
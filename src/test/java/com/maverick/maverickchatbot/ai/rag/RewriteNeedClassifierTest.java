@@ -0,0 +1,50 @@
+package com.maverick.maverickchatbot.ai.rag;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RewriteNeedClassifierTest {
+
+    private final RewriteNeedClassifier classifier = new RewriteNeedClassifier(0.8);
+
+    @Test
+    void firstTurnSkipsRewrite() {
+        var d = classifier.classify("他后来怎么样了", null, "");
+        assertThat(d.getReason()).isEqualTo("no-context");
+        assertThat(classifier.canSkip(d)).isTrue();
+    }
+
+    @Test
+    void pronounNeedsRewrite() {
+        var d = classifier.classify("他后来怎么样了", "罗恩的父亲是谁", "用户在问罗恩");
+        assertThat(d.isRewriteNeeded()).isTrue();
+        assertThat(classifier.canSkip(d)).isFalse();
+    }
+
+    @Test
+    void nonAnaphoricCompoundsAreIgnored() {
+        var d = classifier.classify("霍格沃茨还有其他学院是哪些学院", "分院帽", "用户在问分院");
+        assertThat(d.isRewriteNeeded()).isFalse();
+    }
+
+    @Test
+    void ellipsisNeedsRewrite() {
+        assertThat(classifier.classify("那赫敏呢", "罗恩的魔杖是什么", null).isRewriteNeeded()).isTrue();
+        assertThat(classifier.classify("为什么？", "诸葛亮为何斩马谡", null).isRewriteNeeded()).isTrue();
+    }
+
+    @Test
+    void longSelfContainedQuestionSkips() {
+        var d = classifier.classify("诸葛亮在五丈原病逝的时候有多少岁", "空城计", "用户在聊三国");
+        assertThat(d.isRewriteNeeded()).isFalse();
+        assertThat(classifier.canSkip(d)).isTrue();
+    }
+
+    @Test
+    void mediumLengthBelowThresholdKeepsRewrite() {
+        var d = classifier.classify("草船借箭的经过", "空城计", "用户在聊三国");
+        assertThat(d.isRewriteNeeded()).isFalse();
+        assertThat(classifier.canSkip(d)).isFalse();
+    }
+}
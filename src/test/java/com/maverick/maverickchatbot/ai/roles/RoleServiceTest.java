@@ -0,0 +1,67 @@
+package com.maverick.maverickchatbot.ai.roles;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RoleServiceTest {
+
+    @TempDir
+    Path dir;
+
+    private final List<Object> events = new ArrayList<>();
+
+    private void write(Path file, String yaml, long modified) throws Exception {
+        Files.writeString(file, yaml);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(modified));
+    }
+
+    @Test
+    void reloadSwapsSnapshotAtomicallyAndKeepsOldOneOnBadFile() throws Exception {
+        Path file = dir.resolve("roles.yaml");
+        write(file, """
+                - id: harry
+                  name: 哈利
+                  voiceSamples:
+                    - spk_id: voice_harry
+                - id: ron
+                  name: 罗恩
+                """, 1_000_000);
+        RoleService service = new RoleService(events::add, "file:" + file, 0);
+        service.init();
+
+        assertThat(service.listRoles()).extracting(RoleConfig::getId).containsExactly("harry", "ron");
+        assertThat(service.resolveVoice("harry")).isEqualTo("voice_harry");
+        assertThat(service.resolveVoice("ron")).isNull();
+        assertThat(service.resolveVoice(null)).isNull();
+        assertThat(service.reloadIfChanged()).isFalse();
+
+        write(file, """
+                - id: harry
+                  name: 哈利
+                - id: harry
+                  name: 重复
+                """, 2_000_000);
+        assertThat(service.reloadIfChanged()).isFalse();
+        assertThat(service.getById("ron")).isNotNull();
+
+        write(file, """
+                - id: hermione
+                  name: 赫敏
+                  voiceSamples:
+                    - spk_id: voice_hermione
+                """, 3_000_000);
+        assertThat(service.reloadIfChanged()).isTrue();
+        assertThat(service.getById("harry")).isNull();
+        assertThat(service.resolveVoice("hermione")).isEqualTo("voice_hermione");
+        assertThat(events).singleElement().isInstanceOfSatisfying(RolesReloadedEvent.class,
+                e -> assertThat(e.roles()).extracting(RoleConfig::getId).containsExactly("hermione"));
+    }
+}
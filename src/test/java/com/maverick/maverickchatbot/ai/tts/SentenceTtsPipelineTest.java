@@ -0,0 +1,104 @@
+package com.maverick.maverickchatbot.ai.tts;
+
+import com.maverick.maverickchatbot.admission.AdmissionController;
+import com.maverick.maverickchatbot.admission.AdmissionProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SentenceTtsPipelineTest {
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    // 未初始化：不限流、不熔断
+    private final AdmissionController admission = new AdmissionController(new AdmissionProperties(), new SimpleMeterRegistry());
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void splitsAtSentenceEndsAndMergesShortFragments() {
+        assertThat(SentenceTtsPipeline.splitSentences("好的。我们明天在图书馆见面吧！记得带上魔杖？嗯", 4))
+                .containsExactly("好的。我们明天在图书馆见面吧！", "记得带上魔杖？嗯");
+        assertThat(SentenceTtsPipeline.splitSentences("“你来了。”他说道，然后转身离开了", 2))
+                .containsExactly("“你来了。”", "他说道，然后转身离开了");
+        assertThat(SentenceTtsPipeline.splitSentences("  ", 4)).isEmpty();
+    }
+
+    @Test
+    void deliversInOriginalOrderWhileCappingSessionConcurrency() throws Exception {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        // 越靠前的句子越慢，乱序完成
+        TtsService tts = new FakeTts(text -> {
+            int now = inFlight.incrementAndGet();
+            peak.accumulateAndGet(now, Math::max);
+            sleep(60 - 10L * (text.charAt(1) - '0'));
+            inFlight.decrementAndGet();
+            return text.getBytes(StandardCharsets.UTF_8);
+        });
+        SentenceTtsPipeline pipeline = new SentenceTtsPipeline(tts, executor, admission, true, 8, 2, 1);
+
+        List<String> received = new ArrayList<>();
+        int n = pipeline.synthesize("s1", "第1句。第2句。第3句。第4句。第5句。", null,
+                audio -> received.add(new String(audio, StandardCharsets.UTF_8)));
+
+        assertThat(n).isEqualTo(5);
+        assertThat(received).containsExactly("第1句。", "第2句。", "第3句。", "第4句。", "第5句。");
+        assertThat(peak.get()).isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    void failedSentenceIsSkipped() throws Exception {
+        TtsService tts = new FakeTts(text -> {
+            if (text.contains("坏")) throw new IllegalStateException("vendor error");
+            return text.getBytes(StandardCharsets.UTF_8);
+        });
+        SentenceTtsPipeline pipeline = new SentenceTtsPipeline(tts, executor, admission, true, 4, 4, 1);
+
+        List<String> received = new ArrayList<>();
+        int n = pipeline.synthesize(null, "好句子。坏句子。好句子二。", null,
+                audio -> received.add(new String(audio, StandardCharsets.UTF_8)));
+
+        assertThat(n).isEqualTo(2);
+        assertThat(received).containsExactly("好句子。", "好句子二。");
+    }
+
+    private static void sleep(long ms) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(Math.max(0, ms));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record FakeTts(Function<String, byte[]> fn) implements TtsService {
+        @Override
+        public byte[] synthesize(String text, String voice) {
+            return fn.apply(text);
+        }
+
+        @Override
+        public CompletableFuture<byte[]> synthesizeAsync(String text, String voice, Executor executor) {
+            try {
+                return CompletableFuture.completedFuture(fn.apply(text));
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+    }
+}
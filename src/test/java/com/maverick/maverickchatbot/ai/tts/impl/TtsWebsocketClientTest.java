@@ -0,0 +1,220 @@
+package com.maverick.maverickchatbot.ai.tts.impl;
+
+import com.maverick.maverickchatbot.ai.tts.TtsTimeoutException;
+import org.java_websocket.WebSocket;
+import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.server.WebSocketServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+class TtsWebsocketClientTest {
+
+    private static final VolcTtsDemo.Deadlines FAST = new VolcTtsDemo.Deadlines(500, 300, 2000);
+
+    private StubServer server;
+
+    @AfterEach
+    void stop() throws InterruptedException {
+        if (server != null) server.stop(1000);
+    }
+
+    @Test
+    void completesWithAllAudioOnLastFrame() throws Exception {
+        start((conn, request) -> {
+            conn.send(audioFrame(1, "ab"));
+            conn.send(audioFrame(-2, "cd"));
+        });
+
+        byte[] audio = submit(FAST).get(2, TimeUnit.SECONDS);
+
+        assertThat(new String(audio, StandardCharsets.UTF_8)).isEqualTo("abcd");
+    }
+
+    @Test
+    void completionCancelsPendingDeadlineTimers() throws Exception {
+        start((conn, request) -> conn.send(audioFrame(-1, "ab")));
+
+        submit(new VolcTtsDemo.Deadlines(500, 5000, 10000)).get(2, TimeUnit.SECONDS);
+
+        // 整段与首字节计时器随请求结束出队，不再持有客户端
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (!VolcTtsDemo.TtsWebsocketClient.TIMER.getQueue().isEmpty() && System.nanoTime() < deadline) sleep(10);
+        assertThat(VolcTtsDemo.TtsWebsocketClient.TIMER.getQueue()).isEmpty();
+    }
+
+    @Test
+    void errorFrameFailsWithVendorCode() throws Exception {
+        start((conn, request) -> conn.send(errorFrame(3001, "invalid voice")));
+
+        Throwable error = failure(submit(FAST));
+
+        assertThat(error).isInstanceOf(VolcTtsDemo.TtsException.class);
+        assertThat(((VolcTtsDemo.TtsException) error).getCode()).isEqualTo(3001);
+        assertThat(((VolcTtsDemo.TtsException) error).getMessage()).isEqualTo("invalid voice");
+    }
+
+    @Test
+    void closeBeforeFinalFrameFails() throws Exception {
+        start((conn, request) -> {
+            conn.send(audioFrame(1, "ab"));
+            conn.close();
+        });
+
+        Throwable error = failure(submit(FAST));
+
+        assertThat(error).isInstanceOf(VolcTtsDemo.TtsException.class)
+                .hasMessageContaining("closed before final frame");
+    }
+
+    @Test
+    void silentServerHitsFirstByteDeadlineAndClosesConnection() throws Exception {
+        start((conn, request) -> { });
+
+        Throwable error = failure(submit(FAST));
+
+        assertThat(error).isInstanceOf(TtsTimeoutException.class);
+        assertThat(((TtsTimeoutException) error).getStage()).isEqualTo("first-byte");
+        assertThat(server.closed.await(2, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void trickleBelowFirstByteDeadlineStillHitsTotalDeadline() throws Exception {
+        start((conn, request) -> Thread.ofVirtual().start(() -> {
+            for (int i = 1; conn.isOpen(); i++) {
+                conn.send(audioFrame(i, "x"));
+                sleep(100);
+            }
+        }));
+
+        Throwable error = failure(submit(new VolcTtsDemo.Deadlines(500, 300, 600)));
+
+        assertThat(error).isInstanceOf(TtsTimeoutException.class);
+        assertThat(((TtsTimeoutException) error).getStage()).isEqualTo("total");
+    }
+
+    @Test
+    void handshakeThatNeverCompletesHitsConnectDeadline() throws Exception {
+        // 只完成 TCP 握手、从不回应 WebSocket 升级
+        try (ServerSocket mute = new ServerSocket(0)) {
+            String url = "ws://127.0.0.1:" + mute.getLocalPort();
+            CompletableFuture<byte[]> future = new VolcTtsDemo.TtsWebsocketClient(url, "token", "Bearer; ", FAST)
+                    .submitAsync(request());
+
+            Throwable error = failure(future);
+
+            assertThat(error).isInstanceOf(TtsTimeoutException.class);
+            assertThat(((TtsTimeoutException) error).getStage()).isEqualTo("connect");
+        }
+    }
+
+    @Test
+    void cancelClosesConnection() throws Exception {
+        CountDownLatch requested = new CountDownLatch(1);
+        start((conn, request) -> requested.countDown());
+
+        CompletableFuture<byte[]> future = submit(new VolcTtsDemo.Deadlines(500, 5000, 10000));
+        assertThat(requested.await(2, TimeUnit.SECONDS)).isTrue();
+        future.cancel(true);
+
+        assertThat(server.closed.await(2, TimeUnit.SECONDS)).isTrue();
+        assertThat(future).isCancelled();
+    }
+
+    private void start(BiConsumer<WebSocket, ByteBuffer> onRequest) throws InterruptedException {
+        server = new StubServer(onRequest);
+        server.start();
+        assertThat(server.started.await(2, TimeUnit.SECONDS)).isTrue();
+    }
+
+    private CompletableFuture<byte[]> submit(VolcTtsDemo.Deadlines deadlines) {
+        String url = "ws://127.0.0.1:" + server.getPort();
+        return new VolcTtsDemo.TtsWebsocketClient(url, "token", "Bearer; ", deadlines).submitAsync(request());
+    }
+
+    private static VolcTtsDemo.TtsRequest request() {
+        return VolcTtsDemo.TtsRequest.builder()
+                .app(VolcTtsDemo.TtsRequest.App.builder().appid("app").cluster("volcano_tts").build())
+                .request(VolcTtsDemo.TtsRequest.Request.builder().reqID("r1").operation("query").text("你好").build())
+                .build();
+    }
+
+    private static Throwable failure(CompletableFuture<byte[]> future) throws Exception {
+        Throwable error = catchThrowable(() -> future.get(3, TimeUnit.SECONDS));
+        assertThat(error).isInstanceOf(ExecutionException.class);
+        return error.getCause();
+    }
+
+    private static ByteBuffer audioFrame(int sequence, String audio) {
+        byte[] data = audio.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buf = ByteBuffer.allocate(4 + 8 + data.length);
+        buf.put(new byte[]{0x11, (byte) 0xB1, 0x00, 0x00}).putInt(sequence).putInt(data.length).put(data);
+        return buf.flip();
+    }
+
+    private static ByteBuffer errorFrame(int code, String message) {
+        byte[] msg = message.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buf = ByteBuffer.allocate(4 + 8 + msg.length);
+        buf.put(new byte[]{0x11, (byte) 0xF0, 0x10, 0x00}).putInt(code).putInt(msg.length).put(msg);
+        return buf.flip();
+    }
+
+    private static void sleep(long ms) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class StubServer extends WebSocketServer {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch closed = new CountDownLatch(1);
+        private final BiConsumer<WebSocket, ByteBuffer> onRequest;
+
+        StubServer(BiConsumer<WebSocket, ByteBuffer> onRequest) {
+            super(new InetSocketAddress("127.0.0.1", 0));
+            this.onRequest = onRequest;
+            setReuseAddr(true);
+        }
+
+        @Override
+        public void onStart() {
+            started.countDown();
+        }
+
+        @Override
+        public void onOpen(WebSocket conn, ClientHandshake handshake) {
+        }
+
+        @Override
+        public void onMessage(WebSocket conn, String message) {
+        }
+
+        @Override
+        public void onMessage(WebSocket conn, ByteBuffer request) {
+            onRequest.accept(conn, request);
+        }
+
+        @Override
+        public void onClose(WebSocket conn, int code, String reason, boolean remote) {
+            closed.countDown();
+        }
+
+        @Override
+        public void onError(WebSocket conn, Exception ex) {
+        }
+    }
+}
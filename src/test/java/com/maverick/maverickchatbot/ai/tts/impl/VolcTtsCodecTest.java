@@ -0,0 +1,141 @@
+package com.maverick.maverickchatbot.ai.tts.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class VolcTtsCodecTest {
+
+    private final VolcTtsCodec codec = new VolcTtsCodec(4);
+    private final VolcTtsCodec.Frame frame = new VolcTtsCodec.Frame();
+
+    @Test
+    void encodesFullClientRequestHeader() {
+        byte[] json = "{\"text\":\"你好\"}".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buf = codec.encodeRequest(json, false);
+
+        assertThat(new byte[]{buf.get(0), buf.get(1), buf.get(2), buf.get(3)}).containsExactly(0x11, 0x10, 0x10, 0x00);
+        assertThat(buf.getInt(4)).isEqualTo(json.length);
+        assertThat(buf.remaining()).isEqualTo(8 + json.length);
+        assertThat(buf.slice(8, json.length)).isEqualTo(ByteBuffer.wrap(json));
+    }
+
+    @Test
+    void releasedBufferIsReused() {
+        ByteBuffer first = codec.encodeRequest(new byte[16], false);
+        codec.release(first);
+        ByteBuffer second = codec.encodeRequest(new byte[8], false);
+        assertThat(second).isSameAs(first);
+        assertThat(second.remaining()).isEqualTo(16);
+    }
+
+    @Test
+    void gzipRequestRoundTrips() {
+        byte[] json = "{\"text\":\"长文本长文本长文本\"}".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buf = codec.encodeRequest(json, true);
+        assertThat(buf.get(2) & 0x0f).isEqualTo(VolcTtsCodec.COMPRESSION_GZIP);
+        byte[] gunzipped = VolcTtsCodec.gunzip(buf.slice(8, buf.getInt(4)));
+        assertThat(gunzipped).isEqualTo(json);
+    }
+
+    @Test
+    void decodesAudioFrameAsViewWithoutCopy() {
+        byte[] audio = {1, 2, 3, 4, 5};
+        ByteBuffer in = audioFrame(7, audio, false);
+
+        VolcTtsCodec.Frame f = VolcTtsCodec.decode(in, frame);
+
+        assertThat(f.isAudio()).isTrue();
+        assertThat(f.getSequence()).isEqualTo(7);
+        assertThat(f.isLast()).isFalse();
+        assertThat(f.getPayload().remaining()).isEqualTo(5);
+        assertThat(f.getPayload().array()).isSameAs(in.array());
+        assertThat(in.position()).isZero();
+    }
+
+    @Test
+    void negativeSequenceMarksLastFrame() {
+        VolcTtsCodec.Frame f = VolcTtsCodec.decode(audioFrame(-3, new byte[]{9}, false), frame);
+        assertThat(f.isLast()).isTrue();
+    }
+
+    @Test
+    void ackFrameHasNoPayload() {
+        ByteBuffer in = ByteBuffer.wrap(new byte[]{0x11, (byte) 0xB0, 0x00, 0x00});
+        VolcTtsCodec.Frame f = VolcTtsCodec.decode(in, frame);
+        assertThat(f.isAudio()).isTrue();
+        assertThat(f.getPayload()).isNull();
+    }
+
+    @Test
+    void decodesGzipAudioPayload() {
+        byte[] audio = "0123456789".repeat(20).getBytes(StandardCharsets.US_ASCII);
+        VolcTtsCodec.Frame f = VolcTtsCodec.decode(audioFrame(1, audio, true), frame);
+        byte[] out = new byte[f.getPayload().remaining()];
+        f.getPayload().get(out);
+        assertThat(out).isEqualTo(audio);
+    }
+
+    @Test
+    void decodesErrorFrame() {
+        byte[] msg = "quota exceeded".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer in = ByteBuffer.allocate(12 + msg.length);
+        in.put(new byte[]{0x11, (byte) 0xF0, 0x10, 0x00}).putInt(45000).putInt(msg.length).put(msg).flip();
+
+        VolcTtsCodec.Frame f = VolcTtsCodec.decode(in, frame);
+
+        assertThat(f.isError()).isTrue();
+        assertThat(f.getCode()).isEqualTo(45000);
+        assertThat(f.payloadAsString()).isEqualTo("quota exceeded");
+    }
+
+    @Test
+    void rejectsUnknownProtocolVersion() {
+        ByteBuffer in = ByteBuffer.wrap(new byte[]{0x21, (byte) 0xB1, 0x00, 0x00, 0, 0, 0, 1, 0, 0, 0, 0});
+        assertThatThrownBy(() -> VolcTtsCodec.decode(in, frame))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("version");
+    }
+
+    @Test
+    void rejectsHeaderSizeSmallerThanFixedHeaderOrBeyondFrame() {
+        // 头部长度字段为 0
+        ByteBuffer zero = ByteBuffer.wrap(new byte[]{0x10, (byte) 0xB1, 0x00, 0x00, 0, 0, 0, 1, 0, 0, 0, 0});
+        assertThatThrownBy(() -> VolcTtsCodec.decode(zero, frame))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("header size");
+        // 头部长度 15 * 4 = 60 字节，超过 12 字节的帧
+        ByteBuffer beyond = ByteBuffer.wrap(new byte[]{0x1F, (byte) 0xB1, 0x00, 0x00, 0, 0, 0, 1, 0, 0, 0, 0});
+        assertThatThrownBy(() -> VolcTtsCodec.decode(beyond, frame))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("header size");
+    }
+
+    @Test
+    void rejectsPayloadSizeBeyondFrame() {
+        ByteBuffer in = ByteBuffer.allocate(14);
+        in.put(new byte[]{0x11, (byte) 0xB1, 0x00, 0x00}).putInt(1).putInt(100).put(new byte[2]).flip();
+        assertThatThrownBy(() -> VolcTtsCodec.decode(in, frame)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rejectsPayloadSizeThatWouldOverflow() {
+        // start + size 溢出为负数时也必须拒绝，而不是在 slice 时抛 IndexOutOfBoundsException
+        ByteBuffer in = ByteBuffer.allocate(14);
+        in.put(new byte[]{0x11, (byte) 0xB1, 0x00, 0x00}).putInt(1).putInt(Integer.MAX_VALUE - 4).put(new byte[2]).flip();
+        assertThatThrownBy(() -> VolcTtsCodec.decode(in, frame)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static ByteBuffer audioFrame(int sequence, byte[] audio, boolean gzip) {
+        byte[] payload = gzip ? VolcTtsCodec.gzip(audio) : audio;
+        ByteBuffer buf = ByteBuffer.allocate(12 + payload.length);
+        // byte2 低 4 位为压缩方式
+        buf.put(new byte[]{0x11, (byte) 0xB1, (byte) (gzip ? 0x01 : 0x00), 0x00});
+        buf.putInt(sequence).putInt(payload.length).put(payload);
+        return buf.flip();
+    }
+}
@@ -0,0 +1,45 @@
+package com.maverick.maverickchatbot.metrics;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class TurnTraceTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final StageTimers timers = new StageTimers(registry);
+
+    @Test
+    void recordsStagesWithFinalPathOnFinish() {
+        TurnTrace trace = timers.start("xiaoming");
+        trace.record(TurnTrace.VECTOR_SEARCH, TimeUnit.MILLISECONDS.toNanos(10));
+        trace.record(TurnTrace.VECTOR_SEARCH, TimeUnit.MILLISECONDS.toNanos(15));
+        trace.path(TurnTrace.PATH_ESCALATED);
+        assertThat(registry.find(StageTimers.METRIC).timer()).isNull();
+
+        trace.finish();
+        trace.finish();
+
+        Timer search = registry.find(StageTimers.METRIC)
+                .tags("stage", TurnTrace.VECTOR_SEARCH, "role", "xiaoming", "path", TurnTrace.PATH_ESCALATED)
+                .timer();
+        assertThat(search).isNotNull();
+        assertThat(search.count()).isEqualTo(1);
+        assertThat(search.totalTime(TimeUnit.MILLISECONDS)).isCloseTo(25, within(0.5));
+        assertThat(registry.find(StageTimers.METRIC).tags("stage", TurnTrace.TURN).timer()).isNotNull();
+        assertThat(trace.stagesMs()).containsEntry(TurnTrace.VECTOR_SEARCH, 25L);
+    }
+
+    @Test
+    void noopTraceRecordsNothing() {
+        TurnTrace.NOOP.record(TurnTrace.ASR, 1_000_000);
+        TurnTrace.NOOP.finish();
+        assertThat(TurnTrace.NOOP.stagesMs()).isEmpty();
+        assertThat(registry.getMeters()).isEmpty();
+    }
+}
@@ -0,0 +1,161 @@
+package com.maverick.maverickchatbot.session;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FileConversationStateStoreTest {
+
+    @TempDir
+    Path dir;
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+
+    private final SessionProperties props = new SessionProperties();
+
+    private FileConversationStateStore open(long compactBytes) {
+        props.setTtlMs(60_000);
+        props.getFile().setDir(dir.toString());
+        props.getFile().setCompactBytes(compactBytes);
+        return new FileConversationStateStore(props, new SimpleMeterRegistry(), now::get);
+    }
+
+    private ConversationState state(String token, String summary) {
+        ConversationState state = new ConversationState(token, now.get());
+        state.setRoleId("harry");
+        state.setMemorySummary(summary);
+        return state;
+    }
+
+    @Test
+    void stateSurvivesRestartIncludingTornLastLine() throws Exception {
+        FileConversationStateStore store = open(Long.MAX_VALUE);
+        store.save(state("a", "第一轮"));
+        store.save(state("a", "第二轮"));
+        store.save(state("b", "将被删除"));
+        store.delete("b");
+        // 模拟写到一半崩溃：不调用 close，日志末尾残留半行
+        Files.writeString(dir.resolve(FileConversationStateStore.LOG), "{\"op\":\"put\",\"sta",
+                StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        FileConversationStateStore reopened = open(Long.MAX_VALUE);
+        ConversationState a = reopened.load("a");
+        assertThat(a.getMemorySummary()).isEqualTo("第二轮");
+        assertThat(a.getRoleId()).isEqualTo("harry");
+        assertThat(reopened.load("b")).isNull();
+        assertThat(reopened.size()).isEqualTo(1);
+    }
+
+    @Test
+    void compactionKeepsLatestLiveStateAndDropsExpired() throws Exception {
+        FileConversationStateStore store = open(1024);
+        store.save(state("old", "很久以前"));
+        now.addAndGet(61_000);
+        for (int i = 0; i < 20; i++) {
+            store.save(state("live", "第" + i + "轮"));
+        }
+
+        // 日志已被压缩：快照只剩存活会话的最新状态
+        assertThat(Files.size(dir.resolve(FileConversationStateStore.LOG))).isLessThan(1024);
+        assertThat(Files.readAllLines(dir.resolve(FileConversationStateStore.SNAPSHOT))).hasSize(1);
+        store.close();
+
+        FileConversationStateStore reopened = open(1024);
+        assertThat(reopened.load("live").getMemorySummary()).isEqualTo("第19轮");
+        assertThat(reopened.load("old")).isNull();
+    }
+
+    @Test
+    void leastRecentlyUsedSessionIsEvictedDurably() {
+        props.setMaxSessions(2);
+        FileConversationStateStore store = open(Long.MAX_VALUE);
+        store.save(state("a", "a"));
+        store.save(state("b", "b"));
+        store.load("a");
+        store.save(state("c", "c"));
+
+        assertThat(store.load("b")).isNull();
+        assertThat(store.size()).isEqualTo(2);
+
+        // 不调用 close：淘汰须已记入日志，重放后不复活
+        FileConversationStateStore reopened = open(Long.MAX_VALUE);
+        assertThat(reopened.load("a")).isNotNull();
+        assertThat(reopened.load("b")).isNull();
+        assertThat(reopened.load("c")).isNotNull();
+    }
+
+    @Test
+    void memoryBoundKeepsJustWrittenSession() {
+        FileConversationStateStore store = open(Long.MAX_VALUE);
+        store.save(state("a", "a"));
+        props.setMaxBytes(store.bytes() + 10);
+        store.save(state("b", "很长的摘要".repeat(20)));
+
+        assertThat(store.load("a")).isNull();
+        assertThat(store.load("b")).isNotNull();
+    }
+
+    @Test
+    void concurrentWritersWithFsyncAreAllDurable() throws Exception {
+        props.getFile().setFsync(true);
+        FileConversationStateStore store = open(Long.MAX_VALUE);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<CompletableFuture<Void>> writes = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                String token = "s" + (i % 20);
+                String summary = "第" + i + "轮";
+                writes.add(CompletableFuture.runAsync(() -> store.save(state(token, summary)), pool));
+            }
+            CompletableFuture.allOf(writes.toArray(new CompletableFuture[0])).join();
+        } finally {
+            pool.shutdown();
+        }
+
+        FileConversationStateStore reopened = open(Long.MAX_VALUE);
+        assertThat(reopened.size()).isEqualTo(20);
+        for (int i = 0; i < 20; i++) {
+            assertThat(reopened.load("s" + i)).isNotNull();
+        }
+    }
+
+    @Test
+    void writesDuringCompactionSurviveRestart() throws Exception {
+        props.getFile().setFsync(true);
+        // 阈值很小：写入过程中反复压缩，快照写出期间其他线程持续追加
+        FileConversationStateStore store = open(1_000);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<CompletableFuture<Void>> writers = new ArrayList<>();
+            for (int k = 0; k < 8; k++) {
+                String token = "t" + k;
+                writers.add(CompletableFuture.runAsync(() -> {
+                    for (int i = 0; i < 50; i++) store.save(state(token, token + "-" + i));
+                }, pool));
+            }
+            CompletableFuture.allOf(writers.toArray(new CompletableFuture[0])).join();
+        } finally {
+            pool.shutdown();
+        }
+        assertThat(Files.size(dir.resolve(FileConversationStateStore.SNAPSHOT))).isPositive();
+
+        // 不调用 close，直接按快照 + 日志恢复
+        FileConversationStateStore reopened = open(1_000);
+        for (int k = 0; k < 8; k++) {
+            assertThat(reopened.load("t" + k).getMemorySummary()).isEqualTo("t" + k + "-49");
+        }
+    }
+}
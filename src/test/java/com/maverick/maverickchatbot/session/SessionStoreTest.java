@@ -0,0 +1,126 @@
+package com.maverick.maverickchatbot.session;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SessionStoreTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+
+    private InMemoryConversationStateStore memory(int maxSessions, long maxBytes) {
+        SessionProperties props = new SessionProperties();
+        props.setTtlMs(60_000);
+        props.setMaxSessions(maxSessions);
+        props.setMaxBytes(maxBytes);
+        props.setSweepIntervalMs(0);
+        return new InMemoryConversationStateStore(props, new SimpleMeterRegistry(), now::get);
+    }
+
+    private SessionStore store(ConversationStateStore backend) {
+        return new SessionStore(backend, new SimpleMeterRegistry(), now::get);
+    }
+
+    private SessionStore store(int maxSessions, long maxBytes) {
+        return store(memory(maxSessions, maxBytes));
+    }
+
+    @Test
+    void reconnectWithTokenResumesStateAndUnknownTokenStartsFresh() {
+        SessionStore store = store(100, Long.MAX_VALUE);
+        ConversationState first = store.open(null);
+        first.setMemorySummary("用户喜欢魁地奇");
+        store.commit(first);
+
+        ConversationState resumed = store.open(first.getToken());
+        assertThat(resumed).isSameAs(first);
+        assertThat(resumed.getMemorySummary()).isEqualTo("用户喜欢魁地奇");
+
+        ConversationState fresh = store.open("forged-token");
+        assertThat(fresh.getToken()).isNotEqualTo("forged-token").isNotEqualTo(first.getToken());
+        assertThat(fresh.getMemorySummary()).isNull();
+    }
+
+    @Test
+    void idleSessionsExpireAfterTtl() {
+        SessionStore store = store(100, Long.MAX_VALUE);
+        ConversationState idle = store.open(null);
+        now.addAndGet(30_000);
+        ConversationState active = store.open(null);
+        now.addAndGet(40_000);
+
+        // idle 已空闲 70s，active 40s
+        assertThat(store.open(idle.getToken()).getToken()).isNotEqualTo(idle.getToken());
+        assertThat(store.open(active.getToken())).isSameAs(active);
+    }
+
+    @Test
+    void leastRecentlyUsedSessionsAreEvictedBySizeAndMemory() {
+        InMemoryConversationStateStore sizeLimited = memory(2, Long.MAX_VALUE);
+        SessionStore bySize = store(sizeLimited);
+        ConversationState a = bySize.open(null);
+        ConversationState b = bySize.open(null);
+        bySize.open(a.getToken());
+        bySize.open(null);
+        assertThat(sizeLimited.size()).isEqualTo(2);
+        assertThat(bySize.open(a.getToken())).isSameAs(a);
+        assertThat(bySize.open(b.getToken())).isNotSameAs(b);
+
+        InMemoryConversationStateStore memoryLimited = memory(100, 4096);
+        SessionStore byMemory = store(memoryLimited);
+        ConversationState small = byMemory.open(null);
+        ConversationState big = byMemory.open(null);
+        big.setMemorySummary("x".repeat(1500));
+        byMemory.commit(big);
+        assertThat(memoryLimited.bytes()).isLessThanOrEqualTo(4096);
+        assertThat(memoryLimited.size()).isEqualTo(2);
+
+        ConversationState bigger = byMemory.open(null);
+        bigger.setMemorySummary("y".repeat(1500));
+        byMemory.commit(bigger);
+        // 超出内存上限：最久未访问的 small、big 依次被淘汰，正在回写的 bigger 保留
+        assertThat(memoryLimited.bytes()).isLessThanOrEqualTo(4096);
+        assertThat(byMemory.open(bigger.getToken())).isSameAs(bigger);
+        assertThat(byMemory.open(small.getToken())).isNotSameAs(small);
+    }
+
+    @Test
+    void keyValueBackendSharesStateAcrossNodes() {
+        Map<String, String> kv = new ConcurrentHashMap<>();
+        KeyValueClient client = new KeyValueClient() {
+            @Override
+            public String get(String key) {
+                return kv.get(key);
+            }
+
+            @Override
+            public void set(String key, String value, long ttlMs) {
+                kv.put(key, value);
+            }
+
+            @Override
+            public void delete(String key) {
+                kv.remove(key);
+            }
+        };
+        SessionProperties props = new SessionProperties();
+        SessionStore nodeA = store(new KeyValueConversationStateStore(client, props));
+        SessionStore nodeB = store(new KeyValueConversationStateStore(client, props));
+
+        ConversationState state = nodeA.open(null);
+        state.setRoleId("hermione");
+        state.setTopicSummary("图书馆");
+        nodeA.commit(state);
+        assertThat(kv).containsKey("maverick:session:" + state.getToken());
+
+        ConversationState resumed = nodeB.open(state.getToken());
+        assertThat(resumed.getToken()).isEqualTo(state.getToken());
+        assertThat(resumed.getRoleId()).isEqualTo("hermione");
+        assertThat(resumed.getTopicSummary()).isEqualTo("图书馆");
+    }
+}
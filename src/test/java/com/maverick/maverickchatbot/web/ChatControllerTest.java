@@ -0,0 +1,190 @@
+package com.maverick.maverickchatbot.web;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import com.maverick.maverickchatbot.admission.AdmissionController;
+import com.maverick.maverickchatbot.admission.AdmissionRejectedException;
+import com.maverick.maverickchatbot.ai.rag.ConversationOrchestrator;
+import com.maverick.maverickchatbot.ai.rag.TurnListener;
+import com.maverick.maverickchatbot.ai.roles.RoleConfig;
+import com.maverick.maverickchatbot.ai.roles.RoleService;
+import com.maverick.maverickchatbot.metrics.StageTimers;
+import com.maverick.maverickchatbot.session.InMemoryConversationStateStore;
+import com.maverick.maverickchatbot.session.SessionProperties;
+import com.maverick.maverickchatbot.session.SessionStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(ChatController.class)
+class ChatControllerTest {
+
+    @TestConfiguration
+    static class Config {
+        @Bean(destroyMethod = "shutdown")
+        ExecutorService chatApiExecutor() {
+            return Executors.newVirtualThreadPerTaskExecutor();
+        }
+
+        @Bean
+        SessionStore sessionStore() {
+            SimpleMeterRegistry registry = new SimpleMeterRegistry();
+            return new SessionStore(new InMemoryConversationStateStore(new SessionProperties(), registry, System::currentTimeMillis), registry);
+        }
+
+        @Bean
+        StageTimers stageTimers() {
+            return new StageTimers(new SimpleMeterRegistry());
+        }
+    }
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private SessionStore sessionStore;
+
+    @MockitoBean
+    private ConversationOrchestrator orchestrator;
+
+    @MockitoBean
+    private RoleService roleService;
+
+    @MockitoBean
+    private AdmissionController admissionController;
+
+    @BeforeEach
+    void setUp() {
+        RoleConfig harry = new RoleConfig();
+        harry.setId("harry");
+        when(roleService.getById("harry")).thenReturn(harry);
+    }
+
+    @Test
+    void unknownRoleAndBlankTextAreBadRequests() throws Exception {
+        mvc.perform(post("/api/chat").contentType(MediaType.APPLICATION_JSON).content(body("nobody", "你好", null)))
+                .andExpect(status().isBadRequest());
+        mvc.perform(post("/api/chat").contentType(MediaType.APPLICATION_JSON).content(body("harry", "   ", null)))
+                .andExpect(status().isBadRequest());
+        mvc.perform(post("/api/chat/stream").contentType(MediaType.APPLICATION_JSON).content(body("harry", null, null)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void sessionTokenRoundTripResumesContext() throws Exception {
+        when(orchestrator.handleTurn(any(), any(), any(), any(), any(), any(), any()))
+                .thenReturn(result("你好，我是哈利", "用户打了招呼"));
+
+        JSONObject first = chat(body("harry", "你好", null));
+        assertThat(first.getBooleanValue("resumed")).isFalse();
+        assertThat(first.getString("aiText")).isEqualTo("你好，我是哈利");
+
+        JSONObject second = chat(body("harry", "还记得我吗", first.getString("session")));
+        assertThat(second.getString("session")).isEqualTo(first.getString("session"));
+        assertThat(second.getBooleanValue("resumed")).isTrue();
+        // 第二轮带着第一轮回写的记忆摘要
+        verify(orchestrator).handleTurn(eq("还记得我吗"), any(), any(), any(), eq("用户打了招呼"), isNull(), any());
+    }
+
+    @Test
+    void shedTurnIsServiceUnavailableWithRetryAfter() throws Exception {
+        when(admissionController.admitTurn()).thenThrow(new AdmissionRejectedException("turn", "queue_full"));
+        when(admissionController.retryAfterMs()).thenReturn(3000L);
+
+        MvcResult async = mvc.perform(post("/api/chat").contentType(MediaType.APPLICATION_JSON).content(body("harry", "你好", null)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(async))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "3"));
+    }
+
+    @Test
+    void concurrentTurnOnSameSessionIsConflict() throws Exception {
+        when(orchestrator.handleTurn(any(), any(), any(), any(), any(), any(), any())).thenReturn(result("好", null));
+        String token = chat(body("harry", "你好", null)).getString("session");
+
+        assertThat(sessionStore.tryBeginTurn(token)).isTrue();
+        try {
+            mvc.perform(post("/api/chat").contentType(MediaType.APPLICATION_JSON).content(body("harry", "再说一遍", token)))
+                    .andExpect(status().isConflict());
+            mvc.perform(post("/api/chat/stream").contentType(MediaType.APPLICATION_JSON).content(body("harry", "再说一遍", token)))
+                    .andExpect(status().isConflict());
+        } finally {
+            sessionStore.endTurn(token);
+        }
+        // 上一轮结束后同一令牌可继续
+        assertThat(chat(body("harry", "再说一遍", token)).getBooleanValue("resumed")).isTrue();
+    }
+
+    @Test
+    void streamEmitsSessionTokensAnswerThenDone() throws Exception {
+        when(orchestrator.handleTurnStreaming(any(), any(), any(), any(), any(), any(), any())).thenAnswer(inv -> {
+            TurnListener listener = inv.getArgument(6);
+            listener.onToken("你");
+            listener.onToken("好");
+            listener.onAnswer("你好", null);
+            return result("你好", null);
+        });
+
+        MvcResult async = mvc.perform(post("/api/chat/stream").contentType(MediaType.APPLICATION_JSON).content(body("harry", "你好", null)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        async.getAsyncResult(5000);
+
+        List<String> events = new ArrayList<>();
+        for (String line : async.getResponse().getContentAsString(StandardCharsets.UTF_8).split("\n")) {
+            if (line.startsWith("event:")) events.add(line.substring("event:".length()).trim());
+        }
+        assertThat(events).containsExactly("session", "token", "token", "answer", "done");
+    }
+
+    private JSONObject chat(String body) throws Exception {
+        MvcResult async = mvc.perform(post("/api/chat").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String json = mvc.perform(asyncDispatch(async))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+        return JSON.parseObject(json);
+    }
+
+    private static ConversationOrchestrator.Result result(String finalText, String memorySummary) {
+        return ConversationOrchestrator.Result.builder().finalText(finalText).newMemorySummary(memorySummary).build();
+    }
+
+    private static String body(String roleId, String text, String session) {
+        JSONObject json = new JSONObject(true);
+        json.put("roleId", roleId);
+        json.put("text", text);
+        json.put("session", session);
+        return json.toJSONString();
+    }
+}